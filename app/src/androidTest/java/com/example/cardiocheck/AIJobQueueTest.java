@@ -0,0 +1,149 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.WorkInfo;
+
+import com.example.cardiocheck.models.AIJob;
+import com.example.cardiocheck.models.BloodPressureReading;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cola persistente de análisis de IA: encolado idempotente, aplazamiento con espera exponencial
+ * y una sola escritura de la recomendación aunque el trabajo se complete dos veces. Reprogramar
+ * el worker no cancela nunca una ejecución en curso.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AIJobQueueTest {
+
+    private static final String EMAIL = "cola@example.com";
+
+    private DatabaseHelper helper;
+    private long readingId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null); // base de datos en memoria
+        readingId = helper.insertReading(new BloodPressureReading(0, EMAIL, 130, 85, 70, 1_000L, null));
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void enqueue_isIdempotent() {
+        helper.enqueueAIJob(readingId, EMAIL, 100);
+        helper.enqueueAIJob(readingId, EMAIL, 200);
+
+        List<AIJob> due = helper.getDueAIJobs(1_000, 10);
+        assertEquals(1, due.size());
+        assertEquals(100, helper.getNextAIJobTime());
+    }
+
+    @Test
+    public void reschedule_hidesJobUntilNextAttempt() {
+        helper.enqueueAIJob(readingId, EMAIL, 100);
+        helper.rescheduleAIJob(readingId, 1, 100 + AIAnalysisWorker.backoffDelay(1), "sin red");
+
+        assertTrue(helper.getDueAIJobs(101, 10).isEmpty());
+        List<AIJob> due = helper.getDueAIJobs(100 + AIAnalysisWorker.BASE_BACKOFF_MS, 10);
+        assertEquals(1, due.size());
+        assertEquals(1, due.get(0).getAttempts());
+        assertEquals(1, helper.getMinPendingAIJobAttempts());
+    }
+
+    @Test
+    public void complete_writesRecommendationOnlyOnce() {
+        helper.enqueueAIJob(readingId, EMAIL, 100);
+
+        assertTrue(helper.completeAIJob(readingId, "Primer consejo"));
+        assertFalse(helper.completeAIJob(readingId, "Consejo repetido"));
+
+        assertEquals("Primer consejo", helper.getReadingById(readingId).getAiRecommendation());
+        assertEquals(-1, helper.getNextAIJobTime());
+    }
+
+    @Test
+    public void bulkUpdate_writesAllAndClosesJobs() {
+        long second = helper.insertReading(new BloodPressureReading(0, EMAIL, 120, 80, 65, 2_000L, null));
+        helper.enqueueAIJob(readingId, EMAIL, 100);
+        helper.enqueueAIJob(second, EMAIL, 100);
+
+        Map<Long, String> advice = new HashMap<>();
+        advice.put(readingId, "Consejo 1");
+        advice.put(second, "Consejo 2");
+        advice.put(9_999L, "Lectura inexistente");
+        assertEquals(2, helper.updateReadingRecommendations(advice));
+
+        assertEquals("Consejo 1", helper.getReadingById(readingId).getAiRecommendation());
+        assertEquals("Consejo 2", helper.getReadingById(second).getAiRecommendation());
+        assertEquals(-1, helper.getNextAIJobTime());
+    }
+
+    @Test
+    public void clearAllReadings_dropsPendingJobs() {
+        helper.enqueueAIJob(readingId, EMAIL, 100);
+        helper.clearAllReadings(EMAIL);
+        assertEquals(-1, helper.getNextAIJobTime());
+    }
+
+    @Test
+    public void backoff_doublesUpToCap() {
+        assertEquals(AIAnalysisWorker.BASE_BACKOFF_MS, AIAnalysisWorker.backoffDelay(1));
+        assertEquals(2 * AIAnalysisWorker.BASE_BACKOFF_MS, AIAnalysisWorker.backoffDelay(2));
+        assertEquals(4 * AIAnalysisWorker.BASE_BACKOFF_MS, AIAnalysisWorker.backoffDelay(3));
+        assertEquals(AIAnalysisWorker.MAX_BACKOFF_MS, AIAnalysisWorker.backoffDelay(50));
+    }
+
+    @Test
+    public void schedule_neverReplacesRunningWork() {
+        List<WorkInfo> running = Collections.singletonList(work(WorkInfo.State.RUNNING, 1_000));
+
+        assertEquals(ExistingWorkPolicy.KEEP, UniqueWorkPolicy.policyFor(running, 0));
+    }
+
+    @Test
+    public void schedule_movesChainedRunEarlierLikeAPendingOne() {
+        List<WorkInfo> runningWithNext = Arrays.asList(
+                work(WorkInfo.State.SUCCEEDED, 500), work(WorkInfo.State.RUNNING, 1_000), work(WorkInfo.State.BLOCKED, 9_000));
+
+        assertEquals(ExistingWorkPolicy.REPLACE, UniqueWorkPolicy.policyFor(runningWithNext, 2_000));
+        assertEquals(ExistingWorkPolicy.KEEP, UniqueWorkPolicy.policyFor(runningWithNext, 9_000));
+    }
+
+    @Test
+    public void schedule_replacesPendingRunOnlyToMoveItEarlier() {
+        List<WorkInfo> pending = Collections.singletonList(work(WorkInfo.State.ENQUEUED, 10_000));
+
+        assertEquals(ExistingWorkPolicy.REPLACE, UniqueWorkPolicy.policyFor(pending, 5_000));
+        assertEquals(ExistingWorkPolicy.KEEP, UniqueWorkPolicy.policyFor(pending, 10_000));
+        assertEquals(ExistingWorkPolicy.KEEP, UniqueWorkPolicy.policyFor(pending, 20_000));
+        assertEquals(ExistingWorkPolicy.REPLACE, UniqueWorkPolicy.policyFor(Collections.emptyList(), 20_000));
+        assertEquals(ExistingWorkPolicy.REPLACE, UniqueWorkPolicy.policyFor(
+                Collections.singletonList(work(WorkInfo.State.SUCCEEDED, 1_000)), 20_000));
+    }
+
+    private static WorkInfo work(WorkInfo.State state, long runAt) {
+        return new WorkInfo(UUID.randomUUID(), state,
+                Collections.singleton(UniqueWorkPolicy.runAtTag(runAt)));
+    }
+}
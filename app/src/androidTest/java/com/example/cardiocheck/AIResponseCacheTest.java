@@ -0,0 +1,90 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba la caché de respuestas de IA: normalización de la clave, caducidad, expulsión LRU
+ * por tamaño y contadores de aciertos/fallos.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AIResponseCacheTest {
+
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+
+    private DatabaseHelper helper;
+    private AIResponseCache cache;
+    private long now;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null); // base de datos en memoria
+        now = 1_000_000L;
+        // Ejecutor directo y reloj controlado: las operaciones terminan antes de devolver
+        cache = new AIResponseCache(helper, TTL, 3, Runnable::run, () -> now);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void keyFor_ignoresWhitespaceAndCase() {
+        assertEquals(AIResponseCache.keyFor("gpt", "Sistólica 120,  Diastólica 80 "),
+                AIResponseCache.keyFor("gpt", "sistólica 120, diastólica 80"));
+        assertNotEquals(AIResponseCache.keyFor("gpt", "Sistólica 120"),
+                AIResponseCache.keyFor("gpt", "Sistólica 121"));
+        // Las partes no se pueden confundir al concatenarse
+        assertNotEquals(AIResponseCache.keyFor("ab", "c"), AIResponseCache.keyFor("a", "bc"));
+    }
+
+    @Test
+    public void hitAndMiss_areCounted() throws Exception {
+        String key = AIResponseCache.keyFor("consejo");
+        assertNull(cache.get(key).get());
+        cache.put(key, "Beba agua.");
+        assertEquals("Beba agua.", cache.get(key).get());
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void expiredEntry_isAMiss() throws Exception {
+        String key = AIResponseCache.keyFor("consejo");
+        cache.put(key, "Beba agua.");
+        now += TTL + 1;
+        assertNull(cache.get(key).get());
+    }
+
+    @Test
+    public void sizeLimit_evictsLeastRecentlyUsed() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            now++;
+            cache.put("k" + i, "respuesta " + i);
+        }
+        now++;
+        assertNotNull(cache.get("k0").get()); // k0 pasa a ser la más reciente
+        now++;
+        cache.put("k3", "respuesta 3");
+
+        assertEquals(3, helper.getCachedAIResponseCount());
+        assertNull(cache.get("k1").get());
+        assertNotNull(cache.get("k0").get());
+        assertNotNull(cache.get("k3").get());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.utils.ChartHelper;
+import com.github.mikephil.charting.charts.LineChart;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
+import com.github.mikephil.charting.interfaces.datasets.ILineDataSet;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Dibuja 100.000 lecturas sintéticas en una gráfica fuera de pantalla: una vez con una entrada por
+ * lectura (implementación anterior) y otra con ChartHelper, que reduce con LTTB. Los tiempos se
+ * escriben en logcat con la etiqueta "ChartBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChartDownsamplingBenchmarkTest {
+
+    private static final String TAG = "ChartBenchmark";
+    private static final int READINGS = 100_000;
+    private static final int WIDTH = 1080, HEIGHT = 720;
+    private static final int FRAMES = 5;
+
+    @Test
+    public void render100k_rawVsDownsampled() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        List<BloodPressureReading> readings = syntheticReadings();
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+
+            LineChart raw = offscreenChart(context);
+            long rawSetup = SystemClock.elapsedRealtimeNanos();
+            raw.setData(rawData(readings));
+            rawSetup = SystemClock.elapsedRealtimeNanos() - rawSetup;
+            long rawDraw = timeFrames(raw, canvas);
+
+            LineChart sampled = offscreenChart(context);
+            long sampledSetup = SystemClock.elapsedRealtimeNanos();
+            ChartHelper.setupBloodPressureChart(context, sampled, readings);
+            sampledSetup = SystemClock.elapsedRealtimeNanos() - sampledSetup;
+            long sampledDraw = timeFrames(sampled, canvas);
+
+            Log.i(TAG, String.format("sin reducir: preparación %.1f ms, %.1f ms/frame",
+                    rawSetup / 1e6, rawDraw / 1e6 / FRAMES));
+            Log.i(TAG, String.format("LTTB: preparación %.1f ms, %.1f ms/frame",
+                    sampledSetup / 1e6, sampledDraw / 1e6 / FRAMES));
+
+            for (ILineDataSet set : sampled.getData().getDataSets()) {
+                assertTrue(set.getEntryCount() <= 150);
+            }
+        });
+    }
+
+    private static LineChart offscreenChart(Context context) {
+        LineChart chart = new LineChart(context);
+        chart.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        chart.layout(0, 0, WIDTH, HEIGHT);
+        return chart;
+    }
+
+    private static long timeFrames(LineChart chart, Canvas canvas) {
+        chart.draw(canvas); // primer frame fuera de la medida (cachés de texto, etc.)
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < FRAMES; i++) {
+            chart.draw(canvas);
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static LineData rawData(List<BloodPressureReading> readings) {
+        List<Entry> systolic = new ArrayList<>(readings.size());
+        List<Entry> diastolic = new ArrayList<>(readings.size());
+        for (int i = 0; i < readings.size(); i++) {
+            BloodPressureReading r = readings.get(readings.size() - 1 - i);
+            systolic.add(new Entry(i, r.getSystolic()));
+            diastolic.add(new Entry(i, r.getDiastolic()));
+        }
+        return new LineData(new LineDataSet(systolic, "Sistólica"), new LineDataSet(diastolic, "Diastólica"));
+    }
+
+    // Una lectura cada 15 minutos durante unos 3 años, en orden descendente como las da DatabaseHelper
+    private static List<BloodPressureReading> syntheticReadings() {
+        List<BloodPressureReading> readings = new ArrayList<>(READINGS);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < READINGS; i++) {
+            int systolic = 120 + (int) (15 * Math.sin(i / 96.0)) + (i % 997 == 0 ? 60 : 0);
+            int diastolic = 80 + (int) (8 * Math.cos(i / 96.0));
+            readings.add(new BloodPressureReading(i, "bench@example.com", systolic, diastolic, 70, now - i * 900_000L, null));
+        }
+        return readings;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.ReadingStats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba que el resumen diario se mantiene al insertar (una a una y por lotes) y al borrar,
+ * y que coincide con las estadísticas calculadas sobre las lecturas.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DailyRollupTest {
+
+    private static final String EMAIL = "rollup@example.com";
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private DatabaseHelper helper;
+    private long now;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null); // base de datos en memoria
+        now = System.currentTimeMillis();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void insertReading_updatesRollupInSameTransaction() {
+        helper.insertReading(reading(120, 80, 70, now));
+        helper.insertReading(reading(140, 90, 80, now));
+        helper.insertReading(reading(110, 70, 60, now - 10 * DAY));
+
+        long today = DatabaseHelper.localEpochDay(now);
+        ReadingStats stats = helper.getDailyRollupStats(EMAIL, today, today);
+        assertEquals(2, stats.getCount());
+        assertEquals(130.0, stats.getSystolic().getAvg(), 0.001);
+        assertEquals(120, stats.getSystolic().getMin());
+        assertEquals(140, stats.getSystolic().getMax());
+        assertEquals(10.0, stats.getSystolic().getStdDev(), 0.001);
+        assertTrue(helper.isDailyRollupConsistent(EMAIL));
+    }
+
+    @Test
+    public void rollupStats_matchRawStatsForWholeDays() {
+        List<BloodPressureReading> batch = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            batch.add(reading(100 + i % 60, 60 + i % 30, 55 + i % 40, now - i * TimeUnit.HOURS.toMillis(7)));
+        }
+        helper.insertReadingsBatch(batch, null, 0);
+
+        long today = DatabaseHelper.localEpochDay(now);
+        ReadingStats fromRollup = helper.getDailyRollupStats(EMAIL, today - 89, today);
+        ReadingStats fromRaw = helper.getReadingStats(EMAIL, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(fromRaw.getCount(), fromRollup.getCount());
+        assertEquals(fromRaw.getPulse().getAvg(), fromRollup.getPulse().getAvg(), 0.0001);
+        assertEquals(fromRaw.getDiastolic().getStdDev(), fromRollup.getDiastolic().getStdDev(), 0.0001);
+        assertTrue(helper.isDailyRollupConsistent(EMAIL));
+    }
+
+    @Test
+    public void clearAllReadings_clearsRollup() {
+        helper.insertReading(reading(120, 80, 70, now));
+        helper.clearAllReadings(EMAIL);
+
+        long today = DatabaseHelper.localEpochDay(now);
+        assertTrue(helper.getDailyRollupStats(EMAIL, today - 90, today).isEmpty());
+        assertTrue(helper.isDailyRollupConsistent(EMAIL));
+    }
+
+    @Test
+    public void rebuild_repairsInconsistentRollup() {
+        helper.insertReading(reading(120, 80, 70, now));
+        helper.getWritableDatabase().delete(DatabaseHelper.TABLE_DAILY_ROLLUP, null, null);
+        assertFalse(helper.isDailyRollupConsistent(EMAIL));
+
+        helper.rebuildDailyRollup(EMAIL);
+        assertTrue(helper.isDailyRollupConsistent(EMAIL));
+    }
+
+    @Test
+    public void timeZoneChange_makesRollupInconsistentUntilRebuilt() {
+        TimeZone original = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Europe/Madrid"));
+            helper.insertReading(reading(120, 80, 70, now));
+            assertTrue(helper.isDailyRollupConsistent(EMAIL));
+
+            // Los totales siguen cuadrando, pero los días locales ya no son los mismos
+            TimeZone.setDefault(TimeZone.getTimeZone("America/Bogota"));
+            assertFalse(helper.isDailyRollupConsistent(EMAIL));
+
+            helper.rebuildDailyRollup(EMAIL);
+            assertTrue(helper.isDailyRollupConsistent(EMAIL));
+            long today = DatabaseHelper.localEpochDay(now);
+            assertEquals(1, helper.getDailyRollupStats(EMAIL, today, today).getCount());
+        } finally {
+            TimeZone.setDefault(original);
+        }
+    }
+
+    private static BloodPressureReading reading(int systolic, int diastolic, int pulse, long timestamp) {
+        return new BloodPressureReading(0, EMAIL, systolic, diastolic, pulse, timestamp, null);
+    }
+}
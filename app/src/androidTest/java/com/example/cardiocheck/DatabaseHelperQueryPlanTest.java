@@ -0,0 +1,167 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifica con EXPLAIN QUERY PLAN que las consultas de lecturas (el mismo SQL que ejecuta
+ * DatabaseHelper) usan el índice (email, timestamp) y no recorren la tabla completa ni ordenan en
+ * un B-tree temporal. Las consultas numéricas deben resolverse solo con el índice de cobertura,
+ * también la reducción por intervalos de tiempo, las estadísticas y el resumen diario.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperQueryPlanTest {
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null); // base de datos en memoria
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void getLastReadings_usesEmailTimestampIndex() {
+        assertUsesIndexWithoutSort(DatabaseHelper.readingsQuery(null, "30"));
+    }
+
+    @Test
+    public void getAllReadings_usesEmailTimestampIndex() {
+        assertUsesIndexWithoutSort(DatabaseHelper.readingsQuery(null, null));
+    }
+
+    @Test
+    public void numericReadings_useCoveringIndex() {
+        String sql = DatabaseHelper.readingsQuery(DatabaseHelper.NUMERIC_COLUMNS, "90");
+        assertUsesIndexWithoutSort(sql);
+        assertUsesCoveringIndex(sql);
+    }
+
+    @Test
+    public void getReadingsPage_seeksFromCursor() {
+        String plan = explain(DatabaseHelper.readingsPageQuery(50));
+        // Búsqueda por (email, timestamp) desde el cursor; solo los empates de timestamp se ordenan por id
+        assertTrue(plan, plan.contains(DatabaseHelper.IDX_READINGS_EMAIL_TIMESTAMP + " (email=? AND timestamp<"));
+        assertFalse(plan, plan.contains("TEMP B-TREE FOR ORDER BY"));
+    }
+
+    @Test
+    public void getReadingsPage_walksAllReadingsWithoutGapsOrRepeats() {
+        for (int i = 0; i < 120; i++) {
+            // Timestamps repetidos de tres en tres para ejercitar el desempate por id
+            helper.insertReading(new BloodPressureReading(0, "test@example.com", 120, 80, 70, (i / 3) * 1000L, null));
+        }
+        long beforeTimestamp = Long.MAX_VALUE;
+        long beforeId = Long.MAX_VALUE;
+        long previousId = Long.MAX_VALUE;
+        int seen = 0;
+        List<BloodPressureReading> page;
+        while (!(page = helper.getReadingsPage("test@example.com", beforeTimestamp, beforeId, 25)).isEmpty()) {
+            for (BloodPressureReading r : page) {
+                assertTrue(r.getId() < previousId); // mismo orden que timestamp DESC, id DESC aquí
+                previousId = r.getId();
+                seen++;
+            }
+            BloodPressureReading last = page.get(page.size() - 1);
+            beforeTimestamp = last.getTimestamp();
+            beforeId = last.getId();
+        }
+        assertEquals(120, seen);
+    }
+
+    @Test
+    public void readingsInRange_useCoveringIndex() {
+        assertUsesCoveringIndex(DatabaseHelper.readingsInRangeQuery(0, 1000, 10));
+    }
+
+    @Test
+    public void readingStats_useCoveringIndex() {
+        String plan = explain(DatabaseHelper.READING_STATS_QUERY);
+        assertTrue(plan, plan.contains("COVERING INDEX " + DatabaseHelper.IDX_READINGS_EMAIL_TIMESTAMP));
+        assertTrue("debe acotar por timestamp: " + plan, plan.contains("timestamp"));
+    }
+
+    @Test
+    public void rollupQueries_useCoveringIndex() {
+        assertUsesCoveringIndex(DatabaseHelper.READING_TOTALS_QUERY);
+        assertUsesCoveringIndex(DatabaseHelper.rollupSourceQuery(true));
+    }
+
+    @Test
+    public void getReadingById_usesPrimaryKey() {
+        String plan = explain(DatabaseHelper.READING_BY_ID_QUERY);
+        assertTrue(plan, plan.contains("PRIMARY KEY"));
+    }
+
+    @Test
+    public void readingsInRange_returnsAtMostMaxPointsInTimeOrder() {
+        for (int i = 0; i < 1000; i++) {
+            helper.insertReading(new BloodPressureReading(
+                    0, "test@example.com", 100 + i % 50, 70, 60, i * 60_000L, null));
+        }
+        List<BloodPressureReading> points =
+                helper.getReadingsInRange("test@example.com", 0, 999 * 60_000L, 90);
+        assertTrue(String.valueOf(points.size()), points.size() <= 90 && points.size() > 80);
+        for (int i = 1; i < points.size(); i++) {
+            assertTrue(points.get(i - 1).getTimestamp() > points.get(i).getTimestamp());
+        }
+        // Menos lecturas que intervalos: se devuelven sin agrupar
+        assertEquals(10, helper.getReadingsInRange("test@example.com", 0, 9 * 60_000L, 90).size());
+    }
+
+    @Test
+    public void clearAllReadings_usesEmailTimestampIndex() {
+        String plan = explain("DELETE FROM " + DatabaseHelper.TABLE_READINGS + " WHERE " + DatabaseHelper.READINGS_BY_EMAIL);
+        assertTrue(plan, plan.contains(DatabaseHelper.IDX_READINGS_EMAIL_TIMESTAMP));
+    }
+
+    private void assertUsesIndexWithoutSort(String sql) {
+        String plan = explain(sql);
+        assertTrue(plan, plan.contains(DatabaseHelper.IDX_READINGS_EMAIL_TIMESTAMP));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    private void assertUsesCoveringIndex(String sql) {
+        String plan = explain(sql);
+        assertTrue(plan, plan.contains("COVERING INDEX " + DatabaseHelper.IDX_READINGS_EMAIL_TIMESTAMP));
+    }
+
+    // El primer parámetro es el email; el resto, valores numéricos cualesquiera
+    private String explain(String sql) {
+        String[] args = new String[sql.length() - sql.replace("?", "").length()];
+        for (int i = 0; i < args.length; i++) args[i] = i == 0 ? "test@example.com" : "0";
+        StringBuilder plan = new StringBuilder();
+        Cursor c = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            int detail = c.getColumnIndexOrThrow("detail");
+            while (c.moveToNext()) {
+                plan.append(c.getString(detail)).append('\n');
+            }
+        } finally {
+            c.close();
+        }
+        return plan.toString();
+    }
+}
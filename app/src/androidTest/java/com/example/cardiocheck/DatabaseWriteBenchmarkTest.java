@@ -0,0 +1,142 @@
+package com.example.cardiocheck;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Microbenchmark de escrituras: compara insert/update con ContentValues (implementación anterior)
+ * frente a la misma escritura con sentencia precompilada. insertReading también actualiza el resumen
+ * diario y la bandeja de n8n, así que se mide aparte como referencia y no entra en la comparación.
+ * Los tiempos se escriben en logcat con la etiqueta "DbWriteBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseWriteBenchmarkTest {
+
+    private static final String TAG = "DbWriteBenchmark";
+    private static final int ITERATIONS = 2000;
+    private static final String DB_FILE = "benchmark_test.db";
+
+    private Context context;
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_FILE);
+        helper = new DatabaseHelper(context, DB_FILE); // fichero real para medir también el WAL
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DB_FILE);
+    }
+
+    @Test
+    public void insertAndUpdate_contentValuesVsCompiledStatement() {
+        long baselineInsert = timeInsertsWithContentValues();
+        long compiledInsert = timeInsertsWithCompiledStatement();
+        long baselineUpdate = timeUpdatesWithContentValues();
+        long compiledUpdate = timeUpdatesWithCompiledStatement();
+        long fullInsert = timeInsertReading();
+
+        Log.i(TAG, String.format("insert: ContentValues %.1f µs/op, compilada %.1f µs/op",
+                perOpMicros(baselineInsert), perOpMicros(compiledInsert)));
+        Log.i(TAG, String.format("update: ContentValues %.1f µs/op, compilada %.1f µs/op",
+                perOpMicros(baselineUpdate), perOpMicros(compiledUpdate)));
+        Log.i(TAG, String.format("insertReading (lectura + resumen diario + bandeja n8n) %.1f µs/op",
+                perOpMicros(fullInsert)));
+
+        // Ambas variantes han hecho exactamente el mismo trabajo
+        assertEquals(3L * ITERATIONS, DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_READINGS));
+        assertEquals(2L * ITERATIONS, DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_READINGS,
+                "ai_recommendation LIKE 'Consejo %'"));
+        assertEquals(ITERATIONS, DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_N8N_OUTBOX));
+    }
+
+    private long timeInsertsWithContentValues() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            ContentValues cv = new ContentValues();
+            cv.put("email", "bench@example.com");
+            cv.put("systolic", 120);
+            cv.put("diastolic", 80);
+            cv.put("pulse", 70);
+            cv.put("timestamp", (long) i);
+            cv.put("ai_recommendation", "");
+            db.insert(DatabaseHelper.TABLE_READINGS, null, cv);
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    // Mismo INSERT que la sentencia precompilada de DatabaseHelper, sin el trabajo extra de insertReading
+    private long timeInsertsWithCompiledStatement() {
+        SQLiteStatement st = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_READINGS +
+                " (email, systolic, diastolic, pulse, timestamp, ai_recommendation) VALUES (?, ?, ?, ?, ?, ?)");
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            st.clearBindings();
+            st.bindString(1, "bench@example.com");
+            st.bindLong(2, 120);
+            st.bindLong(3, 80);
+            st.bindLong(4, 70);
+            st.bindLong(5, ITERATIONS + i);
+            st.bindString(6, "");
+            st.executeInsert();
+        }
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        st.close();
+        return elapsed;
+    }
+
+    private long timeUpdatesWithContentValues() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 1; i <= ITERATIONS; i++) {
+            ContentValues cv = new ContentValues();
+            cv.put("ai_recommendation", "Consejo " + i);
+            db.update(DatabaseHelper.TABLE_READINGS, cv, "id=?", new String[]{String.valueOf(i)});
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private long timeUpdatesWithCompiledStatement() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 1; i <= ITERATIONS; i++) {
+            helper.updateReadingRecommendation(ITERATIONS + i, "Consejo " + i);
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private long timeInsertReading() {
+        BloodPressureReading r = new BloodPressureReading(0, "bench@example.com", 120, 80, 70, 0, "");
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            r.setTimestamp(2L * ITERATIONS + i);
+            helper.insertReading(r);
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static double perOpMicros(long totalNanos) {
+        return totalNanos / 1000.0 / ITERATIONS;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.cardiocheck;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Build;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.cardiocheck.models.User;
+import com.example.cardiocheck.utils.SharedPreferencesHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Abre cada pantalla con StrictMode activo en el hilo principal y falla si alguna toca SQLite
+ * desde ese hilo. Otras lecturas de disco (SharedPreferences, recursos) se ignoran.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainThreadDatabaseAccessTest {
+
+    private static final String EMAIL = "strictmode@example.com";
+
+    private final List<Violation> databaseViolations = new CopyOnWriteArrayList<>();
+    private StrictMode.ThreadPolicy previousPolicy;
+
+    @Before
+    public void setUp() {
+        assumeTrue("penaltyListener requiere API 28", Build.VERSION.SDK_INT >= Build.VERSION_CODES.P);
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        User user = new User(0, "Prueba StrictMode", EMAIL, "password123");
+        CardioRepository.getInstance(context).getDatabase().registerUser(user);
+        SharedPreferencesHelper.login(context, EMAIL, user.getFullName());
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            previousPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyListener(Runnable::run, v -> {
+                        if (isDatabaseAccess(v)) databaseViolations.add(v);
+                    })
+                    .build());
+        });
+    }
+
+    @After
+    public void tearDown() {
+        if (previousPolicy != null) {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> StrictMode.setThreadPolicy(previousPolicy));
+        }
+    }
+
+    @Test
+    public void dashboard_doesNotQueryDatabaseOnMainThread() {
+        assertNoDatabaseAccess(DashboardActivity.class);
+    }
+
+    @Test
+    public void history_doesNotQueryDatabaseOnMainThread() {
+        assertNoDatabaseAccess(HistoryActivity.class);
+    }
+
+    @Test
+    public void settings_doesNotQueryDatabaseOnMainThread() {
+        assertNoDatabaseAccess(SettingsActivity.class);
+    }
+
+    @Test
+    public void profile_doesNotQueryDatabaseOnMainThread() {
+        assertNoDatabaseAccess(ProfileActivity.class);
+    }
+
+    @Test
+    public void login_doesNotQueryDatabaseOnMainThread() {
+        assertNoDatabaseAccess(LoginActivity.class);
+    }
+
+    private <A extends Activity> void assertNoDatabaseAccess(Class<A> activityClass) {
+        try (ActivityScenario<A> scenario = ActivityScenario.launch(activityClass)) {
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        }
+        if (!databaseViolations.isEmpty()) {
+            fail(activityClass.getSimpleName() + " accedió a SQLite en el hilo principal:\n"
+                    + android.util.Log.getStackTraceString(databaseViolations.get(0)));
+        }
+    }
+
+    private static boolean isDatabaseAccess(Violation v) {
+        for (StackTraceElement frame : v.getStackTrace()) {
+            if (frame.getClassName().startsWith("android.database.sqlite")) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.OutboxEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bandeja de salida hacia n8n: se escribe junto con la lectura, se vacía en orden y las entregas
+ * que agotan los intentos quedan en la vista de dead letters.
+ */
+@RunWith(AndroidJUnit4.class)
+public class N8nOutboxTest {
+
+    private static final String EMAIL = "bandeja@example.com";
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null); // base de datos en memoria
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void insertReading_addsOutboxEntryInOrder() {
+        long first = insert(1_000L);
+        long second = insert(2_000L);
+
+        List<OutboxEntry> pending = helper.getPendingOutbox(10);
+        assertEquals(2, pending.size());
+        assertEquals(first, pending.get(0).getReadingId());
+        assertTrue(pending.get(0).getIdempotencyKey().startsWith("reading-" + first + "-"));
+        assertNotEquals(pending.get(0).getIdempotencyKey(), DatabaseHelper.outboxKey(first)); // única por entrega
+        assertEquals(second, pending.get(1).getReadingId());
+    }
+
+    @Test
+    public void nextTime_followsFirstEntryNotTheMinimum() {
+        insert(1_000L);
+        insert(2_000L);
+        OutboxEntry head = helper.getPendingOutbox(1).get(0);
+
+        long later = System.currentTimeMillis() + N8nOutboxWorker.backoffDelay(1);
+        helper.rescheduleOutbox(head.getId(), 1, later, "HTTP 502");
+
+        // La segunda ya tocaba, pero espera detrás de la primera
+        assertEquals(later, helper.getNextOutboxTime());
+        assertEquals("HTTP 502", helper.getPendingOutbox(1).get(0).getLastError());
+    }
+
+    @Test
+    public void deadLetter_unblocksQueueAndCanBeRetried() {
+        long first = insert(1_000L);
+        long second = insert(2_000L);
+        OutboxEntry head = helper.getPendingOutbox(1).get(0);
+
+        helper.moveOutboxToDeadLetter(head.getId(), N8nOutboxWorker.MAX_ATTEMPTS, "HTTP 404");
+
+        assertEquals(second, helper.getPendingOutbox(10).get(0).getReadingId());
+        List<OutboxEntry> dead = helper.getDeadLetterOutbox();
+        assertEquals(1, dead.size());
+        assertEquals(first, dead.get(0).getReadingId());
+        assertEquals("HTTP 404", dead.get(0).getLastError());
+
+        assertEquals(1, helper.retryDeadLetterOutbox(5_000L));
+        assertTrue(helper.getDeadLetterOutbox().isEmpty());
+        assertEquals(first, helper.getPendingOutbox(10).get(0).getReadingId()); // conserva su orden
+    }
+
+    @Test
+    public void complete_andClearAllReadings_emptyTheOutbox() {
+        insert(1_000L);
+        insert(2_000L);
+        helper.completeOutbox(helper.getPendingOutbox(1).get(0).getId());
+        assertEquals(1, helper.getPendingOutbox(10).size());
+
+        helper.clearAllReadings(EMAIL);
+        assertEquals(-1, helper.getNextOutboxTime());
+    }
+
+    @Test
+    public void backoff_doublesUpToCap() {
+        assertEquals(N8nOutboxWorker.BASE_BACKOFF_MS, N8nOutboxWorker.backoffDelay(1));
+        assertEquals(2 * N8nOutboxWorker.BASE_BACKOFF_MS, N8nOutboxWorker.backoffDelay(2));
+        assertEquals(N8nOutboxWorker.MAX_BACKOFF_MS, N8nOutboxWorker.backoffDelay(50));
+    }
+
+    @Test
+    public void batchSize_halvesAfterEachFailure() {
+        assertEquals(N8nOutboxWorker.MAX_BATCH_SIZE, N8nOutboxWorker.batchSize(0));
+        assertEquals(N8nOutboxWorker.MAX_BATCH_SIZE / 2, N8nOutboxWorker.batchSize(1));
+        assertEquals(1, N8nOutboxWorker.batchSize(N8nOutboxWorker.MAX_ATTEMPTS - 1));
+    }
+
+    @Test
+    public void flushTime_waitsForWindowUnlessBatchIsFull() {
+        insert(1_000L);
+        OutboxEntry head = helper.getPendingOutbox(1).get(0);
+
+        assertEquals(head.getCreatedAt() + N8nOutboxWorker.BATCH_WINDOW_MS, N8nOutboxWorker.flushTime(head, 1));
+        assertEquals(head.getNextAttemptAt(), N8nOutboxWorker.flushTime(head, N8nOutboxWorker.MAX_BATCH_SIZE));
+        assertEquals(1, helper.getPendingOutboxCount());
+    }
+
+    private long insert(long timestamp) {
+        return helper.insertReading(new BloodPressureReading(0, EMAIL, 130, 85, 70, timestamp, null));
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.volley.RequestQueue;
+import com.android.volley.toolbox.Volley;
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.User;
+import com.example.cardiocheck.utils.SharedPreferencesHelper;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+
+import static org.junit.Assert.*;
+
+/**
+ * Envío de mediciones al webhook de n8n contra un servidor HTTP local.
+ */
+@RunWith(AndroidJUnit4.class)
+public class N8nSyncClientTest {
+
+    private MockWebServer server;
+    private RequestQueue queue;
+    private N8nSyncClient client;
+    private User user;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        queue = Volley.newRequestQueue(context);
+        client = new N8nSyncClient(queue, server.url("/webhook/test").toString());
+        user = new User();
+        user.setEmail("ana@example.com");
+        user.setFullName("Ana \"Anita\" López");
+        user.setEmergencyContact(null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        queue.stop();
+        server.shutdown();
+    }
+
+    @Test
+    public void sendReading_postsSameFieldsAsBefore() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"message\":\"Workflow was started\"}"));
+
+        assertTrue(send());
+
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("POST", request.getMethod());
+        assertTrue(request.getHeader("Content-Type").startsWith("application/json"));
+        assertEquals("reading-1", request.getHeader(N8nSyncClient.HEADER_IDEMPOTENCY_KEY));
+        JSONArray array = new JSONArray(request.getBody().readUtf8());
+        assertEquals(1, array.length());
+        JSONObject body = array.getJSONObject(0);
+        assertEquals("reading-1", body.getString("idempotencyKey"));
+        assertEquals(1_000L, body.getLong("timestamp"));
+        assertEquals(135, body.getInt("systolic"));
+        assertEquals(88, body.getInt("diastolic"));
+        assertEquals(72, body.getInt("pulse"));
+        assertEquals("ana@example.com", body.getString("userEmail"));
+        assertEquals("Ana \"Anita\" López", body.getString("userName"));
+        assertTrue(body.isNull("emergencyContact"));
+
+        N8nSyncClient.Metrics metrics = client.getMetrics();
+        assertEquals(1, metrics.succeeded);
+        assertEquals(0, metrics.failed);
+        assertTrue(metrics.lastLatencyMs >= 0);
+    }
+
+    @Test
+    public void sendReadings_postsWholeBatchInOneRequest() throws Exception {
+        server.enqueue(new MockResponse());
+
+        client.sendReadings(items(3)).get(5, TimeUnit.SECONDS);
+
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("reading-1..reading-3", request.getHeader(N8nSyncClient.HEADER_IDEMPOTENCY_KEY));
+        JSONArray array = new JSONArray(request.getBody().readUtf8());
+        assertEquals(3, array.length());
+        assertEquals("reading-3", array.getJSONObject(2).getString("idempotencyKey"));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void acceptHeader_switchesNextBatchToGzippedColumns() throws Exception {
+        server.enqueue(new MockResponse().addHeader(N8nSyncClient.HEADER_ACCEPT, "gzip, columns"));
+        server.enqueue(new MockResponse());
+
+        client.sendReadings(items(3)).get(5, TimeUnit.SECONDS);
+        client.sendReadings(items(40)).get(5, TimeUnit.SECONDS);
+
+        RecordedRequest first = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals(N8nSyncClient.FORMAT_ROWS, first.getHeader(N8nSyncClient.HEADER_FORMAT));
+        assertNull(first.getHeader(N8nSyncClient.HEADER_ENCODING));
+
+        RecordedRequest second = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals(N8nSyncClient.FORMAT_COLUMNS, second.getHeader(N8nSyncClient.HEADER_FORMAT));
+        assertEquals(N8nSyncClient.ENCODING_GZIP, second.getHeader(N8nSyncClient.HEADER_ENCODING));
+        JSONObject body = new JSONObject(gunzip(second.getBody()));
+        assertEquals(1, body.getJSONArray("users").length());
+        assertEquals(40, body.getJSONArray("systolic").length());
+        assertEquals("reading-40", body.getJSONArray("idempotencyKey").getString(39));
+    }
+
+    @Test
+    public void rejectedCompactBody_fallsBackToJsonRows() throws Exception {
+        server.enqueue(new MockResponse().addHeader(N8nSyncClient.HEADER_ACCEPT, "gzip, columns"));
+        server.enqueue(new MockResponse().setResponseCode(415));
+        server.enqueue(new MockResponse());
+
+        client.sendReadings(items(3)).get(5, TimeUnit.SECONDS);
+        try {
+            client.sendReadings(items(40)).get(5, TimeUnit.SECONDS);
+            fail("el 415 debe llegar como error");
+        } catch (ExecutionException expected) {
+            // la bandeja de salida lo reintentará
+        }
+        client.sendReadings(items(40)).get(5, TimeUnit.SECONDS);
+
+        server.takeRequest(5, TimeUnit.SECONDS);
+        server.takeRequest(5, TimeUnit.SECONDS);
+        RecordedRequest retry = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals(N8nSyncClient.FORMAT_ROWS, retry.getHeader(N8nSyncClient.HEADER_FORMAT));
+        assertEquals(40, new JSONArray(retry.getBody().readUtf8()).length());
+    }
+
+    @Test
+    public void gzip_roundTripsAndShrinksBody() throws Exception {
+        byte[] json = N8nSyncClient.encodeBatch(items(100));
+        byte[] gzipped = N8nSyncClient.gzip(json);
+
+        assertTrue(gzipped.length < json.length / 4);
+        assertEquals(new Buffer().write(json).readUtf8(), gunzip(new Buffer().write(gzipped)));
+    }
+
+    @Test
+    public void withSecret_signsTheBytesOnTheWire() throws Exception {
+        server.enqueue(new MockResponse());
+        N8nSyncClient signed = new N8nSyncClient(queue, server.url("/webhook/test").toString(), "secreto");
+
+        signed.sendReadings(items(3)).get(5, TimeUnit.SECONDS);
+
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        long timestamp = Long.parseLong(request.getHeader(WebhookSigner.HEADER_TIMESTAMP));
+        String nonce = request.getHeader(WebhookSigner.HEADER_NONCE);
+        byte[] body = request.getBody().readByteArray();
+        assertEquals(WebhookSigner.SIGNATURE_VERSION + WebhookSigner.of("secreto").signature(timestamp, nonce, body),
+                request.getHeader(WebhookSigner.HEADER_SIGNATURE));
+    }
+
+    @Test
+    public void webhookConfig_survivesLogout() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        String url = server.url("/webhook/stored").toString();
+        server.enqueue(new MockResponse());
+        try {
+            SharedPreferencesHelper.setN8nWebhook(context, url, "secreto");
+            SharedPreferencesHelper.logout(context);
+
+            assertEquals(url, N8nSyncClient.webhookUrl(context));
+            assertEquals("secreto", N8nSyncClient.webhookSecret(context));
+            N8nSyncClient stored = new N8nSyncClient(queue, N8nSyncClient.webhookUrl(context),
+                    N8nSyncClient.webhookSecret(context));
+            stored.sendReadings(items(1)).get(5, TimeUnit.SECONDS);
+
+            RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+            assertEquals("/webhook/stored", request.getPath());
+            assertNotNull(request.getHeader(WebhookSigner.HEADER_SIGNATURE));
+        } finally {
+            SharedPreferencesHelper.setN8nWebhook(context, "", "");
+        }
+    }
+
+    @Test
+    public void emptySettings_fallBackToBuildConfig() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        SharedPreferencesHelper.setN8nWebhook(context, "", "");
+
+        String expectedUrl = BuildConfig.N8N_WEBHOOK_URL.trim().isEmpty()
+                ? N8nSyncClient.DEFAULT_WEBHOOK_URL : BuildConfig.N8N_WEBHOOK_URL.trim();
+        assertEquals(expectedUrl, N8nSyncClient.webhookUrl(context));
+        assertEquals(BuildConfig.N8N_WEBHOOK_SECRET, N8nSyncClient.webhookSecret(context));
+    }
+
+    @Test
+    public void withoutSecret_sendsNoSignature() throws Exception {
+        server.enqueue(new MockResponse());
+
+        assertTrue(send());
+
+        assertNull(server.takeRequest(5, TimeUnit.SECONDS).getHeader(WebhookSigner.HEADER_SIGNATURE));
+    }
+
+    @Test
+    public void serverError_isCountedAsFailureWithoutRetry() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        assertFalse(send());
+
+        assertEquals(1, server.getRequestCount()); // un POST no se repite solo
+        assertEquals(1, client.getMetrics().failed);
+    }
+
+    @Test
+    public void manyReadings_shareOneQueue() throws Exception {
+        int count = 20;
+        for (int i = 0; i < count; i++) server.enqueue(new MockResponse());
+
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            calls.add(client.sendReading(reading(), user, "reading-" + i));
+        }
+
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        assertEquals(count, server.getRequestCount());
+        assertEquals(count, client.getMetrics().succeeded);
+    }
+
+    private boolean send() throws Exception {
+        try {
+            client.sendReading(reading(), user, "reading-1").get(5, TimeUnit.SECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    private static String gunzip(Buffer body) throws Exception {
+        return Okio.buffer(new GzipSource(body)).readUtf8();
+    }
+
+    private List<N8nSyncClient.Item> items(int count) {
+        List<N8nSyncClient.Item> items = new ArrayList<>();
+        for (int i = 1; i <= count; i++) items.add(new N8nSyncClient.Item(reading(), user, "reading-" + i));
+        return items;
+    }
+
+    private static BloodPressureReading reading() {
+        return new BloodPressureReading(1, "ana@example.com", 135, 88, 72, 1_000L, null);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.volley.RequestQueue;
+import com.android.volley.toolbox.Volley;
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Microbenchmark del formato de envío a n8n: bytes en el cable y latencia de extremo a extremo
+ * (codificar, comprimir, POST y respuesta) al entregar 1.000 y 10.000 lecturas en lotes de
+ * N8nOutboxWorker.MAX_BATCH_SIZE contra un servidor local. Compara filas JSON, filas con gzip,
+ * columnas y columnas con gzip. Los resultados se escriben en logcat con la etiqueta "N8nWireBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class N8nWireFormatBenchmarkTest {
+
+    private static final String TAG = "N8nWireBenchmark";
+
+    private MockWebServer server;
+    private RequestQueue queue;
+    private N8nSyncClient client;
+    private User user;
+    private volatile long receivedBytes;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                receivedBytes += request.getBodySize();
+                return new MockResponse();
+            }
+        });
+        server.start();
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        queue = Volley.newRequestQueue(context);
+        client = new N8nSyncClient(queue, server.url("/webhook/bench").toString());
+        user = new User();
+        user.setEmail("bench@example.com");
+        user.setFullName("Usuario Benchmark");
+        user.setEmergencyContact("contacto@example.com");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        queue.stop();
+        server.shutdown();
+    }
+
+    @Test
+    public void rowsVsColumns_withAndWithoutGzip() throws Exception {
+        for (int count : new int[]{1_000, 10_000}) {
+            List<N8nSyncClient.Item> items = items(count);
+            send(items, false, false); // calentamiento: conexión y JIT
+
+            long rows = measure("filas", items, false, false);
+            long rowsGzip = measure("filas+gzip", items, false, true);
+            long columns = measure("columnas", items, true, false);
+            long columnsGzip = measure("columnas+gzip", items, true, true);
+
+            assertTrue(rowsGzip < rows);
+            assertTrue(columns < rows);
+            assertTrue(columnsGzip < rowsGzip);
+        }
+    }
+
+    // Devuelve los bytes recibidos por el servidor
+    private long measure(String label, List<N8nSyncClient.Item> items, boolean columns, boolean gzip) throws Exception {
+        receivedBytes = 0;
+        long start = SystemClock.elapsedRealtimeNanos();
+        send(items, columns, gzip);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(SystemClock.elapsedRealtimeNanos() - start);
+        Log.i(TAG, String.format("%d lecturas, %s: %d bytes (%.1f B/lectura), %d ms",
+                items.size(), label, receivedBytes, (double) receivedBytes / items.size(), elapsedMs));
+        return receivedBytes;
+    }
+
+    // Un lote detrás de otro, como los entrega la bandeja de salida
+    private void send(List<N8nSyncClient.Item> items, boolean columns, boolean gzip) throws Exception {
+        for (int start = 0; start < items.size(); start += N8nOutboxWorker.MAX_BATCH_SIZE) {
+            List<N8nSyncClient.Item> batch =
+                    items.subList(start, Math.min(items.size(), start + N8nOutboxWorker.MAX_BATCH_SIZE));
+            client.send(batch, columns, gzip).get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private List<N8nSyncClient.Item> items(int count) {
+        List<N8nSyncClient.Item> items = new ArrayList<>(count);
+        long base = 1_700_000_000_000L;
+        for (int i = 1; i <= count; i++) {
+            BloodPressureReading reading = new BloodPressureReading(i, user.getEmail(),
+                    110 + i % 50, 70 + i % 25, 55 + i % 40, base + i * 60_000L, null);
+            items.add(new N8nSyncClient.Item(reading, user, DatabaseHelper.outboxKey(i)));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.cardiocheck;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.User;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Análisis por lotes: una petición en modo JSON por cada MAX_BATCH_READINGS lecturas y un consejo
+ * por id de lectura en la respuesta.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OpenAIClientBatchTest {
+
+    private MockWebServer server;
+    private OpenAIClient client;
+    private User user;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new OpenAIClient(new OkHttpClient(), server.url("/v1/chat/completions").toString(), "test-key", null);
+        user = new User();
+        user.setFullName("Ana");
+        user.setAge(58);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void batch_parsesOneAdvicePerReading() throws Exception {
+        // Falta el id 3 y sobra el 99: solo se devuelven consejos de lecturas pedidas
+        server.enqueue(chatResponse("{\"recomendaciones\":[" +
+                "{\"id\":1,\"consejo\":\"Ana, tu presión es normal.\"}," +
+                "{\"id\":2,\"consejo\":\"Ana, reduce la sal.\"}," +
+                "{\"id\":99,\"consejo\":\"No pedido\"}]}"));
+
+        Map<Long, String> advice = client.getAdviceForBatch(readings(3), user).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, advice.size());
+        assertEquals("Ana, reduce la sal.", advice.get(2L));
+        assertFalse(advice.containsKey(3L));
+
+        RecordedRequest request = server.takeRequest();
+        JSONObject body = new JSONObject(request.getBody().readUtf8());
+        assertEquals("json_object", body.getJSONObject("response_format").getString("type"));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void largeBacklog_isSplitIntoChunks() throws Exception {
+        int count = OpenAIClient.MAX_BATCH_READINGS + 5;
+        // Los bloques pueden llegar en cualquier orden: ambas respuestas traen los dos ids y cada
+        // bloque se queda solo con el suyo
+        String both = "{\"recomendaciones\":[{\"id\":1,\"consejo\":\"Primero\"},{\"id\":" + count + ",\"consejo\":\"Último\"}]}";
+        server.enqueue(chatResponse(both));
+        server.enqueue(chatResponse(both));
+
+        Map<Long, String> advice = client.getAdviceForBatch(readings(count), user).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, advice.size());
+        assertEquals("Último", advice.get((long) count));
+    }
+
+    @Test
+    public void invalidJson_failsWithUserMessage() throws Exception {
+        server.enqueue(chatResponse("esto no es JSON"));
+        try {
+            client.getAdviceForBatch(readings(2), user).get(5, TimeUnit.SECONDS);
+            fail("se esperaba un error");
+        } catch (java.util.concurrent.ExecutionException e) {
+            assertEquals("No se obtuvo una respuesta válida.", OpenAIClient.userMessage(e));
+        }
+    }
+
+    private static List<BloodPressureReading> readings(int count) {
+        List<BloodPressureReading> list = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            list.add(new BloodPressureReading(i, "ana@example.com", 120 + i, 80, 70, i * 60_000L, null));
+        }
+        return list;
+    }
+
+    private static MockResponse chatResponse(String content) throws Exception {
+        JSONObject message = new JSONObject().put("role", "assistant").put("content", content);
+        JSONObject body = new JSONObject().put("choices",
+                new org.json.JSONArray().put(new JSONObject().put("message", message)));
+        return new MockResponse().setBody(body.toString());
+    }
+}
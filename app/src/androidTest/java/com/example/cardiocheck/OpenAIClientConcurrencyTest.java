@@ -0,0 +1,98 @@
+package com.example.cardiocheck;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Peticiones idénticas simultáneas comparten una sola llamada y nunca hay más de
+ * MAX_CONCURRENT_REQUESTS llamadas abiertas contra el API.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OpenAIClientConcurrencyTest {
+
+    private static final String OK_BODY =
+            "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"Respuesta\"}}]}";
+
+    private MockWebServer server;
+    private OpenAIClient dashboard;
+    private OpenAIClient history;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        String url = server.url("/v1/chat/completions").toString();
+        // Dos pantallas distintas con el mismo cliente HTTP, como en la app
+        okhttp3.OkHttpClient http = OpenAIClient.newHttpClientBuilder().build();
+        dashboard = new OpenAIClient(http, url, "test-key", null);
+        history = new OpenAIClient(http, url, "test-key", null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void identicalRequests_shareOneCall() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        CompletableFuture<String> first = dashboard.getChatResponse("¿Qué es la hipertensión?");
+        CompletableFuture<String> second = history.getChatResponse("¿Qué es la hipertensión?");
+        CompletableFuture<String> third = dashboard.getChatResponse("¿Qué es la hipertensión?");
+
+        assertEquals("Respuesta", first.get(5, TimeUnit.SECONDS));
+        assertEquals("Respuesta", second.get(5, TimeUnit.SECONDS));
+        assertEquals("Respuesta", third.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void cancellingOneCaller_keepsSharedCallForTheOthers() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        CompletableFuture<String> first = dashboard.getChatResponse("hola");
+        CompletableFuture<String> second = history.getChatResponse("hola");
+        dashboard.cancelAll(); // el dashboard se cierra
+
+        assertTrue(first.isCancelled());
+        assertEquals("Respuesta", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void burst_neverExceedsConcurrencyLimit() throws Exception {
+        int total = OpenAIClient.MAX_CONCURRENT_REQUESTS + 3;
+        for (int i = 0; i < total; i++) {
+            server.enqueue(new MockResponse().setBody(OK_BODY).setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        }
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            futures.add((i % 2 == 0 ? dashboard : history).getChatResponse("pregunta " + i));
+        }
+
+        // Mientras las primeras siguen abiertas, el resto espera en la cola
+        Thread.sleep(250);
+        assertEquals(OpenAIClient.MAX_CONCURRENT_REQUESTS, server.getRequestCount());
+
+        for (CompletableFuture<String> future : futures) {
+            assertEquals("Respuesta", future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(total, server.getRequestCount());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.cardiocheck;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba OpenAIClient contra un servidor local: respuesta correcta, error del API, plazo
+ * agotado, cancelación y reutilización de la conexión entre peticiones.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OpenAIClientMockServerTest {
+
+    private static final String OK_BODY =
+            "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"  Todo en orden.  \"}}]}";
+
+    private MockWebServer server;
+    private OpenAIClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        OkHttpClient http = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(1, 1, TimeUnit.MINUTES))
+                .build();
+        client = new OpenAIClient(http, server.url("/v1/chat/completions").toString(), "test-key", null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void success_returnsTrimmedContent() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY));
+
+        assertEquals("Todo en orden.", client.getChatResponse("¿Qué es la tensión?").get(5, TimeUnit.SECONDS));
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("Bearer test-key", request.getHeader("Authorization"));
+        assertTrue(request.getBody().readUtf8().contains("gpt-3.5-turbo"));
+    }
+
+    @Test
+    public void apiError_completesWithUserMessage() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429)
+                .setBody("{\"error\":{\"message\":\"Rate limit\"}}"));
+
+        Throwable error = failure(client.getChatResponse("hola"));
+        assertTrue(error instanceof OpenAIClient.AIException);
+        assertEquals("Error de OpenAI: Rate limit", OpenAIClient.userMessage(error));
+    }
+
+    @Test
+    public void deadline_failsWithoutWaitingForSlowServer() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY).setHeadersDelay(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        Throwable error = failure(client.postChat("hola", 300));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(error instanceof OpenAIClient.AIException);
+        assertFalse(OpenAIClient.isCancellation(error));
+        assertTrue("tardó " + elapsedMs + " ms", elapsedMs < 3000);
+    }
+
+    @Test
+    public void cancelAll_cancelsPendingFutures() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY).setHeadersDelay(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> future = client.getChatResponse("hola");
+        server.takeRequest(2, TimeUnit.SECONDS);
+        client.cancelAll();
+
+        assertTrue(future.isCancelled());
+        assertTrue(OpenAIClient.isCancellation(failure(future)));
+    }
+
+    @Test
+    public void consecutiveRequests_reuseConnection() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY));
+        server.enqueue(new MockResponse().setBody(OK_BODY));
+
+        client.getChatResponse("uno").get(5, TimeUnit.SECONDS);
+        client.getChatResponse("dos").get(5, TimeUnit.SECONDS);
+
+        // La segunda petición viaja por la misma conexión keep-alive
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (java.util.concurrent.CancellationException e) {
+            return e;
+        }
+        fail("se esperaba un error");
+        return null;
+    }
+}
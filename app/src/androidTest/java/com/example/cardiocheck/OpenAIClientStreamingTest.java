@@ -0,0 +1,116 @@
+package com.example.cardiocheck;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reproduce una respuesta en streaming grabada (server-sent events) desde un servidor local y
+ * comprueba que los fragmentos llegan de uno en uno, en orden y antes de completar el futuro.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OpenAIClientStreamingTest {
+
+    // Eventos tal como los envía el API con "stream": true (recortados)
+    private static final String[] RECORDED_CHUNKS = {
+            "data: {\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"\"},\"finish_reason\":null}]}\n\n",
+            "data: {\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Una presión\"},\"finish_reason\":null}]}\n\n",
+            "data: {\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\" de 120/80\"},\"finish_reason\":null}]}\n\n",
+            ": keep-alive\n\n",
+            "data: {\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\" es normal.\"},\"finish_reason\":null}]}\n\n",
+            "data: {\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}\n\n",
+            "data: [DONE]\n\n"
+    };
+
+    private MockWebServer server;
+    private OpenAIClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new OpenAIClient(new OkHttpClient(), server.url("/v1/chat/completions").toString(), "test-key", null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void recordedStream_deliversDeltasInOrder() throws Exception {
+        server.enqueue(sse(String.join("", RECORDED_CHUNKS)));
+
+        List<String> deltas = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> future = client.streamChatResponse("¿Es normal 120/80?", deltas::add);
+
+        assertEquals("Una presión de 120/80 es normal.", future.get(5, TimeUnit.SECONDS));
+        assertEquals(3, deltas.size());
+        assertEquals("Una presión", deltas.get(0));
+        assertEquals(" es normal.", deltas.get(2));
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("\"stream\":true"));
+    }
+
+    @Test
+    public void firstDelta_arrivesBeforeStreamEnds() throws Exception {
+        // Un evento cada 200 ms: el primer fragmento no debe esperar a que acabe la respuesta
+        String body = String.join("", RECORDED_CHUNKS);
+        server.enqueue(sse(body).throttleBody(RECORDED_CHUNKS[0].length() + RECORDED_CHUNKS[1].length(),
+                200, TimeUnit.MILLISECONDS));
+
+        long start = System.nanoTime();
+        long[] firstDeltaAt = {0};
+        CompletableFuture<String> future = client.streamChatResponse("hola", delta -> {
+            if (firstDeltaAt[0] == 0) firstDeltaAt[0] = System.nanoTime();
+        });
+        future.get(10, TimeUnit.SECONDS);
+        long end = System.nanoTime();
+
+        assertTrue(firstDeltaAt[0] > 0);
+        assertTrue("el primer fragmento llegó al final", end - firstDeltaAt[0] >= TimeUnit.MILLISECONDS.toNanos(150));
+        assertTrue(firstDeltaAt[0] > start);
+    }
+
+    @Test
+    public void apiError_failsWithoutDeltas() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(401)
+                .setBody("{\"error\":{\"message\":\"Incorrect API key\"}}"));
+
+        List<String> deltas = new CopyOnWriteArrayList<>();
+        try {
+            client.streamChatResponse("hola", deltas::add).get(5, TimeUnit.SECONDS);
+            fail("se esperaba un error");
+        } catch (ExecutionException e) {
+            assertEquals("Error de OpenAI: Incorrect API key", OpenAIClient.userMessage(e));
+        }
+        assertTrue(deltas.isEmpty());
+    }
+
+    @Test
+    public void parseStreamDelta_ignoresRoleAndFinishEvents() throws Exception {
+        assertEquals("", OpenAIClient.parseStreamDelta(RECORDED_CHUNKS[0].substring(6).trim()));
+        assertEquals(" de 120/80", OpenAIClient.parseStreamDelta(RECORDED_CHUNKS[2].substring(6).trim()));
+        assertEquals("", OpenAIClient.parseStreamDelta(RECORDED_CHUNKS[5].substring(6).trim()));
+    }
+
+    private static MockResponse sse(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(body);
+    }
+}
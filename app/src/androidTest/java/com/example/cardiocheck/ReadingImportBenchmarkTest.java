@@ -0,0 +1,95 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Microbenchmark de la importación masiva: 100.000 filas en CSV y en JSON sobre un fichero de base
+ * de datos real. Los tiempos se escriben en logcat con la etiqueta "ReadingImportBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReadingImportBenchmarkTest {
+
+    private static final String TAG = "ReadingImportBenchmark";
+    private static final int ROWS = 100_000;
+    private static final String DB_FILE = "import_benchmark_test.db";
+    private static final String EMAIL = "bench@example.com";
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_FILE);
+        helper = new DatabaseHelper(context, DB_FILE); // fichero real para medir también el WAL
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DB_FILE);
+    }
+
+    @Test
+    public void import100kRows_csvAndJson() throws Exception {
+        byte[] csv = csv();
+        byte[] json = json();
+        ReadingImporter importer = new ReadingImporter(helper);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        ReadingImporter.Result csvResult = importer.importCsv(new ByteArrayInputStream(csv), EMAIL, "bench-csv", null);
+        long csvMs = TimeUnit.NANOSECONDS.toMillis(SystemClock.elapsedRealtimeNanos() - start);
+
+        helper.clearAllReadings(EMAIL);
+        start = SystemClock.elapsedRealtimeNanos();
+        ReadingImporter.Result jsonResult = importer.importJson(new ByteArrayInputStream(json), EMAIL, "bench-json", null);
+        long jsonMs = TimeUnit.NANOSECONDS.toMillis(SystemClock.elapsedRealtimeNanos() - start);
+
+        Log.i(TAG, String.format("CSV: %d filas en %d ms (%.0f filas/s, %d KB)",
+                ROWS, csvMs, ROWS * 1000.0 / Math.max(1, csvMs), csv.length / 1024));
+        Log.i(TAG, String.format("JSON: %d filas en %d ms (%.0f filas/s, %d KB)",
+                ROWS, jsonMs, ROWS * 1000.0 / Math.max(1, jsonMs), json.length / 1024));
+
+        assertEquals(ROWS, csvResult.imported);
+        assertEquals(ROWS, jsonResult.imported);
+        assertEquals(ROWS, DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), DatabaseHelper.TABLE_READINGS));
+    }
+
+    private static byte[] csv() {
+        StringBuilder sb = new StringBuilder(ROWS * 28).append("timestamp,systolic,diastolic,pulse\n");
+        for (int i = 0; i < ROWS; i++) {
+            sb.append(1_600_000_000_000L + i * 60_000L).append(',')
+                    .append(100 + i % 60).append(',').append(65 + i % 30).append(',').append(55 + i % 45).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] json() {
+        StringBuilder sb = new StringBuilder(ROWS * 75).append('[');
+        for (int i = 0; i < ROWS; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"timestamp\":").append(1_600_000_000_000L + i * 60_000L)
+                    .append(",\"systolic\":").append(100 + i % 60)
+                    .append(",\"diastolic\":").append(65 + i % 30)
+                    .append(",\"pulse\":").append(55 + i % 45).append('}');
+        }
+        return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
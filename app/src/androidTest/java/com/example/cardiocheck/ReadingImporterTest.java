@@ -0,0 +1,136 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Importación de historiales: filas mal formadas que se rechazan sin abortar la importación y
+ * reanudación desde el punto de control tras una interrupción.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReadingImporterTest {
+
+    private static final String EMAIL = "test@example.com";
+
+    private DatabaseHelper helper;
+    private ReadingImporter importer;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null); // base de datos en memoria
+        importer = new ReadingImporter(helper);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void json_malformedValuesRejectOnlyTheirRow() throws Exception {
+        String json = "[" +
+                "{\"systolic\":120,\"diastolic\":80,\"pulse\":70,\"timestamp\":1704186001000}," +
+                "{\"systolic\":120.5,\"diastolic\":80,\"pulse\":70,\"timestamp\":1704186002000}," +
+                "{\"systolic\":\"abc\",\"diastolic\":80,\"pulse\":70,\"timestamp\":1704186003000}," +
+                "{\"systolic\":true,\"diastolic\":80,\"pulse\":70,\"timestamp\":1704186004000}," +
+                "{\"systolic\":null,\"diastolic\":80,\"pulse\":70,\"timestamp\":1704186005000}," +
+                "{\"systolic\":{\"value\":120},\"diastolic\":[80],\"pulse\":70,\"timestamp\":1704186006000}," +
+                "{\"systolic\":120,\"diastolic\":80,\"pulse\":70,\"timestamp\":\"ayer\"}," +
+                "42, null, \"texto\"," +
+                "{\"Systolic\":\"125\",\"diastolic\":82,\"pulse\":71,\"timestamp\":\"2024-01-02 08:30\",\"note\":{\"a\":[1,2]}}" +
+                "]";
+
+        ReadingImporter.Result result = importer.importJson(stream(json), EMAIL, null, null);
+
+        assertEquals(2, result.imported);
+        assertEquals(9, result.rejected);
+        assertEquals(2, readingCount());
+    }
+
+    @Test
+    public void csv_malformedRowsAreRejected() throws Exception {
+        String csv = "timestamp;systolic;diastolic;pulse\n" +
+                "1704186000;120;80;70\n" +       // epoch en segundos
+                "1704186060000;120.5;80;70\n" +
+                "1704186120000;abc;80;70\n" +
+                "1704186180000;120\n" +
+                "1000;120;80;70\n" +             // 1970: fuera de rango
+                "\n" +
+                "2024-01-02 08:30:15;130;85;72\n";
+
+        ReadingImporter.Result result = importer.importCsv(stream(csv), EMAIL, null, null);
+
+        assertEquals(2, result.imported);
+        assertEquals(4, result.rejected);
+        assertEquals(1, DatabaseUtils.longForQuery(helper.getReadableDatabase(),
+                "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_READINGS + " WHERE timestamp = 1704186000000", null));
+        // Las importadas quedan en la cola de análisis de IA
+        assertEquals(2, DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), DatabaseHelper.TABLE_AI_JOBS));
+    }
+
+    @Test
+    public void interruptedImport_resumesAfterLastCommittedBatch() throws Exception {
+        int rows = ReadingImporter.BATCH_SIZE * 3 + 10;
+        StringBuilder csv = new StringBuilder("systolic,diastolic,pulse,timestamp\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(110 + i % 40).append(',').append(75).append(',').append(65).append(',').append(1_700_000_000_000L + i * 60_000L).append('\n');
+        }
+
+        try {
+            importer.importCsv(stream(csv.toString()), EMAIL, "import-1", (processed, imported, rejected) -> {
+                throw new IllegalStateException("interrumpida"); // tras confirmar el primer lote
+            });
+            fail("la importación debía interrumpirse");
+        } catch (IllegalStateException expected) {
+            // el primer lote y su punto de control ya están guardados
+        }
+        assertEquals(ReadingImporter.BATCH_SIZE, readingCount());
+
+        ReadingImporter.Result result = importer.importCsv(stream(csv.toString()), EMAIL, "import-1", null);
+
+        assertEquals(ReadingImporter.BATCH_SIZE, result.resumedFrom);
+        assertEquals(rows - ReadingImporter.BATCH_SIZE, result.imported);
+        assertEquals(rows, readingCount());
+        assertEquals(0, helper.getImportCheckpoint("import-1"));
+    }
+
+    @Test
+    public void reimportingFinishedFile_skipsExistingReadings() throws Exception {
+        String csv = "systolic,diastolic,pulse,timestamp\n" +
+                "120,80,70,1704186000000\n" +
+                "125,82,71,1704189600000\n";
+        importer.importCsv(stream(csv), EMAIL, "import-2", null);
+
+        ReadingImporter.Result result = importer.importCsv(stream(csv + "130,85,72,1704193200000\n"),
+                EMAIL, "import-2", null);
+
+        assertEquals(1, result.imported);
+        assertEquals(2, result.duplicates);
+        assertEquals(3, readingCount());
+        assertEquals(3, DatabaseUtils.longForQuery(helper.getReadableDatabase(),
+                "SELECT SUM(count) FROM " + DatabaseHelper.TABLE_DAILY_ROLLUP, null));
+    }
+
+    private long readingCount() {
+        return DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), DatabaseHelper.TABLE_READINGS);
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.cardiocheck;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.User;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Microbenchmark de la firma de lotes para n8n: coste por lote de MAX_BATCH_SIZE lecturas con el
+ * Mac precalculado por hilo de WebhookSigner frente a preparar un Mac en cada petición, comparado
+ * con lo que cuesta serializar y comprimir el mismo lote. Los tiempos se escriben en logcat con
+ * la etiqueta "WebhookSignBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class WebhookSigningBenchmarkTest {
+
+    private static final String TAG = "WebhookSignBenchmark";
+    private static final String SECRET = "secreto-de-benchmark-0123456789abcdef";
+    private static final int BATCHES = 2000;
+
+    @Test
+    public void signingOverheadPerBatch() {
+        List<N8nSyncClient.Item> batch = batch(N8nOutboxWorker.MAX_BATCH_SIZE);
+        byte[] json = N8nSyncClient.encodeBatch(batch);
+        byte[] gzipped = N8nSyncClient.gzip(json);
+        WebhookSigner signer = WebhookSigner.of(SECRET);
+        SecretKeySpec key = new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), WebhookSigner.ALGORITHM);
+
+        // Calentamiento: JIT y proveedor criptográfico
+        for (int i = 0; i < 200; i++) {
+            signer.sign(gzipped, new HashMap<>());
+            WebhookSigner.newMac(key).doFinal(gzipped);
+            N8nSyncClient.gzip(N8nSyncClient.encodeBatch(batch));
+        }
+
+        long encode = time(() -> N8nSyncClient.gzip(N8nSyncClient.encodeBatch(batch)));
+        long cachedJson = time(() -> signer.sign(json, new HashMap<>()));
+        long cachedGzip = time(() -> signer.sign(gzipped, new HashMap<>()));
+        long perRequestMac = time(() -> {
+            Mac mac = WebhookSigner.newMac(key);
+            mac.update(json);
+            mac.doFinal();
+        });
+
+        Log.i(TAG, String.format("lote de %d lecturas (%d bytes JSON, %d gzip): codificar+gzip %.1f µs",
+                batch.size(), json.length, gzipped.length, perBatchMicros(encode)));
+        Log.i(TAG, String.format("firma con Mac por hilo: %.1f µs (JSON), %.1f µs (gzip); Mac por petición: %.1f µs",
+                perBatchMicros(cachedJson), perBatchMicros(cachedGzip), perBatchMicros(perRequestMac)));
+
+        assertTrue("la firma no debe costar más que codificar el lote", cachedGzip < encode);
+    }
+
+    private static long time(Runnable work) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < BATCHES; i++) work.run();
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static double perBatchMicros(long totalNanos) {
+        return totalNanos / 1000.0 / BATCHES;
+    }
+
+    private static List<N8nSyncClient.Item> batch(int count) {
+        User user = new User();
+        user.setEmail("bench@example.com");
+        user.setFullName("Usuario Benchmark");
+        user.setEmergencyContact("contacto@example.com");
+        List<N8nSyncClient.Item> items = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            BloodPressureReading reading = new BloodPressureReading(i, user.getEmail(),
+                    110 + i % 50, 70 + i % 25, 55 + i % 40, 1_700_000_000_000L + i * 60_000L, null);
+            items.add(new N8nSyncClient.Item(reading, user, DatabaseHelper.outboxKey(i)));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.cardiocheck.models.AIJob;
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Vacía la cola persistente de análisis de IA (tabla ai_jobs). Los trabajos de un mismo usuario se
+ * analizan juntos con getAdviceForBatch: una petición por cada MAX_BATCH_READINGS lecturas.
+ *
+ * Cada trabajo fallido se aplaza con espera exponencial (BASE_BACKOFF_MS, 2x, ... hasta
+ * MAX_BACKOFF_MS) y se abandona tras MAX_ATTEMPTS intentos. Solo se ejecuta con red; cuando todos
+ * los trabajos pendientes ya han fallado varias veces, además espera a que el móvil esté cargando.
+ * La recomendación solo se escribe si la consulta tuvo éxito.
+ */
+public class AIAnalysisWorker extends Worker {
+
+    private static final String TAG = "AIAnalysisWorker";
+    private static final String UNIQUE_WORK = "cardio-ai-analysis";
+
+    static final long BASE_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+    static final long MAX_BACKOFF_MS = TimeUnit.HOURS.toMillis(6);
+    static final int MAX_ATTEMPTS = 8;
+    // A partir de estos fallos ya no hay prisa: se espera a que el móvil esté cargando
+    static final int CHARGING_AFTER_ATTEMPTS = 3;
+    // Hasta cuatro peticiones por lotes por ejecución
+    private static final int JOBS_PER_RUN = 4 * OpenAIClient.MAX_BATCH_READINGS;
+    // Margen para que los bloques que esperan en la cola del límite de concurrencia también terminen
+    private static final long CALL_TIMEOUT_MS = 2 * OpenAIClient.BATCH_DEADLINE_MS + TimeUnit.SECONDS.toMillis(5);
+
+    private final OpenAIClient aiClient;
+
+    public AIAnalysisWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        aiClient = new OpenAIClient(context);
+    }
+
+    /** Espera antes del siguiente intento tras attempts fallos (1 → BASE_BACKOFF_MS). */
+    static long backoffDelay(int attempts) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 20);
+        return Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << shift);
+    }
+
+    /**
+     * Programa el vaciado de la cola para cuando toque el próximo trabajo. Nunca cancela una
+     * ejecución que aún está analizando (onStopped descartaría respuestas ya pagadas): solo sustituye
+     * la pendiente si el nuevo trabajo vence antes. Consulta la base de datos: llamar fuera del hilo
+     * principal.
+     */
+    @WorkerThread
+    public static void schedule(Context context) {
+        DatabaseHelper db = DatabaseHelper.getInstance(context);
+        long next = db.getNextAIJobTime();
+        if (next < 0) return; // cola vacía
+
+        ExistingWorkPolicy policy = UniqueWorkPolicy.forSchedule(context, UNIQUE_WORK, next);
+        if (policy != ExistingWorkPolicy.KEEP) enqueue(context, db, next, policy);
+    }
+
+    private static void enqueue(Context context, ExistingWorkPolicy policy) {
+        DatabaseHelper db = DatabaseHelper.getInstance(context);
+        long next = db.getNextAIJobTime();
+        if (next >= 0) enqueue(context, db, next, policy);
+    }
+
+    private static void enqueue(Context context, DatabaseHelper db, long next, ExistingWorkPolicy policy) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresCharging(db.getMinPendingAIJobAttempts() >= CHARGING_AFTER_ATTEMPTS)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(AIAnalysisWorker.class)
+                .setConstraints(constraints)
+                .setInitialDelay(Math.max(0, next - System.currentTimeMillis()), TimeUnit.MILLISECONDS)
+                .addTag(UniqueWorkPolicy.runAtTag(next))
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK, policy, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        DatabaseHelper db = DatabaseHelper.getInstance(getApplicationContext());
+
+        // Trabajos vencidos agrupados por usuario: cada grupo se analiza con una sola petición
+        Map<String, List<AIJob>> byUser = new LinkedHashMap<>();
+        for (AIJob job : db.getDueAIJobs(System.currentTimeMillis(), JOBS_PER_RUN)) {
+            List<AIJob> group = byUser.get(job.getEmail());
+            if (group == null) {
+                group = new ArrayList<>();
+                byUser.put(job.getEmail(), group);
+            }
+            group.add(job);
+        }
+        for (List<AIJob> group : byUser.values()) {
+            if (isStopped() || !process(db, group)) break;
+        }
+
+        // La siguiente ejecución se encadena detrás de esta en lugar de cancelarla
+        if (!isStopped()) enqueue(getApplicationContext(), ExistingWorkPolicy.APPEND_OR_REPLACE);
+        return Result.success();
+    }
+
+    @Override
+    public void onStopped() {
+        aiClient.cancelAll(); // el trabajo en curso no cuenta como intento
+    }
+
+    /**
+     * Analiza los trabajos de un usuario (uno solo o por lotes) y guarda todos los consejos en una
+     * transacción. Devuelve false si hay que dejar de procesar (cancelado o interrumpido).
+     */
+    private boolean process(DatabaseHelper db, List<AIJob> jobs) {
+        Map<Long, AIJob> pending = new LinkedHashMap<>();
+        List<BloodPressureReading> readings = new ArrayList<>();
+        for (AIJob job : jobs) {
+            BloodPressureReading reading = db.getReadingById(job.getReadingId());
+            if (reading == null || !TextUtils.isEmpty(reading.getAiRecommendation())) {
+                db.deleteAIJob(job.getReadingId()); // lectura borrada o ya analizada
+                continue;
+            }
+            pending.put(job.getReadingId(), job);
+            readings.add(reading);
+        }
+        if (readings.isEmpty()) return true;
+        User user = db.getUserByEmail(jobs.get(0).getEmail());
+
+        CompletableFuture<Map<Long, String>> call = readings.size() == 1
+                ? aiClient.getAdviceForSingleReading(readings.get(0), user)
+                        .thenApply(advice -> Collections.singletonMap(readings.get(0).getId(), advice))
+                : aiClient.getAdviceForBatch(readings, user);
+        String error;
+        try {
+            Map<Long, String> advice = call.get(CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            db.updateReadingRecommendations(advice);
+            pending.keySet().removeAll(advice.keySet());
+            error = "Sin consejo en la respuesta por lotes";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException | CancellationException e) {
+            if (OpenAIClient.isCancellation(e)) return false;
+            call.cancel(true); // sin efecto si ya terminó; corta la llamada si se agotó la espera
+            error = OpenAIClient.userMessage(e);
+        }
+
+        // Lo que no llegó se reintenta más tarde
+        for (AIJob job : pending.values()) {
+            int attempts = job.getAttempts() + 1;
+            if (attempts >= MAX_ATTEMPTS) {
+                Log.w(TAG, "Análisis abandonado para la lectura " + job.getReadingId() + ": " + error);
+                db.deleteAIJob(job.getReadingId());
+            } else {
+                db.rescheduleAIJob(job.getReadingId(), attempts, System.currentTimeMillis() + backoffDelay(attempts), error);
+            }
+        }
+        return true;
+    }
+}
@@ -7,6 +7,7 @@ import android.widget.EditText;
 import android.widget.ImageButton;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -21,7 +22,7 @@ public class AIChatActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_ai_chat);
-        aiClient = new OpenAIClient(this);
+        aiClient = new OpenAIClient(this).bindToLifecycle(this);
 
         recycler = findViewById(R.id.recyclerChat);
         recycler.setLayoutManager(new LinearLayoutManager(this));
@@ -38,15 +39,16 @@ public class AIChatActivity extends AppCompatActivity {
                 if (TextUtils.isEmpty(q)) return;
                 etMessage.setText("");
                 adapter.addMessage(new ChatMessage(ChatMessage.Type.USER, q));
-                adapter.addMessage(new ChatMessage(ChatMessage.Type.AI, "Escribiendo..."));
+                int bubble = adapter.addMessage(new ChatMessage(ChatMessage.Type.AI, "Escribiendo..."));
                 recycler.scrollToPosition(adapter.getItemCount() - 1);
-                new Thread(() -> {
-                    final String resp = aiClient.getChatResponse(q);
-                    runOnUiThread(() -> {
-                        adapter.replaceLastTyping(resp);
-                        recycler.scrollToPosition(adapter.getItemCount() - 1);
-                    });
-                }).start();
+                // El texto aparece según se genera en la burbuja de esta pregunta; al terminar se fija
+                // la respuesta completa
+                aiClient.streamChatResponse(q, delta -> runOnUiThread(() -> adapter.appendToStreaming(bubble, delta)))
+                        .whenCompleteAsync((resp, error) -> {
+                            if (error != null && OpenAIClient.isCancellation(error)) return;
+                            adapter.finishStreaming(bubble, error == null ? resp : OpenAIClient.userMessage(error));
+                            recycler.scrollToPosition(adapter.getItemCount() - 1);
+                        }, ContextCompat.getMainExecutor(AIChatActivity.this));
             }
         });
     }
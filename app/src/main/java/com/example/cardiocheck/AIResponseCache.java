@@ -0,0 +1,119 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Caché en disco (SQLite) de los consejos de Cardio-IA.
+ *
+ * La clave es el SHA-256 del prompt normalizado (modelo, instrucciones del sistema y prompt con
+ * los datos del perfil y las mediciones), así que la misma selección de lecturas con el mismo
+ * perfil no vuelve a pasar por la red. Las entradas caducan a las TTL_MS y, por encima de
+ * MAX_ENTRIES, se expulsan las usadas hace más tiempo. Las consultas a la base de datos se hacen
+ * en un hilo propio y nunca en el hilo principal.
+ */
+public class AIResponseCache {
+
+    private static final String TAG = "AIResponseCache";
+
+    static final long TTL_MS = TimeUnit.HOURS.toMillis(24);
+    static final int MAX_ENTRIES = 200;
+
+    private static AIResponseCache instance;
+
+    private final DatabaseHelper db;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final Executor executor;
+    private final LongSupplier clock;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static synchronized AIResponseCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AIResponseCache(DatabaseHelper.getInstance(context), TTL_MS, MAX_ENTRIES,
+                    Executors.newSingleThreadExecutor(r -> new Thread(r, "cardio-ai-cache")),
+                    System::currentTimeMillis);
+        }
+        return instance;
+    }
+
+    // Permite una base de datos en memoria, límites pequeños y un reloj controlado en las pruebas
+    AIResponseCache(DatabaseHelper db, long ttlMs, int maxEntries, Executor executor, LongSupplier clock) {
+        this.db = db;
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /** Clave de caché: hash de las partes normalizadas (espacios colapsados, minúsculas). */
+    public static String keyFor(String... parts) {
+        StringBuilder normalized = new StringBuilder();
+        for (String part : parts) {
+            normalized.append(part == null ? "" : part.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT))
+                    .append('\u0000');
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(normalized.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) hex.append(String.format(Locale.US, "%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e); // garantizado en Android
+        }
+    }
+
+    /** Respuesta guardada para key, o null si no hay o ha caducado. */
+    public CompletableFuture<String> get(String key) {
+        return CompletableFuture.supplyAsync(() -> {
+            long now = clock.getAsLong();
+            String response = null;
+            try {
+                response = db.getCachedAIResponse(key, now - ttlMs, now);
+            } catch (Exception e) {
+                Log.w(TAG, "No se pudo leer la caché", e); // sin caché se consulta la red
+            }
+            if (response != null) hits.incrementAndGet();
+            else misses.incrementAndGet();
+            Log.d(TAG, "aciertos=" + hits.get() + " fallos=" + misses.get());
+            return response;
+        }, executor);
+    }
+
+    public void put(String key, String response) {
+        if (response == null || response.isEmpty()) return;
+        executor.execute(() -> {
+            long now = clock.getAsLong();
+            try {
+                db.putCachedAIResponse(key, response, now, now - ttlMs, maxEntries);
+            } catch (Exception e) {
+                Log.w(TAG, "No se pudo guardar en la caché", e);
+            }
+        });
+    }
+
+    public long getHitCount() { return hits.get(); }
+
+    public long getMissCount() { return misses.get(); }
+
+    /** Proporción de consultas servidas desde la caché (0 si aún no hubo ninguna). */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
@@ -7,6 +7,20 @@ import com.example.cardiocheck.models.BloodPressureReading;
 
 public class BloodPressureClassifier {
 
+    // Rangos aceptados al registrar o importar una medición
+    public static final int MIN_SYSTOLIC = 70, MAX_SYSTOLIC = 250;
+    public static final int MIN_DIASTOLIC = 40, MAX_DIASTOLIC = 130;
+    public static final int MIN_PULSE = 40, MAX_PULSE = 200;
+
+    /**
+     * Indica si los valores están dentro de los rangos fisiológicos que la app acepta.
+     */
+    public static boolean isValidReading(int systolic, int diastolic, int pulse) {
+        return systolic >= MIN_SYSTOLIC && systolic <= MAX_SYSTOLIC
+                && diastolic >= MIN_DIASTOLIC && diastolic <= MAX_DIASTOLIC
+                && pulse >= MIN_PULSE && pulse <= MAX_PULSE;
+    }
+
     // Contenedor simple para el resultado de la clasificación
     public static class ClassificationResult {
         public final String category;
@@ -18,6 +32,14 @@ public class BloodPressureClassifier {
         }
     }
 
+    // Categorías según las guías estándar
+    public static final String OPTIMAL = "Óptima";
+    public static final String ELEVATED = "Elevada";
+    public static final String STAGE_1 = "Hipertensión (Etapa 1)";
+    public static final String STAGE_2 = "Hipertensión (Etapa 2)";
+    public static final String CRISIS = "Crisis Hipertensiva";
+    public static final String NORMAL = "Normal";
+
     /**
      * Clasifica una lectura de presión arterial según las guías estándar.
      * @param context El contexto para acceder a los colores.
@@ -25,21 +47,37 @@ public class BloodPressureClassifier {
      * @return Un objeto ClassificationResult con la categoría y el color.
      */
     public static ClassificationResult classify(Context context, BloodPressureReading reading) {
-        int systolic = reading.getSystolic();
-        int diastolic = reading.getDiastolic();
+        String category = categoryOf(reading.getSystolic(), reading.getDiastolic());
+        return new ClassificationResult(category, ContextCompat.getColor(context, colorOf(category)));
+    }
 
-        if (systolic < 120 && diastolic < 80) {
-            return new ClassificationResult("Óptima", ContextCompat.getColor(context, R.color.bp_optimal));
+    /**
+     * Categoría de unos valores, sin depender de recursos (la usa también el análisis local).
+     * La crisis se comprueba primero: sus valores también cumplen la condición de la etapa 2.
+     */
+    public static String categoryOf(int systolic, int diastolic) {
+        if (systolic > 180 || diastolic > 120) {
+            return CRISIS;
+        } else if (systolic < 120 && diastolic < 80) {
+            return OPTIMAL;
         } else if (systolic >= 120 && systolic <= 129 && diastolic < 80) {
-            return new ClassificationResult("Elevada", ContextCompat.getColor(context, R.color.bp_elevated));
+            return ELEVATED;
         } else if ((systolic >= 130 && systolic <= 139) || (diastolic >= 80 && diastolic <= 89)) {
-            return new ClassificationResult("Hipertensión (Etapa 1)", ContextCompat.getColor(context, R.color.bp_stage1));
+            return STAGE_1;
         } else if (systolic >= 140 || diastolic >= 90) {
-            return new ClassificationResult("Hipertensión (Etapa 2)", ContextCompat.getColor(context, R.color.bp_stage2));
-        } else if (systolic > 180 || diastolic > 120) {
-            return new ClassificationResult("Crisis Hipertensiva", ContextCompat.getColor(context, R.color.bp_crisis));
+            return STAGE_2;
         } else {
-            return new ClassificationResult("Normal", ContextCompat.getColor(context, R.color.bp_optimal)); // Caso por defecto
+            return NORMAL; // Caso por defecto
+        }
+    }
+
+    private static int colorOf(String category) {
+        switch (category) {
+            case ELEVATED: return R.color.bp_elevated;
+            case STAGE_1: return R.color.bp_stage1;
+            case STAGE_2: return R.color.bp_stage2;
+            case CRISIS: return R.color.bp_crisis;
+            default: return R.color.bp_optimal;
         }
     }
 }
\ No newline at end of file
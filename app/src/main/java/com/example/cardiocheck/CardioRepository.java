@@ -0,0 +1,250 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.OutboxEntry;
+import com.example.cardiocheck.models.ReadingStats;
+import com.example.cardiocheck.models.User;
+import com.example.cardiocheck.utils.SharedPreferencesHelper;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Capa de acceso a datos: ejecuta todas las operaciones de DatabaseHelper fuera del hilo principal.
+ * Las escrituras se serializan en un único hilo y las lecturas usan un pool acotado; los resultados
+ * se entregan siempre en el hilo principal.
+ */
+public class CardioRepository {
+
+    private static final String TAG = "CardioRepository";
+    private static final int READER_THREADS = 2;
+
+    public interface Callback<T> { void onResult(T result); }
+
+    private static volatile CardioRepository instance;
+
+    private final Context appContext;
+    private final DatabaseHelper db;
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor(threadFactory("cardio-db-write"));
+    private final ExecutorService readExecutor = Executors.newFixedThreadPool(READER_THREADS, threadFactory("cardio-db-read"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Usuarios con una comprobación del resumen diario ya encolada en este proceso
+    private final Set<String> rollupChecks = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private CardioRepository(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.db = DatabaseHelper.getInstance(context);
+    }
+
+    public static CardioRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CardioRepository.class) {
+                if (instance == null) {
+                    instance = new CardioRepository(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** Acceso directo para código que ya corre en segundo plano (workers, generación de PDF). */
+    public DatabaseHelper getDatabase() {
+        return db;
+    }
+
+    public <T> Future<T> read(Callable<T> query, Callback<T> callback) {
+        return readExecutor.submit(wrap(query, callback));
+    }
+
+    public <T> Future<T> write(Callable<T> operation, Callback<T> callback) {
+        return writeExecutor.submit(wrap(operation, callback));
+    }
+
+    /** Ejecuta trabajo en segundo plano que lee la base de datos pero no devuelve nada a la UI. */
+    public void runInBackground(Runnable task) {
+        readExecutor.execute(task);
+    }
+
+    // === USUARIOS ===
+
+    public Future<User> login(String email, String password, Callback<User> callback) {
+        return read(() -> db.login(email, password), callback);
+    }
+
+    public Future<User> getUserByEmail(String email, Callback<User> callback) {
+        return read(() -> db.getUserByEmail(email), callback);
+    }
+
+    public Future<Boolean> registerUser(User user, Callback<Boolean> callback) {
+        return write(() -> db.registerUser(user), callback);
+    }
+
+    public Future<Boolean> updateUserProfile(User user, Callback<Boolean> callback) {
+        return write(() -> db.updateUserProfile(user), callback);
+    }
+
+    // === LECTURAS ===
+
+    public Future<List<BloodPressureReading>> getLastReadings(String email, int limit, Callback<List<BloodPressureReading>> callback) {
+        return read(() -> db.getLastReadings(email, limit), callback);
+    }
+
+    public Future<List<BloodPressureReading>> getReadingsPage(String email, long beforeTimestamp, long beforeId, int pageSize,
+                                                              Callback<List<BloodPressureReading>> callback) {
+        return read(() -> db.getReadingsPage(email, beforeTimestamp, beforeId, pageSize), callback);
+    }
+
+    public Future<List<BloodPressureReading>> getLastNumericReadings(String email, int limit, Callback<List<BloodPressureReading>> callback) {
+        return read(() -> db.getLastNumericReadings(email, limit), callback);
+    }
+
+    public Future<List<BloodPressureReading>> getAllNumericReadings(String email, Callback<List<BloodPressureReading>> callback) {
+        return read(() -> db.getAllNumericReadings(email), callback);
+    }
+
+    public Future<List<BloodPressureReading>> getReadingsInRange(String email, long from, long to, int maxPoints,
+                                                                 Callback<List<BloodPressureReading>> callback) {
+        return read(() -> db.getReadingsInRange(email, from, to, maxPoints), callback);
+    }
+
+    public Future<ReadingStats> getReadingStats(String email, long windowStart, long windowEnd, Callback<ReadingStats> callback) {
+        return read(() -> db.getReadingStats(email, windowStart, windowEnd), callback);
+    }
+
+    /** Estadísticas de los últimos `days` días locales (incluido hoy) a partir del resumen diario. */
+    public Future<ReadingStats> getRecentDailyStats(String email, int days, Callback<ReadingStats> callback) {
+        return read(() -> {
+            long today = DatabaseHelper.localEpochDay(System.currentTimeMillis());
+            return db.getDailyRollupStats(email, today - days + 1, today);
+        }, callback);
+    }
+
+    /**
+     * Comprueba que el resumen diario de un usuario cuadra con sus lecturas y lo reconstruye si no.
+     * Cada escritura (también las importaciones) lo actualiza en su misma transacción, así que solo
+     * puede desviarse con una migración o con un cambio de zona horaria (los días locales cambian).
+     * La comprobación completa se hace una vez por usuario y versión de la base de datos, no en cada
+     * arranque, para no dejar dos recorridos completos delante de las escrituras; la de la zona es
+     * una consulta sobre el resumen y se repite cada vez que la zona cambia.
+     */
+    public void verifyDailyRollupOnce(String email) {
+        if (email == null) return;
+        boolean verified = SharedPreferencesHelper.getDailyRollupVerifiedVersion(appContext, email) >= DatabaseHelper.DB_VERSION;
+        String zone = TimeZone.getDefault().getID();
+        if (!rollupChecks.add(email + "|" + zone)) return;
+        write(() -> {
+            if (verified ? !db.isDailyRollupInZone(email, zone) : !db.isDailyRollupConsistent(email)) {
+                db.rebuildDailyRollup(email);
+            }
+            SharedPreferencesHelper.setDailyRollupVerifiedVersion(appContext, email, DatabaseHelper.DB_VERSION);
+            return null;
+        }, null);
+    }
+
+    /** Guarda la lectura y, en la misma transacción, su entrega a n8n; el envío lo hace N8nOutboxWorker. */
+    public Future<Long> insertReading(BloodPressureReading reading, Callback<Long> callback) {
+        return write(() -> {
+            long id = db.insertReading(reading);
+            if (id != -1) N8nOutboxWorker.schedule(appContext);
+            return id;
+        }, callback);
+    }
+
+    // === ENTREGAS A N8N ===
+
+    /** Reprograma las entregas que quedaran pendientes (por ejemplo, registradas sin red). */
+    public void resumeN8nOutbox() {
+        write(() -> {
+            N8nOutboxWorker.schedule(appContext);
+            return null;
+        }, null);
+    }
+
+    public Future<List<OutboxEntry>> getDeadLetterOutbox(Callback<List<OutboxEntry>> callback) {
+        return read(db::getDeadLetterOutbox, callback);
+    }
+
+    /** Vuelve a intentar las entregas que agotaron los intentos; devuelve cuántas se reactivaron. */
+    public Future<Integer> retryDeadLetterOutbox(Callback<Integer> callback) {
+        return write(() -> {
+            int retried = db.retryDeadLetterOutbox(System.currentTimeMillis());
+            if (retried > 0) N8nOutboxWorker.schedule(appContext);
+            return retried;
+        }, callback);
+    }
+
+    // === ANÁLISIS DE IA PENDIENTES ===
+
+    /** Deja constancia del análisis pedido antes de llamar a la red, por si la app se cierra. */
+    public Future<Void> enqueueAIJob(long readingId, String email, Callback<Void> callback) {
+        return write(() -> {
+            db.enqueueAIJob(readingId, email, System.currentTimeMillis());
+            return null;
+        }, callback);
+    }
+
+    /** Guarda la recomendación si el trabajo sigue pendiente (true si la escribió). */
+    public Future<Boolean> completeAIJob(long readingId, String recommendation, Callback<Boolean> callback) {
+        return write(() -> db.completeAIJob(readingId, recommendation), callback);
+    }
+
+    /** El intento inmediato falló: el trabajo queda en cola y lo reintenta AIAnalysisWorker. */
+    public void retryAIJobLater(long readingId, String error) {
+        write(() -> {
+            db.rescheduleAIJob(readingId, 1, System.currentTimeMillis() + AIAnalysisWorker.backoffDelay(1), error);
+            AIAnalysisWorker.schedule(appContext);
+            return null;
+        }, null);
+    }
+
+    /** Reprograma los trabajos que quedaran pendientes de una ejecución anterior. */
+    public void resumeAIJobs() {
+        write(() -> {
+            AIAnalysisWorker.schedule(appContext);
+            return null;
+        }, null);
+    }
+
+    public Future<Integer> clearAllReadings(String email, Callback<Integer> callback) {
+        return write(() -> db.clearAllReadings(email), callback);
+    }
+
+    private <T> Callable<T> wrap(Callable<T> task, Callback<T> callback) {
+        return () -> {
+            T result = null;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                Log.e(TAG, "Error en operación de base de datos", e);
+            }
+            if (callback != null) {
+                final T delivered = result;
+                mainHandler.post(() -> callback.onResult(delivered));
+            }
+            return result;
+        };
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
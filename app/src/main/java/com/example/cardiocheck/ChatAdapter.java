@@ -9,30 +9,51 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     private static final int VIEW_USER = 1;
     private static final int VIEW_AI = 2;
 
+    // Payload de notifyItemChanged: solo cambia el texto de la burbuja, sin volver a enlazarla entera
+    private static final Object PAYLOAD_TEXT = new Object();
+
     private final List<ChatMessage> data = new ArrayList<>();
+    // Burbujas de la IA que ya recibieron algún fragmento en streaming. Cada pregunta escribe en su
+    // propia burbuja aunque se envíe otra antes de que termine la anterior.
+    private final Set<Integer> streaming = new HashSet<>();
 
-    public void addMessage(ChatMessage m) {
+    /** Añade un mensaje y devuelve su posición, que no cambia: los mensajes solo se añaden al final. */
+    public int addMessage(ChatMessage m) {
         data.add(m);
         notifyItemInserted(data.size() - 1);
+        return data.size() - 1;
     }
 
-    public void replaceLastTyping(String text) {
-        for (int i = data.size() - 1; i >= 0; i--) {
-            ChatMessage m = data.get(i);
-            if (m.getType() == ChatMessage.Type.AI && "Escribiendo...".equals(m.getText())) {
-                data.set(i, new ChatMessage(ChatMessage.Type.AI, text));
-                notifyItemChanged(i);
-                return;
-            }
+    /**
+     * Añade un fragmento de una respuesta en streaming a la burbuja de position. El primero sustituye
+     * a "Escribiendo..."; los siguientes se concatenan y solo se vuelve a pintar el texto.
+     */
+    public void appendToStreaming(int position, String delta) {
+        if (streaming.add(position)) {
+            setText(position, delta);
+            return;
         }
-        addMessage(new ChatMessage(ChatMessage.Type.AI, text));
+        setText(position, data.get(position).getText() + delta);
+    }
+
+    /** Cierra la respuesta de la burbuja de position con el texto definitivo (o el error). */
+    public void finishStreaming(int position, String text) {
+        streaming.remove(position);
+        setText(position, text);
+    }
+
+    private void setText(int position, String text) {
+        data.set(position, new ChatMessage(ChatMessage.Type.AI, text));
+        notifyItemChanged(position, PAYLOAD_TEXT);
     }
 
     @Override
@@ -59,6 +80,16 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         else ((AIVH) holder).tv.setText(m.getText());
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_TEXT) && holder instanceof AIVH) {
+            // Actualización parcial: el mismo ViewHolder, sin animación de cambio
+            ((AIVH) holder).tv.setText(data.get(position).getText());
+            return;
+        }
+        onBindViewHolder(holder, position);
+    }
+
     @Override
     public int getItemCount() { return data.size(); }
 
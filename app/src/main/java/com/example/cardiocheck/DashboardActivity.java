@@ -1,4 +1,5 @@
-package com.example.cardiocheck;import android.app.AlertDialog; import android.content.Intent; import android.os.Bundle; import android.text.TextUtils; import android.util.Log; import android.view.View; import android.widget.Button; import android.widget.ImageButton; import android.widget.LinearLayout; import android.widget.TextView; import android.widget.Toast;import androidx.appcompat.app.AppCompatActivity;import com.android.volley.Request; import com.android.volley.toolbox.JsonObjectRequest; import com.android.volley.toolbox.Volley; import com.example.cardiocheck.models.BloodPressureReading; import com.example.cardiocheck.models.User; import com.example.cardiocheck.utils.ChartHelper; import com.example.cardiocheck.utils.SharedPreferencesHelper; import com.github.mikephil.charting.charts.LineChart; import com.google.android.material.textfield.TextInputEditText;import org.json.JSONException; import org.json.JSONObject;import java.text.SimpleDateFormat; import java.util.Date; import java.util.List; import java.util.Locale;public class DashboardActivity extends AppCompatActivity {private DatabaseHelper db;
+package com.example.cardiocheck;import android.app.AlertDialog; import android.content.Intent; import android.os.Bundle; import android.text.TextUtils; import android.util.Log; import android.view.View; import android.widget.Button; import android.widget.ImageButton; import android.widget.LinearLayout; import android.widget.TextView; import android.widget.Toast;import androidx.appcompat.app.AppCompatActivity; import androidx.core.content.ContextCompat;import com.example.cardiocheck.models.BloodPressureReading; import com.example.cardiocheck.models.ReadingStats; import com.example.cardiocheck.models.User; import com.example.cardiocheck.utils.BloodPressureChartController; import com.example.cardiocheck.utils.DateLabelCache; import com.example.cardiocheck.utils.SharedPreferencesHelper; import com.github.mikephil.charting.charts.LineChart; import com.google.android.material.textfield.TextInputEditText;import java.util.List; import java.util.Locale; import java.util.concurrent.CompletableFuture; import java.util.concurrent.TimeUnit;public class DashboardActivity extends AppCompatActivity {
+    private CardioRepository repository;
     private OpenAIClient aiClient;
     private TextView tvAnalysis;
     private TextView tvUserName;
@@ -9,6 +10,11 @@ package com.example.cardiocheck;import android.app.AlertDialog; import android.c
     private ImageButton btnProfile, btnLogout;
     private LineChart chartBloodPressure;
     private String selectedPeriod = "week";
+    private static final int CHART_MAX_POINTS = 90;
+    // Intervalos de la ventana cargada en la gráfica (ver DatabaseHelper.getReadingsInRange)
+    private long chartFrom;
+    private long chartBucketWidth;
+    private BloodPressureChartController chartController;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -23,11 +29,16 @@ package com.example.cardiocheck;import android.app.AlertDialog; import android.c
 
         initializeViews();
         setupEventListeners();
+        chartController = new BloodPressureChartController(this, chartBloodPressure);
 
-        db = new DatabaseHelper(this);
-        aiClient = new OpenAIClient(this);
+        repository = CardioRepository.getInstance(this);
+        // Las consultas pendientes se cancelan al cerrar la pantalla
+        aiClient = new OpenAIClient(this).bindToLifecycle(this);
 
         loadUserInfo();
+        repository.verifyDailyRollupOnce(SharedPreferencesHelper.getUserEmail(this));
+        repository.resumeAIJobs();
+        repository.resumeN8nOutbox();
         refreshDashboard();
     }
 
@@ -118,7 +129,7 @@ package com.example.cardiocheck;import android.app.AlertDialog; import android.c
                 int diastolic = Integer.parseInt(diaStr);
                 int pulse = Integer.parseInt(pulStr);
 
-                if (systolic < 70 || systolic > 250 || diastolic < 40 || diastolic > 130 || pulse < 40 || pulse > 200) {
+                if (!BloodPressureClassifier.isValidReading(systolic, diastolic, pulse)) {
                     Toast.makeText(this, "Valores fuera de los rangos válidos.", Toast.LENGTH_SHORT).show();
                     return;
                 }
@@ -134,46 +145,64 @@ package com.example.cardiocheck;import android.app.AlertDialog; import android.c
                 newReading.setTimestamp(timestamp);
                 newReading.setAiRecommendation("");
 
-                long id = db.insertReading(newReading);
+                btnSaveReading.setEnabled(false);
+                repository.insertReading(newReading, id -> {
+                    btnSaveReading.setEnabled(true);
+                    if (id == null || id == -1) {
+                        Toast.makeText(this, "No se pudo guardar la medición.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
 
-                if (id == -1) {
-                    Toast.makeText(this, "No se pudo guardar la medición.", Toast.LENGTH_SHORT).show();
-                    return;
-                }
+                    Toast.makeText(this, "Medición guardada con éxito", Toast.LENGTH_SHORT).show();
+                    newReading.setId(id); // la entrega a n8n ya está en la bandeja de salida
 
-                Toast.makeText(this, "Medición guardada con éxito", Toast.LENGTH_SHORT).show();
-                newReading.setId(id);
-                sendDataToN8n(newReading);
+                    // Solo el intervalo de la lectura nueva, no toda la ventana de la gráfica
+                    refreshNewestChartBucket(userEmail, timestamp);
+                    updateLastReading(newReading);
+                    updateStatistics(userEmail);
 
-                inputLayout.setVisibility(View.GONE);
-                summaryLayout.setVisibility(View.VISIBLE);
+                    inputLayout.setVisibility(View.GONE);
+                    summaryLayout.setVisibility(View.VISIBLE);
 
-                tvResultValue.setText(String.format(Locale.getDefault(), "%d/%d mmHg", systolic, diastolic));
-                tvResultPulse.setText(String.format(Locale.getDefault(), "%d bpm", pulse));
+                    tvResultValue.setText(String.format(Locale.getDefault(), "%d/%d mmHg", systolic, diastolic));
+                    tvResultPulse.setText(String.format(Locale.getDefault(), "%d bpm", pulse));
 
-                BloodPressureClassifier.ClassificationResult result = BloodPressureClassifier.classify(this, newReading);
-                tvClassification.setText(result.category);
-                tvClassification.setBackgroundColor(result.color);
+                    BloodPressureClassifier.ClassificationResult result = BloodPressureClassifier.classify(this, newReading);
+                    tvClassification.setText(result.category);
+                    tvClassification.setBackgroundColor(result.color);
+                });
 
                 btnAnalyzeNow.setOnClickListener(an -> {
                     btnAnalyzeNow.setEnabled(false);
                     btnAnalyzeNow.setText("Analizando...");
 
-                    new Thread(() -> {
-                        User currentUser = db.getUserByEmail(userEmail);
-                        String advice = aiClient.getAdviceForSingleReading(newReading, currentUser);
-                        db.updateReadingRecommendation(newReading.getId(), advice);
-
-                        runOnUiThread(() -> {
-                            // --- LÓGICA CORREGIDA ---
-                            // 1. Ocultamos la sección de resumen
-                            summaryLayout.setVisibility(View.GONE);
-                            // 2. Mostramos la nueva sección con el resultado
-                            analysisResultLayout.setVisibility(View.VISIBLE);
-                            // 3. Ponemos el consejo de la IA en el TextView del diálogo
-                            tvAIResult.setText(advice);
-                        });
-                    }).start();
+                    // El análisis queda en cola antes de salir a la red: si falla o la app se cierra,
+                    // AIAnalysisWorker lo completa más tarde
+                    repository.enqueueAIJob(newReading.getId(), userEmail, null);
+                    long deadline = SharedPreferencesHelper.getAIFallbackDeadlineMs(this);
+                    repository.getUserByEmail(userEmail, currentUser -> {
+                        // La pantalla se cerró mientras se leía el perfil: el trabajo ya está en cola
+                        if (isDestroyed()) return;
+                        CompletableFuture<String> ai = aiClient.getAdviceForSingleReading(newReading, currentUser);
+                        // Si la IA tarda más del plazo se muestra el análisis local y luego se sustituye
+                        repository.getLastNumericReadings(userEmail, 10, recent -> LocalAdviceEngine.race(ai,
+                                () -> LocalAdviceEngine.adviceForReading(newReading, recent, currentUser),
+                                deadline, ContextCompat.getMainExecutor(this), (advice, fromAI, error) -> {
+                                    // Solo se guarda una recomendación real, nunca el análisis local
+                                    if (fromAI) repository.completeAIJob(newReading.getId(), advice, null);
+                                    else if (error != null) repository.retryAIJobLater(newReading.getId(), OpenAIClient.userMessage(error));
+                                    if (isDestroyed()) return;
+
+                                    // --- LÓGICA CORREGIDA ---
+                                    // 1. Ocultamos la sección de resumen
+                                    summaryLayout.setVisibility(View.GONE);
+                                    // 2. Mostramos la nueva sección con el resultado
+                                    analysisResultLayout.setVisibility(View.VISIBLE);
+                                    // 3. Ponemos el consejo (local o de la IA) en el TextView del diálogo
+                                    tvAIResult.setText(error == null ? advice : advice + "\n\n" + OpenAIClient.userMessage(error)
+                                            + " El análisis de IA se completará automáticamente cuando haya conexión.");
+                                }));
+                    });
                 });
 
             } catch (Exception e) {
@@ -187,47 +216,13 @@ package com.example.cardiocheck;import android.app.AlertDialog; import android.c
 
         // Botón para finalizar y cerrar el diálogo DESPUÉS de ver el análisis
         btnFinishDialog.setOnClickListener(v -> {
-            refreshDashboard(); // Ahora sí refrescamos la pantalla principal
+            refreshSummary(); // La gráfica ya incluye la lectura; solo falta el análisis nuevo
             dialog.dismiss();
         });
 
         dialog.show();
     }
 
-    private void sendDataToN8n(BloodPressureReading reading) {
-        String webhookUrl = "https://primary-production-7bc2e.up.railway.app/webhook/6b819410-23ab-4ee0-8e4b-2bdb3f2ab28a";
-        String userEmail = SharedPreferencesHelper.getUserEmail(this);
-        User currentUser = db.getUserByEmail(userEmail);
-
-        if (currentUser == null) {
-            Log.e("N8N_ERROR", "No se pudo encontrar al usuario para enviar datos.");
-            return;
-        }
-
-        JSONObject postData = new JSONObject();
-        try {
-            postData.put("systolic", reading.getSystolic());
-            postData.put("diastolic", reading.getDiastolic());
-            postData.put("pulse", reading.getPulse());
-            postData.put("userEmail", userEmail);
-            postData.put("userName", currentUser.getFullName());
-            postData.put("emergencyContact", currentUser.getEmergencyContact());
-        } catch (JSONException e) {
-            e.printStackTrace();
-            return;
-        }
-
-        JsonObjectRequest jsonObjectRequest = new JsonObjectRequest(
-                Request.Method.POST,
-                webhookUrl,
-                postData,
-                response -> Log.d("N8N_SUCCESS", "Datos enviados a n8n con éxito."),
-                error -> Log.e("N8N_ERROR", "Error al enviar datos a n8n: " + error.toString())
-        );
-
-        Volley.newRequestQueue(this).add(jsonObjectRequest);
-    }
-
     private void loadUserInfo() {
         String fullName = SharedPreferencesHelper.getUserFullName(this);
         if (!TextUtils.isEmpty(fullName)) {
@@ -238,16 +233,27 @@ package com.example.cardiocheck;import android.app.AlertDialog; import android.c
     }
 
     private void refreshDashboard() {
+        loadDashboard(true);
+    }
+
+    /** Como refreshDashboard pero sin volver a cargar la gráfica. */
+    private void refreshSummary() {
+        loadDashboard(false);
+    }
+
+    private void loadDashboard(boolean includeChart) {
         String email = SharedPreferencesHelper.getUserEmail(this);
-        List<BloodPressureReading> readings = db.getLastReadings(email, 30);
-        if (readings == null || readings.isEmpty()) {
-            showEmptyState();
-            return;
-        }
-        updateLastReading(readings.get(0));
-        updateStatistics(readings);
-        updateAnalysis(readings);
-        updateChartPlaceholder(selectedPeriod);
+        repository.getLastReadings(email, 1, readings -> {
+            if (isDestroyed()) return;
+            if (readings == null || readings.isEmpty()) {
+                showEmptyState();
+                return;
+            }
+            updateLastReading(readings.get(0));
+            updateStatistics(email);
+            updateAnalysis(readings);
+            if (includeChart) updateChartPlaceholder(selectedPeriod);
+        });
     }
 
     private void showEmptyState() {
@@ -261,16 +267,15 @@ package com.example.cardiocheck;import android.app.AlertDialog; import android.c
         tvWeeklyStatus.setText("Sin datos");
         tvPulseAvg.setText("--");
         tvAnalysis.setText("Aún no hay mediciones. Usa el botón '+' para registrar la primera.");
-        chartBloodPressure.clear();
-        chartBloodPressure.invalidate();
+        chartController.setReadings(null);
     }
 
     private void updateLastReading(BloodPressureReading reading) {
         tvLastSystolic.setText(String.valueOf(reading.getSystolic()));
         tvLastDiastolic.setText(String.valueOf(reading.getDiastolic()));
         tvLastPulse.setText(String.format(Locale.getDefault(), "%d BPM", reading.getPulse()));
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM, HH:mm", Locale.getDefault());
-        tvLastReadingTime.setText(sdf.format(new Date(reading.getTimestamp())));
+        long ts = reading.getTimestamp();
+        tvLastReadingTime.setText(DateLabelCache.DAY_MONTH.format(ts) + ", " + DateLabelCache.time(ts));
         updateStatusBadge(reading.getSystolic(), reading.getDiastolic());
     }
 
@@ -283,25 +288,24 @@ package com.example.cardiocheck;import android.app.AlertDialog; import android.c
         tvStatusBadge.setBackgroundResource(R.drawable.status_badge_normal);
     }
 
-    private void updateStatistics(List<BloodPressureReading> readings) {
-        if (readings.size() < 2) {
+    private void updateStatistics(String email) {
+        // Últimos 7 días naturales desde el resumen diario: como mucho 7 filas, sin recorrer lecturas
+        repository.getRecentDailyStats(email, 7, this::showStatistics);
+    }
+
+    private void showStatistics(ReadingStats stats) {
+        if (isDestroyed()) return;
+        if (stats == null || stats.getCount() < 2) {
             tvWeeklyAvg.setText("--/--");
             tvWeeklyStatus.setText("Pocos datos");
             tvPulseAvg.setText("--");
             return;
         }
-        int count = Math.min(7, readings.size());
-        int totalSys = 0, totalDia = 0, totalPul = 0;
-        for (int i = 0; i < count; i++) {
-            totalSys += readings.get(i).getSystolic();
-            totalDia += readings.get(i).getDiastolic();
-            totalPul += readings.get(i).getPulse();
-        }
-        int avgSys = totalSys / count;
-        int avgDia = totalDia / count;
+        int avgSys = stats.getSystolic().getAvgRounded();
+        int avgDia = stats.getDiastolic().getAvgRounded();
         tvWeeklyAvg.setText(String.format(Locale.getDefault(), "%d/%d", avgSys, avgDia));
-        tvWeeklyStatus.setText(String.format(Locale.getDefault(), "%d mediciones", count));
-        tvPulseAvg.setText(String.valueOf(totalPul / count));
+        tvWeeklyStatus.setText(String.format(Locale.getDefault(), "%d mediciones", stats.getCount()));
+        tvPulseAvg.setText(String.valueOf(stats.getPulse().getAvgRounded()));
         updateWeeklyStatusColor(avgSys, avgDia);
     }
 
@@ -331,9 +335,33 @@ package com.example.cardiocheck;import android.app.AlertDialog; import android.c
 
     private void updateChartPlaceholder(String period) {
         String email = SharedPreferencesHelper.getUserEmail(this);
-        int limit = period.equals("month") ? 30 : (period.equals("quarter") ? 90 : 7);
-        List<BloodPressureReading> readings = db.getLastReadings(email, limit);
-        ChartHelper.setupBloodPressureChart(this, chartBloodPressure, readings);
+        // Ventana de tiempo real (no un número de filas), reducida en SQL a CHART_MAX_POINTS puntos
+        int days = period.equals("month") ? 30 : (period.equals("quarter") ? 90 : 7);
+        long now = System.currentTimeMillis();
+        chartFrom = now - TimeUnit.DAYS.toMillis(days);
+        chartBucketWidth = DatabaseHelper.bucketWidth(chartFrom, now, CHART_MAX_POINTS);
+        repository.getReadingsInRange(email, chartFrom, now, CHART_MAX_POINTS, readings -> {
+            if (isDestroyed()) return;
+            chartController.setReadings(readings);
+        });
+    }
+
+    /**
+     * La gráfica muestra medias por intervalo, así que una lectura nueva no se añade tal cual: se
+     * vuelve a calcular solo la media de su intervalo. Si cae más allá del último intervalo de la
+     * ventana, la ventana se ha desplazado y se recarga entera para no pasar de CHART_MAX_POINTS.
+     */
+    private void refreshNewestChartBucket(String email, long timestamp) {
+        if (chartBucketWidth <= 0 || timestamp < chartFrom
+                || (timestamp - chartFrom) / chartBucketWidth >= CHART_MAX_POINTS) {
+            updateChartPlaceholder(selectedPeriod);
+            return;
+        }
+        long bucketStart = chartFrom + (timestamp - chartFrom) / chartBucketWidth * chartBucketWidth;
+        repository.getReadingsInRange(email, bucketStart, bucketStart + chartBucketWidth - 1, 1, readings -> {
+            if (isDestroyed() || readings.isEmpty()) return;
+            chartController.replaceNewestBucket(readings.get(0), bucketStart);
+        });
     }
 
     private void updateAnalysis(List<BloodPressureReading> readings) {
@@ -3,22 +3,37 @@ package com.example.cardiocheck;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+import android.util.Log;
 
+import com.example.cardiocheck.models.AIJob;
 import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.OutboxEntry;
+import com.example.cardiocheck.models.ReadingStats;
 import com.example.cardiocheck.models.User;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * DatabaseHelper: gestiona usuarios con perfil médico completo y lecturas de presión arterial.
+ * Hay una sola instancia por proceso (getInstance) con write-ahead logging, de modo que todas las
+ * pantallas comparten la conexión y las sentencias precompiladas.
  */
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     private static final String DB_NAME = "cardiocheck.db";
-    private static final int DB_VERSION = 2; // Incrementamos versión para agregar nuevos campos
+    static final int DB_VERSION = 11; // v11: zona horaria del resumen diario
 
     // Tabla usuarios - campos expandidos
     public static final String TABLE_USERS = "users";
@@ -46,8 +61,124 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String R_TIMESTAMP = "timestamp";
     private static final String R_AI = "ai_recommendation";
 
-    public DatabaseHelper(Context context) {
-        super(context, DB_NAME, null, DB_VERSION);
+    // Índice compuesto: todas las consultas de lecturas filtran por email y ordenan por fecha.
+    // Incluye los valores numéricos para que las consultas sin la columna de IA no toquen la tabla.
+    static final String IDX_READINGS_EMAIL_TIMESTAMP = "idx_readings_email_timestamp";
+
+    // Tabla de puntos de control de importación: filas de origen ya procesadas por fichero
+    public static final String TABLE_IMPORT_CHECKPOINTS = "import_checkpoints";
+    private static final String IC_SOURCE = "source_key";
+    private static final String IC_ROWS_DONE = "rows_done";
+    private static final String IC_UPDATED_AT = "updated_at";
+
+    // Resumen diario por usuario (día local en epoch-day). Se mantiene en la misma transacción que
+    // cada escritura de lecturas, así las vistas de semana/mes/trimestre leen como mucho 90 filas.
+    public static final String TABLE_DAILY_ROLLUP = "reading_daily_rollup";
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long MILLIS_PER_HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final String DR_EMAIL = "email";
+    private static final String DR_DAY = "day";
+    private static final String DR_COUNT = "count";
+    private static final String DR_MORNING = "morning_count"; // 6:00–10:59
+    private static final String DR_EVENING = "evening_count"; // 18:00–22:59
+    private static final String DR_ZONE = "zone"; // zona horaria con la que se calculó el día local
+    private static final String[] DR_METRICS = {"sys", "dia", "pulse"};
+
+    // Caché de respuestas de IA: clave = hash del prompt normalizado; LRU por último acceso
+    public static final String TABLE_AI_CACHE = "ai_response_cache";
+    private static final String AC_HASH = "prompt_hash";
+    private static final String AC_RESPONSE = "response";
+    private static final String AC_CREATED_AT = "created_at";
+    private static final String AC_LAST_ACCESS = "last_access";
+
+    // Cola de análisis de IA pendientes: una fila por lectura hasta que hay recomendación
+    public static final String TABLE_AI_JOBS = "ai_jobs";
+    private static final String AJ_READING_ID = "reading_id";
+    private static final String AJ_EMAIL = "email";
+    private static final String AJ_ATTEMPTS = "attempts";
+    private static final String AJ_NEXT_ATTEMPT_AT = "next_attempt_at";
+    private static final String AJ_LAST_ERROR = "last_error";
+
+    // Bandeja de salida hacia el webhook de n8n: se escribe en la misma transacción que la lectura y
+    // se vacía en orden de id; las entregas que agotan los intentos quedan como "dead letters"
+    public static final String TABLE_N8N_OUTBOX = "n8n_outbox";
+    public static final String VIEW_N8N_DEAD_LETTERS = "n8n_outbox_dead_letters";
+    private static final String OB_ID = "id";
+    private static final String OB_KEY = "idempotency_key";
+    private static final String OB_READING_ID = "reading_id";
+    private static final String OB_EMAIL = "email";
+    private static final String OB_ATTEMPTS = "attempts";
+    private static final String OB_NEXT_ATTEMPT_AT = "next_attempt_at";
+    private static final String OB_CREATED_AT = "created_at";
+    private static final String OB_LAST_ERROR = "last_error";
+    private static final String OB_DEAD = "dead";
+    private static final String[] OUTBOX_COLUMNS = {OB_ID, OB_READING_ID, OB_EMAIL, OB_KEY, OB_ATTEMPTS,
+            OB_NEXT_ATTEMPT_AT, OB_CREATED_AT, OB_LAST_ERROR};
+
+    // Proyección "numérica": todo menos ai_recommendation (gráficas, estadísticas, PDF)
+    static final String[] NUMERIC_COLUMNS = {R_ID, R_EMAIL, R_SYSTOLIC, R_DIASTOLIC, R_PULSE, R_TIMESTAMP};
+
+    // --- Consultas de lecturas ---
+    // Package-private para que DatabaseHelperQueryPlanTest compruebe el plan del SQL que se ejecuta
+    static final String READINGS_BY_EMAIL = R_EMAIL + "=?";
+    static final String READING_BY_ID_QUERY =
+            "SELECT * FROM " + TABLE_READINGS + " WHERE " + R_ID + "=?";
+    static final String READING_STATS_QUERY = "SELECT COUNT(*), " +
+            aggregateColumns(R_SYSTOLIC) + ", " +
+            aggregateColumns(R_DIASTOLIC) + ", " +
+            aggregateColumns(R_PULSE) +
+            " FROM " + TABLE_READINGS +
+            " WHERE " + R_EMAIL + "=? AND " + R_TIMESTAMP + ">=? AND " + R_TIMESTAMP + "<=?" +
+            " GROUP BY " + R_EMAIL;
+    static final String READING_TOTALS_QUERY = "SELECT COUNT(*), " +
+            aggregateColumns(R_SYSTOLIC) + ", " +
+            aggregateColumns(R_DIASTOLIC) + ", " +
+            aggregateColumns(R_PULSE) +
+            " FROM " + TABLE_READINGS + " WHERE " + READINGS_BY_EMAIL;
+
+    private static final String TAG = "DatabaseHelper";
+
+    private static DatabaseHelper instance;
+
+    // Sentencias precompiladas de las escrituras más frecuentes (se compilan al primer uso)
+    private SQLiteStatement insertReadingStatement;
+    private SQLiteStatement readingExistsStatement;
+    private SQLiteStatement updateRecommendationStatement;
+    private SQLiteStatement outboxInsertStatement;
+    private SQLiteStatement aiJobInsertStatement;
+    private SQLiteStatement rollupInsertStatement;
+    private SQLiteStatement rollupUpdateStatement;
+
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext(), DB_NAME);
+        }
+        return instance;
+    }
+
+    // Permite abrir una base de datos con otro nombre (o en memoria con null) en las pruebas
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DB_VERSION);
+        setWriteAheadLoggingEnabled(true); // lectores concurrentes mientras el único escritor trabaja
+    }
+
+    @Override
+    public synchronized void close() {
+        if (insertReadingStatement != null) insertReadingStatement.close();
+        if (readingExistsStatement != null) readingExistsStatement.close();
+        if (updateRecommendationStatement != null) updateRecommendationStatement.close();
+        if (outboxInsertStatement != null) outboxInsertStatement.close();
+        if (aiJobInsertStatement != null) aiJobInsertStatement.close();
+        if (rollupInsertStatement != null) rollupInsertStatement.close();
+        if (rollupUpdateStatement != null) rollupUpdateStatement.close();
+        insertReadingStatement = null;
+        readingExistsStatement = null;
+        updateRecommendationStatement = null;
+        outboxInsertStatement = null;
+        aiJobInsertStatement = null;
+        rollupInsertStatement = null;
+        rollupUpdateStatement = null;
+        super.close();
     }
 
     @Override
@@ -78,6 +209,77 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         db.execSQL(createUsers);
         db.execSQL(createReadings);
+        createReadingsIndex(db);
+        createImportCheckpointsTable(db);
+        createDailyRollupTable(db);
+        createAICacheTable(db);
+        createAIJobsTable(db);
+        createN8nOutboxTable(db);
+    }
+
+    private void createN8nOutboxTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_N8N_OUTBOX + " (" +
+                OB_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                OB_KEY + " TEXT NOT NULL UNIQUE, " +
+                OB_READING_ID + " INTEGER NOT NULL, " +
+                OB_EMAIL + " TEXT NOT NULL, " +
+                OB_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, " +
+                OB_NEXT_ATTEMPT_AT + " INTEGER NOT NULL, " +
+                OB_CREATED_AT + " INTEGER NOT NULL, " +
+                OB_LAST_ERROR + " TEXT, " +
+                OB_DEAD + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_n8n_outbox_dead_id ON " + TABLE_N8N_OUTBOX + " (" + OB_DEAD + ", " + OB_ID + ")");
+        db.execSQL("CREATE VIEW IF NOT EXISTS " + VIEW_N8N_DEAD_LETTERS + " AS SELECT " +
+                TextUtils.join(", ", OUTBOX_COLUMNS) + " FROM " + TABLE_N8N_OUTBOX + " WHERE " + OB_DEAD + "=1");
+    }
+
+    private void createAIJobsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_AI_JOBS + " (" +
+                AJ_READING_ID + " INTEGER PRIMARY KEY, " +
+                AJ_EMAIL + " TEXT NOT NULL, " +
+                AJ_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, " +
+                AJ_NEXT_ATTEMPT_AT + " INTEGER NOT NULL, " +
+                AJ_LAST_ERROR + " TEXT)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_ai_jobs_next_attempt ON " + TABLE_AI_JOBS + " (" + AJ_NEXT_ATTEMPT_AT + ")");
+    }
+
+    private void createAICacheTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_AI_CACHE + " (" +
+                AC_HASH + " TEXT PRIMARY KEY, " +
+                AC_RESPONSE + " TEXT NOT NULL, " +
+                AC_CREATED_AT + " INTEGER NOT NULL, " +
+                AC_LAST_ACCESS + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_ai_cache_last_access ON " + TABLE_AI_CACHE + " (" + AC_LAST_ACCESS + ")");
+    }
+
+    private void createDailyRollupTable(SQLiteDatabase db) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS " + TABLE_DAILY_ROLLUP + " (" +
+                DR_EMAIL + " TEXT NOT NULL, " +
+                DR_DAY + " INTEGER NOT NULL, " +
+                DR_COUNT + " INTEGER NOT NULL, ");
+        for (String m : DR_METRICS) {
+            sql.append(m).append("_sum INTEGER NOT NULL, ")
+                    .append(m).append("_sumsq INTEGER NOT NULL, ")
+                    .append(m).append("_min INTEGER NOT NULL, ")
+                    .append(m).append("_max INTEGER NOT NULL, ");
+        }
+        sql.append(DR_MORNING).append(" INTEGER NOT NULL, ")
+                .append(DR_EVENING).append(" INTEGER NOT NULL, ")
+                .append(DR_ZONE).append(" TEXT NOT NULL DEFAULT '', ")
+                .append("PRIMARY KEY (").append(DR_EMAIL).append(", ").append(DR_DAY).append("))");
+        db.execSQL(sql.toString());
+    }
+
+    private void createImportCheckpointsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_IMPORT_CHECKPOINTS + " (" +
+                IC_SOURCE + " TEXT PRIMARY KEY, " +
+                IC_ROWS_DONE + " INTEGER NOT NULL, " +
+                IC_UPDATED_AT + " INTEGER NOT NULL)");
+    }
+
+    private void createReadingsIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + IDX_READINGS_EMAIL_TIMESTAMP + " ON " + TABLE_READINGS +
+                " (" + R_EMAIL + ", " + R_TIMESTAMP + " DESC, " + R_SYSTOLIC + ", " + R_DIASTOLIC + ", " + R_PULSE + ")");
     }
 
     @Override
@@ -98,6 +300,46 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 onCreate(db);
             }
         }
+        if (oldVersion < 4) {
+            // v3 creaba el índice sin columnas numéricas; se recrea como índice de cobertura
+            db.execSQL("DROP INDEX IF EXISTS " + IDX_READINGS_EMAIL_TIMESTAMP);
+            createReadingsIndex(db);
+        }
+        if (oldVersion < 5) {
+            createImportCheckpointsTable(db);
+        }
+        if (oldVersion < 6) {
+            createDailyRollupTable(db);
+            rebuildDailyRollup(db, null);
+        }
+        if (oldVersion < 7) {
+            createAICacheTable(db);
+        }
+        if (oldVersion < 8) {
+            createAIJobsTable(db);
+            // Última vez: antes de la cola se guardaban mensajes de error como recomendación
+            ContentValues cv = new ContentValues();
+            cv.putNull(R_AI);
+            db.update(TABLE_READINGS, cv,
+                    R_AI + " LIKE 'No hay una clave de OpenAI%' OR " +
+                            R_AI + " LIKE 'Error de OpenAI:%' OR " +
+                            R_AI + " LIKE 'No se pudo obtener%' OR " +
+                            R_AI + " LIKE 'No se pudo cargar el perfil%' OR " +
+                            R_AI + " LIKE 'No se obtuvo una respuesta válida%' OR " +
+                            R_AI + " LIKE 'Faltan datos para el análisis%'", null);
+        }
+        if (oldVersion < 9) {
+            createN8nOutboxTable(db);
+        }
+        if (oldVersion < 10) {
+            // Las claves "reading-<id>" se repetían entre instalaciones y n8n las descartaba como duplicadas
+            db.execSQL("UPDATE " + TABLE_N8N_OUTBOX + " SET " + OB_KEY + "=" + OB_KEY +
+                    " || '-' || lower(hex(randomblob(16)))");
+        }
+        if (oldVersion >= 6 && oldVersion < 11) {
+            // Las filas sin zona no cuadran con ninguna: verifyDailyRollupOnce las recalcula
+            db.execSQL("ALTER TABLE " + TABLE_DAILY_ROLLUP + " ADD COLUMN " + DR_ZONE + " TEXT NOT NULL DEFAULT ''");
+        }
     }
 
     // === MÉTODOS DE USUARIOS ===
@@ -198,23 +440,146 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     // === MÉTODOS DE LECTURAS ===
 
-    public long insertReading(BloodPressureReading r) {
+    public synchronized long insertReading(BloodPressureReading r) {
         SQLiteDatabase db = getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put(R_EMAIL, r.getEmail());
-        cv.put(R_SYSTOLIC, r.getSystolic());
-        cv.put(R_DIASTOLIC, r.getDiastolic());
-        cv.put(R_PULSE, r.getPulse());
-        cv.put(R_TIMESTAMP, r.getTimestamp());
-        cv.put(R_AI, r.getAiRecommendation());
-        return db.insert(TABLE_READINGS, null, cv);
+        db.beginTransaction();
+        try {
+            long id = executeInsert(insertReadingStatement(), r);
+            if (id != -1) {
+                addToDailyRollup(db, r);
+                // Si la transacción se confirma, la entrega a n8n ya no se puede perder
+                insertOutbox(id, r.getEmail(), System.currentTimeMillis());
+            }
+            db.setTransactionSuccessful();
+            return id;
+        } catch (SQLException e) {
+            // Mismo contrato que SQLiteDatabase.insert: -1 si falla
+            Log.e(TAG, "Error al insertar lectura", e);
+            return -1;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Inserta un lote de lecturas en una única transacción reutilizando la sentencia precompilada y,
+     * en la misma transacción, registra cuántas filas del origen se han procesado. Si la app muere a
+     * mitad de importación, el punto de control refleja exactamente lo que quedó guardado. Las
+     * lecturas sin recomendación quedan en la cola de análisis de IA en esa misma transacción.
+     * Se omiten las lecturas de un instante que el usuario ya tiene guardado; devuelve las insertadas.
+     */
+    public synchronized int insertReadingsBatch(List<BloodPressureReading> batch, String checkpointKey, long rowsDone) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement st = insertReadingStatement();
+        long now = System.currentTimeMillis();
+        int inserted = 0;
+        db.beginTransaction();
+        try {
+            for (BloodPressureReading r : batch) {
+                if (readingExists(r.getEmail(), r.getTimestamp())) continue; // fichero ya importado
+                long id = executeInsert(st, r);
+                if (id != -1) {
+                    addToDailyRollup(db, r);
+                    // Sin recomendación: AIAnalysisWorker las analiza por lotes
+                    if (TextUtils.isEmpty(r.getAiRecommendation())) insertAIJob(id, r.getEmail(), now);
+                    inserted++;
+                }
+            }
+            if (checkpointKey != null) {
+                ContentValues cv = new ContentValues();
+                cv.put(IC_SOURCE, checkpointKey);
+                cv.put(IC_ROWS_DONE, rowsDone);
+                cv.put(IC_UPDATED_AT, System.currentTimeMillis());
+                db.insertWithOnConflict(TABLE_IMPORT_CHECKPOINTS, null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return inserted;
+    }
+
+    /** Filas del origen ya importadas (0 si la importación no se había empezado). */
+    public long getImportCheckpoint(String checkpointKey) {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor c = db.query(TABLE_IMPORT_CHECKPOINTS, new String[]{IC_ROWS_DONE}, IC_SOURCE + "=?",
+                new String[]{checkpointKey}, null, null, null);
+        try {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        } finally {
+            c.close();
+        }
+    }
+
+    public void clearImportCheckpoint(String checkpointKey) {
+        getWritableDatabase().delete(TABLE_IMPORT_CHECKPOINTS, IC_SOURCE + "=?", new String[]{checkpointKey});
+    }
+
+    private SQLiteStatement insertReadingStatement() {
+        if (insertReadingStatement == null) {
+            insertReadingStatement = getWritableDatabase().compileStatement(
+                    "INSERT INTO " + TABLE_READINGS + " (" + R_EMAIL + ", " + R_SYSTOLIC + ", " + R_DIASTOLIC + ", " +
+                            R_PULSE + ", " + R_TIMESTAMP + ", " + R_AI + ") VALUES (?, ?, ?, ?, ?, ?)");
+        }
+        return insertReadingStatement;
+    }
+
+    // Consulta precompilada sobre el índice (email, timestamp)
+    private boolean readingExists(String email, long timestamp) {
+        if (readingExistsStatement == null) {
+            readingExistsStatement = getWritableDatabase().compileStatement(
+                    "SELECT COUNT(*) FROM " + TABLE_READINGS + " WHERE " + R_EMAIL + "=? AND " + R_TIMESTAMP + "=?");
+        }
+        SQLiteStatement st = readingExistsStatement;
+        st.clearBindings();
+        st.bindString(1, email);
+        st.bindLong(2, timestamp);
+        return st.simpleQueryForLong() > 0;
+    }
+
+    private static long executeInsert(SQLiteStatement st, BloodPressureReading r) {
+        st.clearBindings();
+        st.bindString(1, r.getEmail());
+        st.bindLong(2, r.getSystolic());
+        st.bindLong(3, r.getDiastolic());
+        st.bindLong(4, r.getPulse());
+        st.bindLong(5, r.getTimestamp());
+        if (r.getAiRecommendation() != null) st.bindString(6, r.getAiRecommendation());
+        else st.bindNull(6);
+        return st.executeInsert();
     }
 
     public List<BloodPressureReading> getLastReadings(String email, int limit) {
+        return queryReadings(null, email, String.valueOf(limit));
+    }
+
+    public List<BloodPressureReading> getAllReadings(String email) {
+        return queryReadings(null, email, null);
+    }
+
+    /**
+     * Igual que getLastReadings pero sin leer ai_recommendation: se resuelve solo con el índice
+     * y el CursorWindow admite muchas más filas por página. getAiRecommendation() queda en null.
+     */
+    public List<BloodPressureReading> getLastNumericReadings(String email, int limit) {
+        return queryReadings(NUMERIC_COLUMNS, email, String.valueOf(limit));
+    }
+
+    public List<BloodPressureReading> getAllNumericReadings(String email) {
+        return queryReadings(NUMERIC_COLUMNS, email, null);
+    }
+
+    /**
+     * Paginación por clave (keyset): devuelve hasta pageSize lecturas estrictamente anteriores a
+     * (beforeTimestamp, beforeId) en orden (timestamp DESC, id DESC). Para la primera página se pasa
+     * beforeTimestamp = Long.MAX_VALUE. Cada página busca en el índice desde el cursor, así que su
+     * coste no depende de cuántas páginas se hayan leído (DatabaseHelperQueryPlanTest lo comprueba).
+     */
+    public List<BloodPressureReading> getReadingsPage(String email, long beforeTimestamp, long beforeId, int pageSize) {
         SQLiteDatabase db = getReadableDatabase();
         List<BloodPressureReading> result = new ArrayList<>();
-        Cursor c = db.query(TABLE_READINGS, null, R_EMAIL + "=?", new String[]{email},
-                null, null, R_TIMESTAMP + " DESC", String.valueOf(limit));
+        String ts = String.valueOf(beforeTimestamp);
+        Cursor c = db.rawQuery(readingsPageQuery(pageSize), new String[]{email, ts, ts, String.valueOf(beforeId)});
         try {
             while (c.moveToNext()) {
                 result.add(mapReading(c));
@@ -223,11 +588,36 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return result;
     }
 
-    public List<BloodPressureReading> getAllReadings(String email) {
+    /**
+     * Lecturas entre from y to (ambos inclusive) reducidas por SQLite a como mucho maxPoints
+     * puntos: el rango se divide en maxPoints intervalos de igual duración y cada intervalo con datos
+     * devuelve la media de sus lecturas (id de la más reciente, timestamp medio). Si hay menos
+     * lecturas que intervalos, cada una cae en el suyo y se devuelve tal cual. Orden: más reciente
+     * primero, como el resto de consultas. Se resuelve con el índice de cobertura.
+     */
+    public List<BloodPressureReading> getReadingsInRange(String email, long from, long to, int maxPoints) {
+        SQLiteDatabase db = getReadableDatabase();
+        List<BloodPressureReading> result = new ArrayList<>();
+        if (to < from || maxPoints <= 0) return result;
+        long bucketWidth = bucketWidth(from, to, maxPoints);
+        Cursor c = db.rawQuery(readingsInRangeQuery(from, to, bucketWidth), new String[]{email});
+        try {
+            while (c.moveToNext()) {
+                result.add(mapReading(c));
+            }
+        } finally { c.close(); }
+        return result;
+    }
+
+    /** Duración de cada intervalo de getReadingsInRange; el intervalo i empieza en from + i * ancho. */
+    public static long bucketWidth(long from, long to, int maxPoints) {
+        return Math.max(1, (to - from) / maxPoints + 1);
+    }
+
+    private List<BloodPressureReading> queryReadings(String[] columns, String email, String limit) {
         SQLiteDatabase db = getReadableDatabase();
         List<BloodPressureReading> result = new ArrayList<>();
-        Cursor c = db.query(TABLE_READINGS, null, R_EMAIL + "=?", new String[]{email},
-                null, null, R_TIMESTAMP + " DESC");
+        Cursor c = db.rawQuery(readingsQuery(columns, limit), new String[]{email});
         try {
             while (c.moveToNext()) {
                 result.add(mapReading(c));
@@ -236,18 +626,114 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return result;
     }
 
+    /** Lecturas de un email de la más reciente a la más antigua (columns null: todas). */
+    static String readingsQuery(String[] columns, String limit) {
+        return SQLiteQueryBuilder.buildQueryString(false, TABLE_READINGS, columns, READINGS_BY_EMAIL,
+                null, null, R_TIMESTAMP + " DESC", limit);
+    }
+
+    /** Página de getReadingsPage; parámetros: email, timestamp, timestamp, id. */
+    static String readingsPageQuery(int pageSize) {
+        // Equivale a (timestamp, id) < (?, ?); los row values no existen en el SQLite de API 24. La
+        // cota timestamp<=? es redundante pero es la que deja a SQLite buscar en el índice desde el
+        // cursor; sin ella solo usa email=? y recorre y ordena todo lo posterior en cada página.
+        String where = R_EMAIL + "=? AND " + R_TIMESTAMP + "<=? AND (" + R_TIMESTAMP + "<? OR " + R_ID + "<?)";
+        return SQLiteQueryBuilder.buildQueryString(false, TABLE_READINGS, null, where,
+                null, null, R_TIMESTAMP + " DESC, " + R_ID + " DESC", String.valueOf(pageSize));
+    }
+
+    /** Reducción por intervalos de getReadingsInRange; parámetro: email. */
+    static String readingsInRangeQuery(long from, long to, long bucketWidth) {
+        // from y bucketWidth son números calculados aquí; se incrustan para que la división sea entera
+        return "SELECT MAX(" + R_ID + ") AS " + R_ID + ", " + R_EMAIL + ", " +
+                "CAST(ROUND(AVG(" + R_SYSTOLIC + ")) AS INTEGER) AS " + R_SYSTOLIC + ", " +
+                "CAST(ROUND(AVG(" + R_DIASTOLIC + ")) AS INTEGER) AS " + R_DIASTOLIC + ", " +
+                "CAST(ROUND(AVG(" + R_PULSE + ")) AS INTEGER) AS " + R_PULSE + ", " +
+                "CAST(AVG(" + R_TIMESTAMP + ") AS INTEGER) AS " + R_TIMESTAMP +
+                " FROM " + TABLE_READINGS +
+                " WHERE " + R_EMAIL + "=? AND " + R_TIMESTAMP + ">=" + from + " AND " + R_TIMESTAMP + "<=" + to +
+                " GROUP BY (" + R_TIMESTAMP + "-" + from + ")/" + bucketWidth +
+                " ORDER BY " + R_TIMESTAMP + " DESC";
+    }
+
+    /**
+     * Estadísticas de sistólica, diastólica y pulso entre windowStart y windowEnd (ambos inclusive),
+     * calculadas por SQLite en una sola pasada sin materializar lecturas ni leer la columna de IA.
+     */
+    public ReadingStats getReadingStats(String email, long windowStart, long windowEnd) {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor c = db.rawQuery(READING_STATS_QUERY, new String[]{email, String.valueOf(windowStart), String.valueOf(windowEnd)});
+        try {
+            if (!c.moveToFirst()) {
+                return ReadingStats.empty();
+            }
+            int count = c.getInt(0);
+            return new ReadingStats(count,
+                    mapMetric(c, 1, count),
+                    mapMetric(c, 5, count),
+                    mapMetric(c, 9, count));
+        } finally {
+            c.close();
+        }
+    }
+
+    private static String aggregateColumns(String column) {
+        return "SUM(" + column + "), SUM(" + column + "*" + column + "), MIN(" + column + "), MAX(" + column + ")";
+    }
+
+    private static ReadingStats.Metric mapMetric(Cursor c, int firstColumn, int count) {
+        return ReadingStats.Metric.fromSums(count,
+                c.getDouble(firstColumn), c.getDouble(firstColumn + 1),
+                c.getInt(firstColumn + 2), c.getInt(firstColumn + 3));
+    }
+
     // --- ESTA ES LA ÚNICA CORRECCIÓN ---
     // He renombrado el método para evitar el error.
-    public void updateReadingRecommendation(long readingId, String recommendation) {
+    public synchronized void updateReadingRecommendation(long readingId, String recommendation) {
+        updateReadingRecommendationRow(readingId, recommendation);
+    }
+
+    private int updateReadingRecommendationRow(long readingId, String recommendation) {
+        if (updateRecommendationStatement == null) {
+            updateRecommendationStatement = getWritableDatabase().compileStatement(
+                    "UPDATE " + TABLE_READINGS + " SET " + R_AI + "=? WHERE " + R_ID + "=?");
+        }
+        SQLiteStatement st = updateRecommendationStatement;
+        st.clearBindings();
+        if (recommendation != null) st.bindString(1, recommendation);
+        else st.bindNull(1);
+        st.bindLong(2, readingId);
+        return st.executeUpdateDelete();
+    }
+
+    /**
+     * Guarda varias recomendaciones (id de lectura → texto) en una sola transacción y cierra los
+     * análisis pendientes de esas lecturas. Devuelve cuántas lecturas se actualizaron.
+     */
+    public synchronized int updateReadingRecommendations(Map<Long, String> recommendations) {
+        if (recommendations.isEmpty()) return 0;
         SQLiteDatabase db = getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put(R_AI, recommendation);
-        db.update(TABLE_READINGS, cv, R_ID + "=?", new String[]{String.valueOf(readingId)});
+        SQLiteStatement deleteJob = db.compileStatement(
+                "DELETE FROM " + TABLE_AI_JOBS + " WHERE " + AJ_READING_ID + "=?");
+        int updated = 0;
+        db.beginTransaction();
+        try {
+            for (Map.Entry<Long, String> entry : recommendations.entrySet()) {
+                updated += updateReadingRecommendationRow(entry.getKey(), entry.getValue());
+                deleteJob.bindLong(1, entry.getKey());
+                deleteJob.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+            return updated;
+        } finally {
+            db.endTransaction();
+            deleteJob.close();
+        }
     }
 
     public BloodPressureReading getReadingById(long id) {
         SQLiteDatabase db = getReadableDatabase();
-        Cursor c = db.query(TABLE_READINGS, null, R_ID + "=?", new String[]{String.valueOf(id)}, null, null, null);
+        Cursor c = db.rawQuery(READING_BY_ID_QUERY, new String[]{String.valueOf(id)});
         try {
             if (c.moveToFirst()) {
                 return mapReading(c);
@@ -258,17 +744,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
-    public void clearInvalidAIRecommendations() {
-        SQLiteDatabase db = getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put(R_AI, "");
-        db.update(TABLE_READINGS, cv,
-                R_AI + " LIKE '%clave de openai%' OR " +
-                        R_AI + " LIKE '%configura tu clave%' OR " +
-                        R_AI + " LIKE '%no hay una clave de openai%' OR " +
-                        R_AI + " LIKE '%ingresa tu clave de openai%'", null);
-    }
-
     private BloodPressureReading mapReading(Cursor c) {
         BloodPressureReading r = new BloodPressureReading();
         r.setId(c.getLong(c.getColumnIndexOrThrow(R_ID)));
@@ -277,12 +752,462 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         r.setDiastolic(c.getInt(c.getColumnIndexOrThrow(R_DIASTOLIC)));
         r.setPulse(c.getInt(c.getColumnIndexOrThrow(R_PULSE)));
         r.setTimestamp(c.getLong(c.getColumnIndexOrThrow(R_TIMESTAMP)));
-        r.setAiRecommendation(c.getString(c.getColumnIndexOrThrow(R_AI)));
+        int aiIndex = c.getColumnIndex(R_AI); // ausente en las consultas numéricas
+        if (aiIndex >= 0) {
+            r.setAiRecommendation(c.getString(aiIndex));
+        }
         return r;
     }
 
-    public int clearAllReadings(String userEmail) {
+    public synchronized int clearAllReadings(String userEmail) {
         SQLiteDatabase db = getWritableDatabase();
-        return db.delete(TABLE_READINGS, R_EMAIL + "=?", new String[]{userEmail});
+        db.beginTransaction();
+        try {
+            int deleted = db.delete(TABLE_READINGS, READINGS_BY_EMAIL, new String[]{userEmail});
+            db.delete(TABLE_DAILY_ROLLUP, DR_EMAIL + "=?", new String[]{userEmail});
+            db.delete(TABLE_AI_JOBS, AJ_EMAIL + "=?", new String[]{userEmail});
+            db.delete(TABLE_N8N_OUTBOX, OB_EMAIL + "=?", new String[]{userEmail});
+            db.setTransactionSuccessful();
+            return deleted;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // === COLA DE ANÁLISIS DE IA ===
+
+    /** Encola el análisis de una lectura; si ya estaba pendiente no cambia nada. */
+    public void enqueueAIJob(long readingId, String email, long now) {
+        ContentValues values = new ContentValues();
+        values.put(AJ_READING_ID, readingId);
+        values.put(AJ_EMAIL, email);
+        values.put(AJ_ATTEMPTS, 0);
+        values.put(AJ_NEXT_ATTEMPT_AT, now);
+        getWritableDatabase().insertWithOnConflict(TABLE_AI_JOBS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    // Versión precompilada para las importaciones masivas, dentro de su transacción
+    private void insertAIJob(long readingId, String email, long now) {
+        if (aiJobInsertStatement == null) {
+            aiJobInsertStatement = getWritableDatabase().compileStatement(
+                    "INSERT OR IGNORE INTO " + TABLE_AI_JOBS + " (" + AJ_READING_ID + ", " + AJ_EMAIL + ", " +
+                            AJ_ATTEMPTS + ", " + AJ_NEXT_ATTEMPT_AT + ") VALUES (?, ?, 0, ?)");
+        }
+        SQLiteStatement st = aiJobInsertStatement;
+        st.clearBindings();
+        st.bindLong(1, readingId);
+        st.bindString(2, email);
+        st.bindLong(3, now);
+        st.executeInsert();
+    }
+
+    /** Trabajos cuyo siguiente intento ya toca, los más antiguos primero. */
+    public List<AIJob> getDueAIJobs(long now, int limit) {
+        List<AIJob> jobs = new ArrayList<>();
+        Cursor c = getReadableDatabase().query(TABLE_AI_JOBS,
+                new String[]{AJ_READING_ID, AJ_EMAIL, AJ_ATTEMPTS},
+                AJ_NEXT_ATTEMPT_AT + "<=?", new String[]{String.valueOf(now)},
+                null, null, AJ_NEXT_ATTEMPT_AT + " ASC", String.valueOf(limit));
+        try {
+            while (c.moveToNext()) {
+                jobs.add(new AIJob(c.getLong(0), c.getString(1), c.getInt(2)));
+            }
+        } finally {
+            c.close();
+        }
+        return jobs;
+    }
+
+    /** Momento del próximo intento pendiente, o -1 si la cola está vacía. */
+    public long getNextAIJobTime() {
+        Cursor c = getReadableDatabase().rawQuery(
+                "SELECT MIN(" + AJ_NEXT_ATTEMPT_AT + ") FROM " + TABLE_AI_JOBS, null);
+        try {
+            return c.moveToFirst() && !c.isNull(0) ? c.getLong(0) : -1;
+        } finally {
+            c.close();
+        }
+    }
+
+    /** Menor número de intentos fallidos entre los trabajos pendientes (0 si no hay ninguno). */
+    public int getMinPendingAIJobAttempts() {
+        Cursor c = getReadableDatabase().rawQuery(
+                "SELECT MIN(" + AJ_ATTEMPTS + ") FROM " + TABLE_AI_JOBS, null);
+        try {
+            return c.moveToFirst() && !c.isNull(0) ? c.getInt(0) : 0;
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Guarda la recomendación y cierra el trabajo en una transacción. Es idempotente: si el trabajo
+     * ya se completó (o se borró la lectura) no escribe nada y devuelve false.
+     */
+    public synchronized boolean completeAIJob(long readingId, String recommendation) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int removed = db.delete(TABLE_AI_JOBS, AJ_READING_ID + "=?", new String[]{String.valueOf(readingId)});
+            if (removed == 0) return false;
+            updateReadingRecommendation(readingId, recommendation);
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Registra un intento fallido y aplaza el siguiente hasta nextAttemptAt. */
+    public void rescheduleAIJob(long readingId, int attempts, long nextAttemptAt, String error) {
+        ContentValues values = new ContentValues();
+        values.put(AJ_ATTEMPTS, attempts);
+        values.put(AJ_NEXT_ATTEMPT_AT, nextAttemptAt);
+        values.put(AJ_LAST_ERROR, error);
+        getWritableDatabase().update(TABLE_AI_JOBS, values, AJ_READING_ID + "=?", new String[]{String.valueOf(readingId)});
+    }
+
+    /** Abandona un trabajo (demasiados intentos o lectura inexistente); la lectura queda sin recomendación. */
+    public void deleteAIJob(long readingId) {
+        getWritableDatabase().delete(TABLE_AI_JOBS, AJ_READING_ID + "=?", new String[]{String.valueOf(readingId)});
+    }
+
+    // === BANDEJA DE SALIDA HACIA N8N ===
+
+    /**
+     * Clave de idempotencia de la entrega de una lectura; n8n la recibe en cabecera y cuerpo. El id
+     * de la lectura solo es único en esta base de datos (cada instalación empieza en 1), así que se
+     * añade un UUID: n8n recuerda las claves de todos los móviles.
+     */
+    public static String outboxKey(long readingId) {
+        return "reading-" + readingId + "-" + UUID.randomUUID();
+    }
+
+    private void insertOutbox(long readingId, String email, long now) {
+        if (outboxInsertStatement == null) {
+            outboxInsertStatement = getWritableDatabase().compileStatement(
+                    "INSERT OR IGNORE INTO " + TABLE_N8N_OUTBOX + " (" + OB_KEY + ", " + OB_READING_ID + ", " +
+                            OB_EMAIL + ", " + OB_NEXT_ATTEMPT_AT + ", " + OB_CREATED_AT + ") VALUES (?, ?, ?, ?, ?)");
+        }
+        SQLiteStatement st = outboxInsertStatement;
+        st.clearBindings();
+        st.bindString(1, outboxKey(readingId));
+        st.bindLong(2, readingId);
+        st.bindString(3, email);
+        st.bindLong(4, now);
+        st.bindLong(5, now);
+        st.executeInsert();
+    }
+
+    /** Entregas pendientes en el orden en que se registraron las lecturas. */
+    public List<OutboxEntry> getPendingOutbox(int limit) {
+        return queryOutbox(TABLE_N8N_OUTBOX, OB_DEAD + "=0", String.valueOf(limit));
+    }
+
+    /** Entregas que agotaron los intentos (vista n8n_outbox_dead_letters). */
+    public List<OutboxEntry> getDeadLetterOutbox() {
+        return queryOutbox(VIEW_N8N_DEAD_LETTERS, null, null);
+    }
+
+    private List<OutboxEntry> queryOutbox(String table, String where, String limit) {
+        List<OutboxEntry> entries = new ArrayList<>();
+        Cursor c = getReadableDatabase().query(table, OUTBOX_COLUMNS, where, null, null, null, OB_ID + " ASC", limit);
+        try {
+            while (c.moveToNext()) {
+                entries.add(new OutboxEntry(c.getLong(0), c.getLong(1), c.getString(2), c.getString(3),
+                        c.getInt(4), c.getLong(5), c.getLong(6), c.isNull(7) ? null : c.getString(7)));
+            }
+        } finally {
+            c.close();
+        }
+        return entries;
+    }
+
+    /**
+     * Momento del siguiente intento de la primera entrega pendiente, o -1 si no hay ninguna. Las
+     * entregas van en orden, así que lo que decide es la primera y no el mínimo de todas.
+     */
+    public long getNextOutboxTime() {
+        Cursor c = getReadableDatabase().query(TABLE_N8N_OUTBOX, new String[]{OB_NEXT_ATTEMPT_AT},
+                OB_DEAD + "=0", null, null, null, OB_ID + " ASC", "1");
+        try {
+            return c.moveToFirst() ? c.getLong(0) : -1;
+        } finally {
+            c.close();
+        }
+    }
+
+    /** Número de entregas pendientes (sin contar las dead letters). */
+    public long getPendingOutboxCount() {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_N8N_OUTBOX, OB_DEAD + "=0");
+    }
+
+    /** n8n confirmó la entrega: sale de la bandeja. */
+    public void completeOutbox(long outboxId) {
+        getWritableDatabase().delete(TABLE_N8N_OUTBOX, OB_ID + "=?", new String[]{String.valueOf(outboxId)});
+    }
+
+    /** n8n confirmó un lote: todas sus entregas salen de la bandeja en una transacción. */
+    public synchronized void completeOutbox(List<Long> outboxIds) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement delete = db.compileStatement("DELETE FROM " + TABLE_N8N_OUTBOX + " WHERE " + OB_ID + "=?");
+        db.beginTransaction();
+        try {
+            for (long id : outboxIds) {
+                delete.bindLong(1, id);
+                delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            delete.close();
+        }
+    }
+
+    /** Registra un intento fallido y aplaza el siguiente hasta nextAttemptAt. */
+    public void rescheduleOutbox(long outboxId, int attempts, long nextAttemptAt, String error) {
+        ContentValues values = new ContentValues();
+        values.put(OB_ATTEMPTS, attempts);
+        values.put(OB_NEXT_ATTEMPT_AT, nextAttemptAt);
+        values.put(OB_LAST_ERROR, error);
+        getWritableDatabase().update(TABLE_N8N_OUTBOX, values, OB_ID + "=?", new String[]{String.valueOf(outboxId)});
+    }
+
+    /** Aparta una entrega que agotó los intentos para que no bloquee a las siguientes. */
+    public void moveOutboxToDeadLetter(long outboxId, int attempts, String error) {
+        ContentValues values = new ContentValues();
+        values.put(OB_ATTEMPTS, attempts);
+        values.put(OB_LAST_ERROR, error);
+        values.put(OB_DEAD, 1);
+        getWritableDatabase().update(TABLE_N8N_OUTBOX, values, OB_ID + "=?", new String[]{String.valueOf(outboxId)});
+    }
+
+    /** Vuelve a poner en cola todas las dead letters (conservan su orden original). */
+    public int retryDeadLetterOutbox(long now) {
+        ContentValues values = new ContentValues();
+        values.put(OB_DEAD, 0);
+        values.put(OB_ATTEMPTS, 0);
+        values.put(OB_NEXT_ATTEMPT_AT, now);
+        return getWritableDatabase().update(TABLE_N8N_OUTBOX, values, OB_DEAD + "=1", null);
+    }
+
+    // === CACHÉ DE RESPUESTAS DE IA ===
+
+    /**
+     * Respuesta guardada para promptHash si se creó a partir de notBefore (null si no hay o caducó).
+     * Un acierto actualiza su último acceso para la expulsión LRU.
+     */
+    public String getCachedAIResponse(String promptHash, long notBefore, long now) {
+        SQLiteDatabase db = getWritableDatabase();
+        String[] args = {promptHash};
+        Cursor c = db.query(TABLE_AI_CACHE, new String[]{AC_RESPONSE, AC_CREATED_AT}, AC_HASH + "=?",
+                args, null, null, null);
+        String response;
+        try {
+            if (!c.moveToFirst() || c.getLong(1) < notBefore) return null;
+            response = c.getString(0);
+        } finally {
+            c.close();
+        }
+        ContentValues values = new ContentValues();
+        values.put(AC_LAST_ACCESS, now);
+        db.update(TABLE_AI_CACHE, values, AC_HASH + "=?", args);
+        return response;
+    }
+
+    /**
+     * Guarda (o reemplaza) una respuesta y, en la misma transacción, borra las caducadas y las
+     * menos usadas recientemente por encima de maxEntries.
+     */
+    public synchronized void putCachedAIResponse(String promptHash, String response, long now, long notBefore, int maxEntries) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(AC_HASH, promptHash);
+            values.put(AC_RESPONSE, response);
+            values.put(AC_CREATED_AT, now);
+            values.put(AC_LAST_ACCESS, now);
+            db.insertWithOnConflict(TABLE_AI_CACHE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+            db.delete(TABLE_AI_CACHE, AC_CREATED_AT + "<?", new String[]{String.valueOf(notBefore)});
+            db.execSQL("DELETE FROM " + TABLE_AI_CACHE + " WHERE " + AC_HASH + " IN (SELECT " + AC_HASH +
+                    " FROM " + TABLE_AI_CACHE + " ORDER BY " + AC_LAST_ACCESS + " DESC LIMIT -1 OFFSET " + maxEntries + ")");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public long getCachedAIResponseCount() {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_AI_CACHE);
+    }
+
+    // === RESUMEN DIARIO ===
+
+    /** Día local (epoch-day en la zona horaria actual del dispositivo) al que pertenece un instante. */
+    public static long localEpochDay(long timestamp) {
+        return Math.floorDiv(timestamp + TimeZone.getDefault().getOffset(timestamp), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Estadísticas de los días locales fromDay..toDay (ambos inclusive) a partir del resumen diario,
+     * sin recorrer las lecturas. Para una ventana de 7, 30 o 90 días lee como mucho 90 filas.
+     */
+    public ReadingStats getDailyRollupStats(String email, long fromDay, long toDay) {
+        SQLiteDatabase db = getReadableDatabase();
+        StringBuilder sql = new StringBuilder("SELECT SUM(" + DR_COUNT + ")");
+        for (String m : DR_METRICS) {
+            sql.append(", SUM(").append(m).append("_sum), SUM(").append(m).append("_sumsq), MIN(")
+                    .append(m).append("_min), MAX(").append(m).append("_max)");
+        }
+        sql.append(" FROM ").append(TABLE_DAILY_ROLLUP)
+                .append(" WHERE ").append(DR_EMAIL).append("=? AND ").append(DR_DAY).append(" BETWEEN ? AND ?");
+        Cursor c = db.rawQuery(sql.toString(), new String[]{email, String.valueOf(fromDay), String.valueOf(toDay)});
+        try {
+            if (!c.moveToFirst() || c.isNull(0)) {
+                return ReadingStats.empty();
+            }
+            int count = c.getInt(0);
+            return new ReadingStats(count,
+                    mapMetric(c, 1, count),
+                    mapMetric(c, 5, count),
+                    mapMetric(c, 9, count));
+        } finally {
+            c.close();
+        }
+    }
+
+    /** Recalcula el resumen diario de un usuario (o de todos con email null) desde las lecturas. */
+    public synchronized void rebuildDailyRollup(String email) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            rebuildDailyRollup(db, email);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void rebuildDailyRollup(SQLiteDatabase db, String email) {
+        String[] args = email == null ? null : new String[]{email};
+        db.delete(TABLE_DAILY_ROLLUP, email == null ? null : DR_EMAIL + "=?", args);
+        Cursor c = db.rawQuery(rollupSourceQuery(email != null), args);
+        try {
+            while (c.moveToNext()) {
+                addToDailyRollup(db, mapReading(c));
+            }
+        } finally {
+            c.close();
+        }
+    }
+
+    /** Lecturas que alimentan el resumen diario: las de un email (parámetro) o todas. */
+    static String rollupSourceQuery(boolean byEmail) {
+        return SQLiteQueryBuilder.buildQueryString(false, TABLE_READINGS, NUMERIC_COLUMNS,
+                byEmail ? READINGS_BY_EMAIL : null, null, null, null, null);
+    }
+
+    /**
+     * Compara el resumen diario con los totales de la tabla de lecturas (conteo, sumas, sumas de
+     * cuadrados, mínimos y máximos de las tres magnitudes). Devuelve false si no coinciden o si
+     * algún día se agrupó en otra zona horaria: los totales cuadrarían, pero los días no.
+     */
+    public boolean isDailyRollupConsistent(String email) {
+        SQLiteDatabase db = getReadableDatabase();
+        if (!isDailyRollupInZone(email, TimeZone.getDefault().getID())) {
+            Log.w(TAG, "Resumen diario de " + email + " calculado en otra zona horaria");
+            return false;
+        }
+        StringBuilder rollupSql = new StringBuilder("SELECT IFNULL(SUM(" + DR_COUNT + "), 0)");
+        for (String m : DR_METRICS) {
+            rollupSql.append(", SUM(").append(m).append("_sum), SUM(").append(m).append("_sumsq), MIN(")
+                    .append(m).append("_min), MAX(").append(m).append("_max)");
+        }
+        rollupSql.append(" FROM ").append(TABLE_DAILY_ROLLUP).append(" WHERE ").append(DR_EMAIL).append("=?");
+        String[] args = {email};
+        Cursor rollup = db.rawQuery(rollupSql.toString(), args);
+        Cursor raw = db.rawQuery(READING_TOTALS_QUERY, args);
+        try {
+            rollup.moveToFirst();
+            raw.moveToFirst();
+            for (int i = 0; i < raw.getColumnCount(); i++) {
+                // Todas las columnas son enteras; null (sin filas) se lee como 0 en ambos lados
+                if (rollup.getLong(i) != raw.getLong(i)) {
+                    Log.w(TAG, "Resumen diario inconsistente para " + email + " en la columna " + i);
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            rollup.close();
+            raw.close();
+        }
+    }
+
+    /** true si todos los días del resumen de un usuario se agruparon en la zona horaria zoneId. */
+    public boolean isDailyRollupInZone(String email, String zoneId) {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_DAILY_ROLLUP,
+                DR_EMAIL + "=? AND " + DR_ZONE + "<>?", new String[]{email, zoneId}) == 0;
+    }
+
+    // Se llama siempre dentro de la transacción de la escritura que añade la lectura
+    private void addToDailyRollup(SQLiteDatabase db, BloodPressureReading r) {
+        if (rollupInsertStatement == null) {
+            StringBuilder cols = new StringBuilder(DR_EMAIL + ", " + DR_DAY + ", " + DR_COUNT);
+            StringBuilder values = new StringBuilder("?, ?, 0");
+            for (int i = 0; i < DR_METRICS.length; i++) {
+                String m = DR_METRICS[i];
+                cols.append(", ").append(m).append("_sum, ").append(m).append("_sumsq, ")
+                        .append(m).append("_min, ").append(m).append("_max");
+                values.append(", 0, 0, ?").append(3 + i).append(", ?").append(3 + i);
+            }
+            cols.append(", ").append(DR_MORNING).append(", ").append(DR_EVENING).append(", ").append(DR_ZONE);
+            values.append(", 0, 0, ?6");
+            // Crea la fila del día si no existe (sin UPSERT: el SQLite de API 24 no lo soporta)
+            rollupInsertStatement = db.compileStatement("INSERT OR IGNORE INTO " + TABLE_DAILY_ROLLUP +
+                    " (" + cols + ") VALUES (" + values + ")");
+
+            StringBuilder set = new StringBuilder(DR_COUNT + "=" + DR_COUNT + "+1");
+            for (int i = 0; i < DR_METRICS.length; i++) {
+                String m = DR_METRICS[i];
+                int p = 1 + i;
+                set.append(", ").append(m).append("_sum=").append(m).append("_sum+?").append(p)
+                        .append(", ").append(m).append("_sumsq=").append(m).append("_sumsq+?").append(p).append("*?").append(p)
+                        .append(", ").append(m).append("_min=MIN(").append(m).append("_min, ?").append(p).append(")")
+                        .append(", ").append(m).append("_max=MAX(").append(m).append("_max, ?").append(p).append(")");
+            }
+            set.append(", ").append(DR_MORNING).append("=").append(DR_MORNING).append("+?4")
+                    .append(", ").append(DR_EVENING).append("=").append(DR_EVENING).append("+?5");
+            rollupUpdateStatement = db.compileStatement("UPDATE " + TABLE_DAILY_ROLLUP + " SET " + set +
+                    " WHERE " + DR_EMAIL + "=?6 AND " + DR_DAY + "=?7");
+        }
+        // Día y hora en la zona actual; la fila nueva la guarda para detectar un cambio de zona
+        TimeZone zone = TimeZone.getDefault();
+        long localMillis = r.getTimestamp() + zone.getOffset(r.getTimestamp());
+        long day = Math.floorDiv(localMillis, MILLIS_PER_DAY);
+        long hour = Math.floorMod(localMillis, MILLIS_PER_DAY) / MILLIS_PER_HOUR;
+
+        SQLiteStatement insert = rollupInsertStatement;
+        insert.clearBindings();
+        insert.bindString(1, r.getEmail());
+        insert.bindLong(2, day);
+        insert.bindLong(3, r.getSystolic());
+        insert.bindLong(4, r.getDiastolic());
+        insert.bindLong(5, r.getPulse());
+        insert.bindString(6, zone.getID());
+        insert.executeInsert();
+
+        SQLiteStatement update = rollupUpdateStatement;
+        update.clearBindings();
+        update.bindLong(1, r.getSystolic());
+        update.bindLong(2, r.getDiastolic());
+        update.bindLong(3, r.getPulse());
+        update.bindLong(4, hour >= 6 && hour <= 10 ? 1 : 0);
+        update.bindLong(5, hour >= 18 && hour <= 22 ? 1 : 0);
+        update.bindString(6, r.getEmail());
+        update.bindLong(7, day);
+        update.executeUpdateDelete();
     }
 }
\ No newline at end of file
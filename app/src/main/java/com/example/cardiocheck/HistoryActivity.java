@@ -11,12 +11,12 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.cardiocheck.models.BloodPressureReading;
-import com.example.cardiocheck.models.User; // <- IMPORTACIÓN AÑADIDA
 import com.example.cardiocheck.utils.SharedPreferencesHelper;
 import com.google.android.material.appbar.MaterialToolbar;
 
@@ -26,8 +26,11 @@ import java.util.List;
 
 public class HistoryActivity extends AppCompatActivity implements ReadingAdapter.OnSelectionChangedListener {
 
+    private static final int PAGE_SIZE = 50;
+
     private ReadingAdapter adapter;
-    private DatabaseHelper db;
+    private CardioRepository repository;
+    private OpenAIClient aiClient;
     private MenuItem actionGenerate;
     private AlertDialog progressDialog; // Usaremos un AlertDialog para el progreso
 
@@ -36,14 +39,21 @@ public class HistoryActivity extends AppCompatActivity implements ReadingAdapter
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_history);
 
-        db = new DatabaseHelper(this);
+        repository = CardioRepository.getInstance(this);
+        aiClient = new OpenAIClient(this).bindToLifecycle(this);
         RecyclerView recyclerView = findViewById(R.id.recycler);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
         String email = SharedPreferencesHelper.getUserEmail(this);
-        List<BloodPressureReading> all = db.getAllReadings(email);
-        adapter = new ReadingAdapter(all, this);
+        adapter = new ReadingAdapter(after -> {
+            long beforeTimestamp = after == null ? Long.MAX_VALUE : after.getTimestamp();
+            long beforeId = after == null ? Long.MAX_VALUE : after.getId();
+            repository.getReadingsPage(email, beforeTimestamp, beforeId, PAGE_SIZE, page -> {
+                if (!isDestroyed()) adapter.appendPage(page, PAGE_SIZE);
+            });
+        }, this);
         recyclerView.setAdapter(adapter);
+        adapter.start();
 
         MaterialToolbar toolbar = findViewById(R.id.toolbar);
         toolbar.inflateMenu(R.menu.menu_history);
@@ -75,34 +85,45 @@ public class HistoryActivity extends AppCompatActivity implements ReadingAdapter
         // Mostrar un indicador de carga
         showLoading(true, "Analizando con IA...");
 
-        new Thread(() -> {
-            // 1. Obtener el email del usuario logueado
-            String userEmail = SharedPreferencesHelper.getUserEmail(this);
-            if (userEmail == null) {
-                runOnUiThread(() -> {
-                    showLoading(false, null);
-                    Toast.makeText(this, "Error de autenticación. No se pudo encontrar el usuario.", Toast.LENGTH_LONG).show();
-                });
-                return;
-            }
-
-            // 2. Obtener el perfil completo del usuario desde la BD
-            User currentUser = db.getUserByEmail(userEmail);
+        // 1. Obtener el email del usuario logueado
+        String userEmail = SharedPreferencesHelper.getUserEmail(this);
+        if (userEmail == null) {
+            showLoading(false, null);
+            Toast.makeText(this, "Error de autenticación. No se pudo encontrar el usuario.", Toast.LENGTH_LONG).show();
+            return;
+        }
 
-            // 3. Llamar al cliente de IA con las mediciones Y el perfil
-            OpenAIClient client = new OpenAIClient(this);
-            final String advice = client.getAdviceForSelected(selectedReadings, currentUser);
+        // 2. Obtener el perfil completo del usuario desde la BD
+        long deadline = SharedPreferencesHelper.getAIFallbackDeadlineMs(this);
+        repository.getUserByEmail(userEmail, currentUser -> {
+            if (isDestroyed()) return; // la pantalla se cerró mientras se leía el perfil
+            // 3. Llamar al cliente de IA con las mediciones Y el perfil (sin bloquear ningún hilo);
+            // si tarda más del plazo se muestra antes el análisis local y luego se sustituye
+            AlertDialog[] shown = {null};
+            LocalAdviceEngine.race(aiClient.getAdviceForSelected(selectedReadings, currentUser),
+                    () -> LocalAdviceEngine.adviceForSelected(selectedReadings, currentUser),
+                    deadline, ContextCompat.getMainExecutor(this), (advice, fromAI, error) -> {
+                        if (isDestroyed()) return; // el consejo local puede llegar con la pantalla ya cerrada
+                        String message = error == null ? advice : advice + "\n\n" + OpenAIClient.userMessage(error);
+                        // 4. Mostrar el resultado en la UI (o mejorar el que ya se ve)
+                        if (shown[0] != null) {
+                            shown[0].setMessage(message);
+                            return;
+                        }
+                        showLoading(false, null);
+                        shown[0] = new AlertDialog.Builder(this)
+                                .setTitle("Consejo de Cardio-IA")
+                                .setMessage(message)
+                                .setPositiveButton("Entendido", null)
+                                .show();
+                    });
+        });
+    }
 
-            // 4. Mostrar el resultado en la UI
-            runOnUiThread(() -> {
-                showLoading(false, null);
-                new AlertDialog.Builder(this)
-                        .setTitle("Consejo de Cardio-IA")
-                        .setMessage(advice)
-                        .setPositiveButton("Entendido", null)
-                        .show();
-            });
-        }).start();
+    @Override
+    protected void onDestroy() {
+        showLoading(false, null); // el diálogo de carga no debe sobrevivir a la ventana
+        super.onDestroy();
     }
 
     private void showLoading(boolean isLoading, String message) {
@@ -0,0 +1,197 @@
+package com.example.cardiocheck;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.ReadingStats;
+import com.example.cardiocheck.models.User;
+import com.example.cardiocheck.utils.SmartNotificationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Análisis determinista en el propio dispositivo, a partir de las mismas reglas que usan la
+ * clasificación, las alertas inteligentes y el informe PDF. Responde al instante y sin red.
+ *
+ * {@link #race} lo enfrenta a la llamada de IA: si la IA no contesta antes del plazo se muestra
+ * el análisis local y, cuando llega la respuesta de la IA, se sustituye en el mismo sitio.
+ */
+public final class LocalAdviceEngine {
+
+    /** Plazo por defecto para que la IA conteste antes de mostrar el análisis local. */
+    public static final long DEFAULT_DEADLINE_MS = 300;
+
+    static final String LOCAL_HEADER = "Análisis local (la IA aún no ha respondido):\n";
+
+    // Un solo hilo para los plazos de todas las carreras; no impide cerrar el proceso
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cardio-local-advice");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Recibe primero el resultado que llegue antes y, si era el local, la mejora posterior. */
+    public interface Listener {
+        /**
+         * @param advice Texto a mostrar.
+         * @param fromAI true si es la respuesta de la IA; false si es el análisis local.
+         * @param aiError Error de la IA cuando ya no habrá mejora; null en otro caso.
+         */
+        void onAdvice(String advice, boolean fromAI, Throwable aiError);
+    }
+
+    private LocalAdviceEngine() {}
+
+    /**
+     * Consejo para una medición nueva.
+     * @param recent Mediciones recientes del usuario, de la más reciente a la más antigua
+     *               (puede incluir la propia medición).
+     */
+    public static String adviceForReading(BloodPressureReading reading, List<BloodPressureReading> recent, User user) {
+        String category = BloodPressureClassifier.categoryOf(reading.getSystolic(), reading.getDiastolic());
+        StringBuilder sb = new StringBuilder(LOCAL_HEADER);
+        sb.append(greeting(user)).append(String.format(Locale.getDefault(),
+                "tu medición de %d/%d mmHg con pulso de %d bpm se clasifica como \"%s\". ",
+                reading.getSystolic(), reading.getDiastolic(), reading.getPulse(), category));
+        sb.append(categoryTip(category)).append('\n');
+
+        SmartNotificationManager.PatternAnalysis patterns = patternsOf(withReading(reading, recent));
+        if (patterns.needsAttention) sb.append('\n').append(patterns.message).append('\n');
+        return sb.toString().trim();
+    }
+
+    /** Consejo para un conjunto de mediciones seleccionadas (en cualquier orden). */
+    public static String adviceForSelected(List<BloodPressureReading> readings, User user) {
+        if (readings == null || readings.isEmpty()) return LOCAL_HEADER + "No hay mediciones que analizar.";
+        ReadingStats stats = ReadingStats.of(readings);
+        String category = BloodPressureClassifier.categoryOf(
+                stats.getSystolic().getAvgRounded(), stats.getDiastolic().getAvgRounded());
+
+        StringBuilder sb = new StringBuilder(LOCAL_HEADER);
+        sb.append(greeting(user)).append(String.format(Locale.getDefault(),
+                "en %d mediciones tu media es de %d/%d mmHg (\"%s\"), con sistólica entre %d y %d. ",
+                stats.getCount(), stats.getSystolic().getAvgRounded(), stats.getDiastolic().getAvgRounded(),
+                category, stats.getSystolic().getMin(), stats.getSystolic().getMax()));
+        sb.append(categoryTip(category)).append('\n');
+
+        List<BloodPressureReading> newestFirst = new ArrayList<>(readings);
+        Collections.sort(newestFirst, (a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+        SmartNotificationManager.PatternAnalysis patterns = patternsOf(newestFirst);
+        if (patterns.needsAttention) sb.append('\n').append(patterns.message).append('\n');
+
+        sb.append('\n').append(recommendations(stats));
+        return sb.toString().trim();
+    }
+
+    /** Recomendaciones generales según las medias de un periodo (también van en el informe PDF). */
+    public static String recommendations(ReadingStats stats) {
+        StringBuilder recommendations = new StringBuilder();
+
+        if (!stats.isEmpty()) {
+            int avgSystolic = (int) stats.getSystolic().getAvg();
+            int avgDiastolic = (int) stats.getDiastolic().getAvg();
+
+            recommendations.append("Basado en sus mediciones:\n\n");
+
+            if (avgSystolic < 120 && avgDiastolic < 80) {
+                recommendations.append("• Mantener hábitos saludables actuales\n");
+                recommendations.append("• Continuar con ejercicio regular\n");
+            } else if (avgSystolic >= 140 || avgDiastolic >= 90) {
+                recommendations.append("• Consultar con médico especialista\n");
+                recommendations.append("• Considerar evaluación cardiovascular\n");
+                recommendations.append("• Monitorear diariamente\n");
+            } else {
+                recommendations.append("• Mantener control regular\n");
+                recommendations.append("• Revisar hábitos alimenticios\n");
+            }
+
+            recommendations.append("\nEste reporte no reemplaza la consulta médica profesional.");
+        }
+
+        return recommendations.toString();
+    }
+
+    /**
+     * Enfrenta la respuesta de la IA al análisis local.
+     *
+     * Si la IA contesta antes de deadlineMs, el listener solo recibe su respuesta. Si no, recibe
+     * primero el análisis local y después la respuesta de la IA, o el error si la IA falla. Las
+     * llamadas al listener se hacen en callbackExecutor y en ese orden. Una cancelación de la IA
+     * (pantalla cerrada) no produce ninguna llamada más.
+     */
+    public static void race(CompletableFuture<String> ai, Supplier<String> local, long deadlineMs,
+                            Executor callbackExecutor, Listener listener) {
+        Object lock = new Object();
+        boolean[] aiDone = {false};
+
+        ScheduledFuture<?> timer = TIMER.schedule(() -> {
+            String advice = local.get();
+            // Se publica dentro del cerrojo para que el consejo local nunca adelante a la IA
+            synchronized (lock) {
+                if (aiDone[0]) return;
+                callbackExecutor.execute(() -> listener.onAdvice(advice, false, null));
+            }
+        }, Math.max(0, deadlineMs), TimeUnit.MILLISECONDS);
+
+        ai.whenComplete((advice, error) -> {
+            timer.cancel(false);
+            if (error != null && OpenAIClient.isCancellation(error)) return;
+            // Si la IA falla, el análisis local queda como resultado definitivo
+            String result = error == null ? advice : local.get();
+            synchronized (lock) {
+                aiDone[0] = true;
+                callbackExecutor.execute(() -> listener.onAdvice(result, error == null, error));
+            }
+        });
+    }
+
+    private static List<BloodPressureReading> withReading(BloodPressureReading reading, List<BloodPressureReading> recent) {
+        List<BloodPressureReading> list = new ArrayList<>();
+        list.add(reading);
+        if (recent != null) {
+            for (BloodPressureReading r : recent) {
+                if (r.getId() != reading.getId() || r.getTimestamp() != reading.getTimestamp()) list.add(r);
+            }
+        }
+        return list;
+    }
+
+    // Las mismas reglas que las alertas inteligentes, sobre las 10 mediciones más recientes
+    private static SmartNotificationManager.PatternAnalysis patternsOf(List<BloodPressureReading> newestFirst) {
+        List<BloodPressureReading> window = newestFirst.subList(0, Math.min(10, newestFirst.size()));
+        return SmartNotificationManager.analyzePatterns(window, ReadingStats.of(window));
+    }
+
+    private static String greeting(User user) {
+        String name = user != null ? user.getFullName() : null;
+        if (name == null || name.trim().isEmpty()) return "";
+        return name.trim().split("\\s+")[0] + ", ";
+    }
+
+    private static String categoryTip(String category) {
+        switch (category) {
+            case BloodPressureClassifier.CRISIS:
+                return "Estos valores son muy altos: si tienes dolor de pecho, falta de aire, dolor de cabeza intenso "
+                        + "o alteraciones de la visión, busca atención médica urgente. Si no, repite la medición en "
+                        + "unos minutos en reposo y contacta con tu médico hoy mismo.";
+            case BloodPressureClassifier.STAGE_2:
+                return "Es recomendable que consultes con tu médico y sigas midiéndote a diario, siempre en reposo "
+                        + "y a la misma hora.";
+            case BloodPressureClassifier.STAGE_1:
+                return "Reducir la sal, mantener una actividad física regular y limitar el alcohol ayuda a bajarla; "
+                        + "comenta estos valores en tu próxima consulta.";
+            case BloodPressureClassifier.ELEVATED:
+                return "Está algo por encima de lo ideal: cuida la sal, el peso y el ejercicio para que no aumente.";
+            default:
+                return "Está en un rango saludable; mantén tus hábitos actuales.";
+        }
+    }
+}
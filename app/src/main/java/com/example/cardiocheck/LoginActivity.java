@@ -17,17 +17,18 @@ import com.example.cardiocheck.utils.SharedPreferencesHelper;
 public class LoginActivity extends AppCompatActivity {
 
     private EditText etEmail, etPassword;
-    private DatabaseHelper db;
+    private CardioRepository repository;
+    private Button btnLogin;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_login);
-        db = new DatabaseHelper(this);
+        repository = CardioRepository.getInstance(this);
 
         etEmail = findViewById(R.id.etEmail);
         etPassword = findViewById(R.id.etPassword);
-        Button btnLogin = findViewById(R.id.btnDoLogin);
+        btnLogin = findViewById(R.id.btnDoLogin);
         Button btnGoRegister = findViewById(R.id.btnGoRegister);
 
         btnLogin.setOnClickListener(new View.OnClickListener() {
@@ -59,7 +60,12 @@ public class LoginActivity extends AppCompatActivity {
         // Eliminamos la validación de la longitud de la contraseña aquí,
         // ya que solo es necesaria en el registro, no en el login.
 
-        User u = db.login(email, pass);
+        btnLogin.setEnabled(false);
+        repository.login(email, pass, this::onLoginResult);
+    }
+
+    private void onLoginResult(User u) {
+        btnLogin.setEnabled(true);
         if (u != null) {
             // Llamamos al método 'login' de SharedPreferencesHelper.
             // Este método ya se encarga de guardar el email, el nombre y de marcar al usuario como logueado.
@@ -0,0 +1,216 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.OutboxEntry;
+import com.example.cardiocheck.models.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Vacía la bandeja de salida hacia n8n (tabla n8n_outbox) en el orden en que se registraron las
+ * lecturas: si una entrega falla, las siguientes esperan a que se reintente.
+ *
+ * Las lecturas se envían por lotes de hasta MAX_BATCH_SIZE en un solo POST. La bandeja se vacía
+ * cuando la entrega más antigua lleva BATCH_WINDOW_MS esperando o cuando ya hay un lote completo.
+ * Un lote que falla se reintenta a la mitad de tamaño cada vez (desde la primera entrega), de modo
+ * que una lectura que n8n rechaza acaba sola y no arrastra a las demás a dead letters.
+ *
+ * Cada fallo aplaza la entrega con espera exponencial (BASE_BACKOFF_MS, 2x, ... hasta
+ * MAX_BACKOFF_MS). Tras MAX_ATTEMPTS intentos pasa a dead letter (vista n8n_outbox_dead_letters) y
+ * deja paso a las demás. Una entrega solo sale de la bandeja cuando n8n la confirma, así que puede
+ * llegar repetida; la clave de idempotencia permite descartar los duplicados.
+ */
+public class N8nOutboxWorker extends Worker {
+
+    private static final String TAG = "N8nOutboxWorker";
+    private static final String UNIQUE_WORK = "cardio-n8n-outbox";
+
+    static final long BASE_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+    static final long MAX_BACKOFF_MS = TimeUnit.HOURS.toMillis(1);
+    static final int MAX_ATTEMPTS = 10;
+    static final int MAX_BATCH_SIZE = 50;
+    // Tiempo que se esperan más lecturas antes de enviar; corto para no retrasar las alertas
+    static final long BATCH_WINDOW_MS = TimeUnit.SECONDS.toMillis(5);
+    private static final int ENTRIES_PER_RUN = 4 * MAX_BATCH_SIZE;
+    // Margen sobre el timeout de la petición para que Volley informe antes del error
+    private static final long CALL_TIMEOUT_MS = N8nSyncClient.TIMEOUT_MS + TimeUnit.SECONDS.toMillis(5);
+
+    private volatile CompletableFuture<Void> inFlight;
+
+    public N8nOutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /** Espera antes del siguiente intento tras attempts fallos (1 → BASE_BACKOFF_MS). */
+    static long backoffDelay(int attempts) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 20);
+        return Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << shift);
+    }
+
+    /** Tamaño del lote que empieza por una entrega con attempts fallos (50, 25, 12, ... 1). */
+    static int batchSize(int attempts) {
+        return Math.max(1, MAX_BATCH_SIZE >> Math.min(attempts, 30));
+    }
+
+    /**
+     * Momento en que conviene vaciar la bandeja: cuando toque la primera entrega y, si aún no hay un
+     * lote completo, no antes de que acabe su ventana de acumulación.
+     */
+    static long flushTime(OutboxEntry head, long pendingCount) {
+        if (pendingCount >= MAX_BATCH_SIZE) return head.getNextAttemptAt();
+        return Math.max(head.getNextAttemptAt(), head.getCreatedAt() + BATCH_WINDOW_MS);
+    }
+
+    /**
+     * Programa el vaciado de la bandeja para cuando toque la primera entrega. Nunca cancela un envío
+     * en curso (onStopped cortaría un POST que quizá ya llegó y se reenviaría): solo sustituye la
+     * ejecución pendiente si hay que adelantarla. Consulta la base de datos: llamar fuera del hilo
+     * principal.
+     */
+    @WorkerThread
+    public static void schedule(Context context) {
+        DatabaseHelper db = DatabaseHelper.getInstance(context);
+        long next = nextFlushTime(db);
+        if (next < 0) return; // nada pendiente
+
+        ExistingWorkPolicy policy = UniqueWorkPolicy.forSchedule(context, UNIQUE_WORK, next);
+        if (policy != ExistingWorkPolicy.KEEP) enqueue(context, next, policy);
+    }
+
+    // -1 si la bandeja está vacía
+    private static long nextFlushTime(DatabaseHelper db) {
+        List<OutboxEntry> head = db.getPendingOutbox(1);
+        if (head.isEmpty()) return -1;
+        return flushTime(head.get(0), db.getPendingOutboxCount());
+    }
+
+    private static void enqueue(Context context, ExistingWorkPolicy policy) {
+        long next = nextFlushTime(DatabaseHelper.getInstance(context));
+        if (next >= 0) enqueue(context, next, policy);
+    }
+
+    private static void enqueue(Context context, long next, ExistingWorkPolicy policy) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(N8nOutboxWorker.class)
+                .setConstraints(constraints)
+                .setInitialDelay(Math.max(0, next - System.currentTimeMillis()), TimeUnit.MILLISECONDS)
+                .addTag(UniqueWorkPolicy.runAtTag(next))
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK, policy, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        DatabaseHelper db = DatabaseHelper.getInstance(getApplicationContext());
+        N8nSyncClient client = N8nSyncClient.getInstance(getApplicationContext());
+        Map<String, User> users = new HashMap<>();
+
+        // La primera que aún no toca retiene a las demás para conservar el orden
+        List<OutboxEntry> due = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (OutboxEntry entry : db.getPendingOutbox(ENTRIES_PER_RUN)) {
+            if (entry.getNextAttemptAt() > now) break;
+            due.add(entry);
+        }
+        int start = 0;
+        while (start < due.size() && !isStopped()) {
+            int end = Math.min(due.size(), start + batchSize(due.get(start).getAttempts()));
+            if (!deliver(db, client, users, due.subList(start, end))) break;
+            start = end;
+        }
+
+        // La siguiente ejecución se encadena detrás de esta en lugar de cancelarla
+        if (!isStopped()) enqueue(getApplicationContext(), ExistingWorkPolicy.APPEND_OR_REPLACE);
+        return Result.success();
+    }
+
+    @Override
+    public void onStopped() {
+        CompletableFuture<Void> call = inFlight;
+        if (call != null) call.cancel(true); // el intento en curso no cuenta
+    }
+
+    /** Entrega un lote. Devuelve false si hay que dejar de vaciar la bandeja en esta ejecución. */
+    private boolean deliver(DatabaseHelper db, N8nSyncClient client, Map<String, User> users, List<OutboxEntry> batch) {
+        List<OutboxEntry> sent = new ArrayList<>();
+        List<N8nSyncClient.Item> items = new ArrayList<>();
+        for (OutboxEntry entry : batch) {
+            BloodPressureReading reading = db.getReadingById(entry.getReadingId());
+            if (reading == null) {
+                db.completeOutbox(entry.getId()); // lectura borrada: no hay nada que enviar
+                continue;
+            }
+            User user = users.get(entry.getEmail());
+            if (user == null) {
+                user = db.getUserByEmail(entry.getEmail());
+                if (user == null) {
+                    db.moveOutboxToDeadLetter(entry.getId(), entry.getAttempts(), "Usuario inexistente");
+                    continue;
+                }
+                users.put(entry.getEmail(), user);
+            }
+            sent.add(entry);
+            items.add(new N8nSyncClient.Item(reading, user, entry.getIdempotencyKey()));
+        }
+        if (items.isEmpty()) return true;
+
+        CompletableFuture<Void> call = client.sendReadings(items);
+        inFlight = call;
+        String error;
+        try {
+            call.get(CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            List<Long> ids = new ArrayList<>();
+            for (OutboxEntry entry : sent) ids.add(entry.getId());
+            db.completeOutbox(ids);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.cancel(true);
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            call.cancel(true);
+            error = N8nSyncClient.describe(e instanceof ExecutionException ? e.getCause() : e);
+        } catch (CancellationException e) {
+            return false; // worker detenido
+        } finally {
+            inFlight = null;
+        }
+
+        // Todo el lote cuenta el intento; las que agotan los intentos dejan paso a las siguientes
+        long retryAt = System.currentTimeMillis();
+        for (OutboxEntry entry : sent) {
+            int attempts = entry.getAttempts() + 1;
+            if (attempts >= MAX_ATTEMPTS) {
+                Log.w(TAG, "Entrega " + entry.getIdempotencyKey() + " movida a dead letters: " + error);
+                db.moveOutboxToDeadLetter(entry.getId(), attempts, error);
+            } else {
+                db.rescheduleOutbox(entry.getId(), attempts, retryAt + backoffDelay(attempts), error);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,467 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.android.volley.DefaultRetryPolicy;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.android.volley.toolbox.Volley;
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.User;
+import com.example.cardiocheck.utils.SharedPreferencesHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cliente de sincronización con el webhook de n8n, uno para toda la aplicación.
+ *
+ * Tiene una sola RequestQueue de Volley (sus hilos de red y caché viven lo que la app, en lugar
+ * de crearse por cada medición), escribe el JSON directamente en un StringBuilder sin pasar por
+ * JSONObject y lleva la cuenta de envíos correctos, fallidos, bytes enviados y latencia.
+ *
+ * Las lecturas no se envían desde las pantallas: N8nOutboxWorker las saca de la bandeja de salida
+ * (tabla n8n_outbox) y las entrega aquí por lotes. Por defecto el cuerpo es un array JSON, uno por
+ * lectura con su clave de idempotencia. Si el webhook anuncia en la cabecera X-CardioCheck-Accept
+ * que entiende "columns" y/o "gzip", los lotes siguientes van en columnas (arrays paralelos) y
+ * comprimidos; el nodo Code "Inflate payload" del flujo los devuelve a filas antes de Split Out.
+ * El flujo solo responde cuando las filas ya están guardadas; si no puede decodificar el lote
+ * responde 415 y el reintento va en filas JSON sin comprimir.
+ *
+ * La URL y el secreto salen de Ajustes o, si no se han cambiado, de BuildConfig. Con secreto, cada
+ * petición va firmada (WebhookSigner) y el flujo descarta las que no verifican.
+ */
+public class N8nSyncClient {
+
+    private static final String TAG = "N8nSyncClient";
+
+    public static final String DEFAULT_WEBHOOK_URL =
+            "https://primary-production-7bc2e.up.railway.app/webhook/6b819410-23ab-4ee0-8e4b-2bdb3f2ab28a";
+    static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    // gzip va como binario para que el webhook no intente leerlo como JSON
+    static final String CONTENT_TYPE_GZIP = "application/octet-stream";
+
+    static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String HEADER_FORMAT = "X-CardioCheck-Format";
+    static final String HEADER_ENCODING = "X-CardioCheck-Encoding";
+    static final String HEADER_ACCEPT = "X-CardioCheck-Accept";
+    static final String FORMAT_ROWS = "rows";
+    static final String FORMAT_COLUMNS = "columns";
+    static final String ENCODING_GZIP = "gzip";
+
+    // Por debajo de este tamaño comprimir no compensa
+    static final int MIN_GZIP_BYTES = 1024;
+
+    // Un POST al webhook no es idempotente: sin reintentos automáticos de Volley
+    static final int TIMEOUT_MS = 10_000;
+
+    private static N8nSyncClient instance;
+
+    private final RequestQueue queue;
+    private volatile Endpoint endpoint;
+
+    // Lo que anunció el webhook en su última respuesta; hasta entonces, filas JSON sin comprimir
+    private volatile boolean serverAcceptsColumns;
+    private volatile boolean serverAcceptsGzip;
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong totalLatencyMs = new AtomicLong();
+    private final AtomicLong lastLatencyMs = new AtomicLong(-1);
+
+    /** Una lectura a entregar, con el perfil de su usuario y su clave de idempotencia. */
+    public static final class Item {
+        final BloodPressureReading reading;
+        final User user;
+        final String idempotencyKey;
+
+        public Item(BloodPressureReading reading, User user, String idempotencyKey) {
+            this.reading = reading;
+            this.user = user;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    // URL y firmante se cambian juntos para que ningún envío mezcle los de dos configuraciones
+    private static final class Endpoint {
+        final String url;
+        final WebhookSigner signer;
+
+        Endpoint(String url, WebhookSigner signer) {
+            this.url = url;
+            this.signer = signer;
+        }
+    }
+
+    /** Contadores acumulados desde que arrancó la app. */
+    public static final class Metrics {
+        public final long succeeded;
+        public final long failed;
+        public final long bytesSent;
+        public final long averageLatencyMs;
+        public final long lastLatencyMs;
+
+        Metrics(long succeeded, long failed, long bytesSent, long averageLatencyMs, long lastLatencyMs) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.bytesSent = bytesSent;
+            this.averageLatencyMs = averageLatencyMs;
+            this.lastLatencyMs = lastLatencyMs;
+        }
+    }
+
+    public static synchronized N8nSyncClient getInstance(Context context) {
+        if (instance == null) {
+            instance = new N8nSyncClient(Volley.newRequestQueue(context.getApplicationContext()),
+                    webhookUrl(context), webhookSecret(context));
+        }
+        return instance;
+    }
+
+    /** Aplica la URL y el secreto guardados; no crea el cliente si aún no existe. */
+    public static synchronized void reloadConfig(Context context) {
+        if (instance == null) return;
+        instance.configure(webhookUrl(context), webhookSecret(context));
+    }
+
+    /** URL de Ajustes; si no hay, la de BuildConfig (local.properties) y si no, DEFAULT_WEBHOOK_URL. */
+    static String webhookUrl(Context context) {
+        String url = SharedPreferencesHelper.getN8nWebhookUrl(context);
+        if (url.isEmpty()) url = BuildConfig.N8N_WEBHOOK_URL.trim();
+        return url.isEmpty() ? DEFAULT_WEBHOOK_URL : url;
+    }
+
+    /** Secreto de Ajustes; si no hay, el de BuildConfig. Vacío: peticiones sin firmar. */
+    static String webhookSecret(Context context) {
+        String secret = SharedPreferencesHelper.getN8nWebhookSecret(context);
+        return secret.isEmpty() ? BuildConfig.N8N_WEBHOOK_SECRET : secret;
+    }
+
+    // Permite una cola propia y un servidor local en las pruebas
+    N8nSyncClient(RequestQueue queue, String webhookUrl) {
+        this(queue, webhookUrl, null);
+    }
+
+    N8nSyncClient(RequestQueue queue, String webhookUrl, String secret) {
+        this.queue = queue;
+        configure(webhookUrl, secret);
+    }
+
+    void configure(String webhookUrl, String secret) {
+        endpoint = new Endpoint(webhookUrl, WebhookSigner.of(secret));
+    }
+
+    /**
+     * Envía una medición al webhook. El futuro termina cuando n8n responde con éxito, o con el
+     * VolleyError del fallo. n8n puede recibir la misma clave más de una vez (entrega al menos una vez).
+     */
+    public CompletableFuture<Void> sendReading(BloodPressureReading reading, User user, String idempotencyKey) {
+        return sendReadings(Collections.singletonList(new Item(reading, user, idempotencyKey)));
+    }
+
+    /**
+     * Envía varias lecturas en un solo POST, en el formato más compacto que haya anunciado el
+     * webhook. n8n acepta o rechaza el lote entero; cada lectura lleva su clave de idempotencia y la
+     * cabecera lleva la de la primera y la última, separadas por "..".
+     */
+    public CompletableFuture<Void> sendReadings(List<Item> items) {
+        return send(items, serverAcceptsColumns && items.size() > 1, serverAcceptsGzip);
+    }
+
+    /** Envía con un formato concreto; gzip solo si el JSON llega a MIN_GZIP_BYTES. */
+    CompletableFuture<Void> send(List<Item> items, boolean columns, boolean allowGzip) {
+        byte[] json = columns ? encodeColumns(items) : encodeBatch(items);
+        boolean gzip = allowGzip && json.length >= MIN_GZIP_BYTES;
+        byte[] body = gzip ? gzip(json) : json;
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put(HEADER_IDEMPOTENCY_KEY, keyRange(items));
+        headers.put(HEADER_FORMAT, columns ? FORMAT_COLUMNS : FORMAT_ROWS);
+        if (gzip) headers.put(HEADER_ENCODING, ENCODING_GZIP);
+        // Cada intento lleva marca de tiempo y nonce nuevos: un reintento no parece un reenvío
+        Endpoint target = endpoint;
+        if (target.signer != null) target.signer.sign(body, headers);
+        return post(target.url, body, gzip ? CONTENT_TYPE_GZIP : CONTENT_TYPE, headers, columns || gzip);
+    }
+
+    private CompletableFuture<Void> post(String url, byte[] body, String contentType, Map<String, String> headers,
+                                         boolean compact) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        String keys = headers.get(HEADER_IDEMPOTENCY_KEY);
+        long start = SystemClock.elapsedRealtime();
+        WebhookRequest request = new WebhookRequest(url, body, contentType, headers,
+                responseHeaders -> {
+                    record(true, start, body.length);
+                    negotiate(responseHeaders);
+                    Log.d(TAG, "Datos enviados a n8n con éxito (" + keys + ", " + body.length + " bytes).");
+                    result.complete(null);
+                },
+                error -> {
+                    record(false, start, body.length);
+                    int status = error.networkResponse != null ? error.networkResponse.statusCode : 0;
+                    if (compact && (status == 400 || status == 415)) {
+                        // El flujo ya no entiende el formato compacto: el reintento irá en filas JSON
+                        serverAcceptsColumns = false;
+                        serverAcceptsGzip = false;
+                    }
+                    Log.e(TAG, "Error al enviar datos a n8n (" + keys + "): " + describe(error));
+                    result.completeExceptionally(error);
+                });
+        queue.add(request);
+        // Cancelar el futuro (worker detenido) retira la petición si aún no ha salido
+        result.whenComplete((ignored, error) -> {
+            if (result.isCancelled()) request.cancel();
+        });
+        return result;
+    }
+
+    // Lee X-CardioCheck-Accept ("gzip, columns") de la respuesta del webhook
+    private void negotiate(Map<String, String> responseHeaders) {
+        String accept = null;
+        for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
+            if (HEADER_ACCEPT.equalsIgnoreCase(header.getKey())) accept = header.getValue();
+        }
+        boolean columns = false;
+        boolean gzip = false;
+        if (accept != null) {
+            for (String token : accept.split(",")) {
+                String value = token.trim().toLowerCase(Locale.ROOT);
+                if (FORMAT_COLUMNS.equals(value)) columns = true;
+                if (ENCODING_GZIP.equals(value)) gzip = true;
+            }
+        }
+        serverAcceptsColumns = columns;
+        serverAcceptsGzip = gzip;
+    }
+
+    // Acotada en tamaño aunque el lote crezca
+    private static String keyRange(List<Item> items) {
+        String first = items.get(0).idempotencyKey;
+        if (items.size() == 1) return first;
+        return first + ".." + items.get(items.size() - 1).idempotencyKey;
+    }
+
+    /** Texto corto del error para guardarlo en la bandeja de salida. */
+    static String describe(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        if (error instanceof VolleyError && ((VolleyError) error).networkResponse != null) {
+            return "HTTP " + ((VolleyError) error).networkResponse.statusCode;
+        }
+        return error.getClass().getSimpleName() + (error.getMessage() != null ? ": " + error.getMessage() : "");
+    }
+
+    public Metrics getMetrics() {
+        long ok = succeeded.get();
+        long ko = failed.get();
+        long done = ok + ko;
+        return new Metrics(ok, ko, bytesSent.get(), done == 0 ? 0 : totalLatencyMs.get() / done, lastLatencyMs.get());
+    }
+
+    private void record(boolean success, long start, int bytes) {
+        long latency = SystemClock.elapsedRealtime() - start;
+        (success ? succeeded : failed).incrementAndGet();
+        bytesSent.addAndGet(bytes);
+        totalLatencyMs.addAndGet(latency);
+        lastLatencyMs.set(latency);
+        Metrics m = getMetrics();
+        Log.d(TAG, "n8n: " + m.succeeded + " ok, " + m.failed + " fallidos, " + m.bytesSent + " bytes, latencia "
+                + latency + " ms (media " + m.averageLatencyMs + " ms)");
+    }
+
+    /** Array JSON con una entrada por lectura, escrito en un único StringBuilder. */
+    static byte[] encodeBatch(List<Item> items) {
+        StringBuilder json = new StringBuilder(256 * items.size() + 2);
+        json.append('[');
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) json.append(',');
+            Item item = items.get(i);
+            appendReading(json, item.reading, item.user, item.idempotencyKey);
+        }
+        json.append(']');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Formato en columnas: cada usuario distinto una sola vez y un array por campo, todos en el
+     * mismo orden ("user" es la posición en "users"):
+     * {"format":"columns","users":[{...}],"user":[0,0],"idempotencyKey":[...],"timestamp":[...],
+     * "systolic":[...],"diastolic":[...],"pulse":[...]}
+     */
+    static byte[] encodeColumns(List<Item> items) {
+        Map<String, Integer> userIndex = new HashMap<>();
+        List<User> users = new ArrayList<>();
+        long[] userOf = new long[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            User user = items.get(i).user;
+            Integer index = userIndex.get(user.getEmail());
+            if (index == null) {
+                index = users.size();
+                userIndex.put(user.getEmail(), index);
+                users.add(user);
+            }
+            userOf[i] = index;
+        }
+
+        StringBuilder json = new StringBuilder(64 * items.size() + 128 * users.size() + 128);
+        json.append("{\"format\":\"columns\",\"users\":[");
+        for (int u = 0; u < users.size(); u++) {
+            if (u > 0) json.append(',');
+            json.append('{');
+            appendUser(json, users.get(u));
+            json.append('}');
+        }
+        json.append("],\"user\":[");
+        for (int i = 0; i < userOf.length; i++) {
+            if (i > 0) json.append(',');
+            json.append(userOf[i]);
+        }
+        json.append("],\"idempotencyKey\":[");
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) json.append(',');
+            appendString(json, items.get(i).idempotencyKey);
+        }
+        json.append(']');
+        appendColumn(json, "timestamp", items, item -> item.reading.getTimestamp());
+        appendColumn(json, "systolic", items, item -> item.reading.getSystolic());
+        appendColumn(json, "diastolic", items, item -> item.reading.getDiastolic());
+        appendColumn(json, "pulse", items, item -> item.reading.getPulse());
+        json.append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendColumn(StringBuilder json, String name, List<Item> items, ToLongFunction<Item> field) {
+        json.append(",\"").append(name).append("\":[");
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append(field.applyAsLong(items.get(i)));
+        }
+        json.append(']');
+    }
+
+    static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // en memoria no ocurre
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Objeto JSON de una medición con los campos que espera el flujo de n8n, más la clave de
+     * idempotencia y el momento de la medición (puede llegar mucho después si se registró sin red).
+     */
+    static void appendReading(StringBuilder json, BloodPressureReading reading, User user, String idempotencyKey) {
+        json.append("{\"idempotencyKey\":");
+        appendString(json, idempotencyKey);
+        json.append(",\"timestamp\":").append(reading.getTimestamp())
+                .append(",\"systolic\":").append(reading.getSystolic())
+                .append(",\"diastolic\":").append(reading.getDiastolic())
+                .append(",\"pulse\":").append(reading.getPulse())
+                .append(',');
+        appendUser(json, user);
+        json.append('}');
+    }
+
+    // Campos del usuario (sin llaves), iguales en filas y en columnas
+    private static void appendUser(StringBuilder json, User user) {
+        json.append("\"userEmail\":");
+        appendString(json, user.getEmail());
+        json.append(",\"userName\":");
+        appendString(json, user.getFullName());
+        json.append(",\"emergencyContact\":");
+        appendString(json, user.getEmergencyContact());
+    }
+
+    // Cadena JSON escapada (o null)
+    static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        json.append(String.format(Locale.US, "\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    /** POST con un cuerpo ya serializado; de la respuesta de n8n solo interesan las cabeceras. */
+    static final class WebhookRequest extends Request<Map<String, String>> {
+        private final byte[] body;
+        private final String contentType;
+        private final Map<String, String> headers;
+        private final Response.Listener<Map<String, String>> listener;
+
+        WebhookRequest(String url, byte[] body, String contentType, Map<String, String> headers,
+                       Response.Listener<Map<String, String>> listener, Response.ErrorListener errorListener) {
+            super(Method.POST, url, errorListener);
+            this.body = body;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.listener = listener;
+            setShouldCache(false);
+            setRetryPolicy(new DefaultRetryPolicy(TIMEOUT_MS, 0, DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
+        }
+
+        @Override
+        public String getBodyContentType() {
+            return contentType;
+        }
+
+        @Override
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public byte[] getBody() {
+            return body;
+        }
+
+        @Override
+        protected Response<Map<String, String>> parseNetworkResponse(NetworkResponse response) {
+            Map<String, String> responseHeaders = response.headers != null
+                    ? response.headers : Collections.<String, String>emptyMap();
+            return Response.success(responseHeaders, HttpHeaderParser.parseCacheHeaders(response));
+        }
+
+        @Override
+        protected void deliverResponse(Map<String, String> response) {
+            listener.onResponse(response);
+        }
+    }
+}
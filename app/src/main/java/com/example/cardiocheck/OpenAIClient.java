@@ -4,59 +4,426 @@ package com.example.cardiocheck;
 
 import android.content.Context;
 import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
 
 // Esta línea le dice al código dónde encontrar el archivo BuildConfig.java que se creará
 
 import com.example.cardiocheck.models.BloodPressureReading;
 import com.example.cardiocheck.models.User;
+import com.example.cardiocheck.utils.ReadingPromptBuilder;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Cliente asíncrono de Cardio-IA.
+ *
+ * Todas las peticiones comparten un único OkHttpClient (pool de conexiones keep-alive y HTTP/2
+ * cuando el servidor lo admite) y devuelven un CompletableFuture que se completa en un hilo de
+ * OkHttp. Cada petición tiene un plazo total; cancelar el futuro cancela la llamada HTTP. Con
+ * bindToLifecycle las peticiones pendientes se cancelan al destruir la pantalla.
+ *
+ * Los errores completan el futuro con una AIException cuyo mensaje se puede mostrar al usuario.
+ */
 public class OpenAIClient {
 
+    private static final String TAG = "OpenAIClient";
     private static final String API_URL = "https://api.openai.com/v1/chat/completions";
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final String MODEL = "gpt-3.5-turbo";
+
+    /** Plazo total por petición (conexión, envío y respuesta completa). */
+    public static final long DEFAULT_DEADLINE_MS = 30_000;
+
+    private static final String SYSTEM_PROMPT = "Eres Cardio-IA, un asistente de salud virtual especializado en cardiología. Eres amable, empático y te comunicas en español usando un lenguaje claro y sencillo. Nunca mencionas que eres una IA. Tu objetivo es proporcionar consejos prácticos y tranquilizadores basados en el perfil y las mediciones del usuario.";
+
+    // Peticiones simultáneas al API como mucho; las demás esperan en la cola del Dispatcher
+    static final int MAX_CONCURRENT_REQUESTS = 3;
+
+    // Un solo cliente por proceso: las conexiones al API se reutilizan entre pantallas y peticiones
+    private static final OkHttpClient SHARED_HTTP = newHttpClientBuilder().build();
+
+    // Peticiones idénticas en curso en todo el proceso (cada pantalla tiene su propio OpenAIClient)
+    private static final ConcurrentHashMap<String, Flight> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    /** Plazo de una petición de análisis por lotes: la respuesta trae varios consejos. */
+    public static final long BATCH_DEADLINE_MS = 60_000;
+    /** Lecturas como mucho por petición de análisis por lotes. */
+    public static final int MAX_BATCH_READINGS = 25;
+
+    /** Plazo total de una respuesta en streaming: el texto va llegando mientras se genera. */
+    public static final long STREAM_DEADLINE_MS = 60_000;
+
+    /** Recibe los fragmentos de una respuesta en streaming según llegan (en un hilo de red). */
+    public interface StreamListener {
+        void onDelta(String delta);
+    }
+
+    /** Fallo de una petición de IA; getMessage() es apto para mostrarse en la UI. */
+    public static class AIException extends Exception {
+        public AIException(String userMessage) {
+            super(userMessage);
+        }
+
+        public AIException(String userMessage, Throwable cause) {
+            super(userMessage, cause);
+        }
+    }
+
+    static OkHttpClient.Builder newHttpClientBuilder() {
+        // Chat, historial y dashboard juntos no pueden superar MAX_CONCURRENT_REQUESTS llamadas;
+        // todas van al mismo host, así que el límite por host es el que manda
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_CONCURRENT_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_CONCURRENT_REQUESTS);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(20, TimeUnit.SECONDS)
+                .connectionPool(new ConnectionPool(4, 5, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+    }
+
+    private final OkHttpClient http;
+    private final String apiUrl;
+    private final String apiKey;
+    private final AIResponseCache cache; // null = sin caché
+    private final Set<CompletableFuture<?>> pending = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    // La pantalla a la que está ligado ya se destruyó: lo que se pida después se cancela en el acto
+    private volatile boolean closed;
 
     public OpenAIClient(Context context) {
+        this(SHARED_HTTP, API_URL, BuildConfig.OPENAI_API_KEY, AIResponseCache.getInstance(context));
     }
 
-    private String postChat(String prompt) throws Exception {
-        // Esta línea lee la API Key desde el archivo BuildConfig.java generado
-        String apiKey = BuildConfig.OPENAI_API_KEY;
+    // Permite apuntar a un servidor local (y prescindir de la caché) en las pruebas
+    OpenAIClient(OkHttpClient http, String apiUrl, String apiKey, AIResponseCache cache) {
+        this.http = http;
+        this.apiUrl = apiUrl;
+        this.apiKey = apiKey;
+        this.cache = cache;
+    }
+
+    /**
+     * Cancela las peticiones pendientes de este cliente cuando owner se destruye, y las que se pidan
+     * después (p. ej. desde un callback que llega tarde). Llamar en el hilo principal.
+     */
+    public OpenAIClient bindToLifecycle(LifecycleOwner owner) {
+        owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                closed = true;
+                cancelAll();
+            }
+        });
+        return this;
+    }
 
+    /** Cancela todas las peticiones en curso de este cliente (sus futuros terminan en CancellationException). */
+    public void cancelAll() {
+        for (CompletableFuture<?> future : pending) {
+            future.cancel(true);
+        }
+    }
+
+    // === UTILIDADES PARA LOS LLAMADORES ===
+
+    /** true si el futuro terminó porque se canceló (p. ej. la pantalla se cerró): no hay nada que mostrar. */
+    public static boolean isCancellation(Throwable error) {
+        return unwrap(error) instanceof CancellationException;
+    }
+
+    /** Mensaje para el usuario a partir del error con el que terminó un futuro. */
+    public static String userMessage(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof AIException) return cause.getMessage();
+        return "No se pudo obtener respuesta en este momento. Inténtalo de nuevo más tarde.";
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    // === PETICIÓN HTTP ===
+
+    CompletableFuture<String> postChat(String prompt) {
+        return postChat(prompt, DEFAULT_DEADLINE_MS);
+    }
+
+    /** Registra el futuro de un llamador para que cancelAll pueda cancelarlo. */
+    private CompletableFuture<String> track(CompletableFuture<String> future) {
+        pending.add(future);
+        future.whenComplete((text, error) -> pending.remove(future));
+        // Después de añadirlo: o lo ve cancelAll o ve aquí closed
+        if (closed) future.cancel(true);
+        return future;
+    }
+
+    /**
+     * Una sola llamada para todas las peticiones idénticas en curso: el primer llamador la inicia
+     * con start y los siguientes se suman a ella. Cada llamador recibe su propio futuro; cancelarlo
+     * solo cancela la llamada compartida cuando ya no queda nadie esperándola.
+     */
+    private CompletableFuture<String> singleFlight(String prompt, Supplier<CompletableFuture<String>> start) {
+        String key = AIResponseCache.keyFor(apiUrl, MODEL, SYSTEM_PROMPT, prompt);
+        boolean[] created = {false};
+        Flight flight = IN_FLIGHT.compute(key, (k, existing) -> {
+            if (existing != null && existing.join()) return existing;
+            // No hay llamada o la que había ya terminó o se abandonó: se inicia una nueva
+            Flight f = new Flight();
+            f.join();
+            created[0] = true;
+            return f;
+        });
+
+        CompletableFuture<String> caller = new CompletableFuture<>();
+        flight.shared.whenComplete((text, error) -> {
+            if (error != null) caller.completeExceptionally(error);
+            else caller.complete(text);
+        });
+        caller.whenComplete((text, error) -> {
+            if (caller.isCancelled()) flight.release(key);
+        });
+
+        if (created[0]) {
+            // Fuera de compute: la llamada puede completarse en el acto y quitarse del mapa
+            CompletableFuture<String> source = start.get();
+            flight.setSource(source);
+            source.whenComplete((text, error) -> {
+                IN_FLIGHT.remove(key, flight);
+                if (error != null) flight.shared.completeExceptionally(error);
+                else flight.shared.complete(text);
+            });
+        }
+        return track(caller);
+    }
+
+    private static final class Flight {
+        final CompletableFuture<String> shared = new CompletableFuture<>();
+        private int subscribers;
+        private CompletableFuture<String> source;
+        private boolean abandoned;
+
+        synchronized boolean join() {
+            if (abandoned || shared.isDone()) return false;
+            subscribers++;
+            return true;
+        }
+
+        synchronized void setSource(CompletableFuture<String> source) {
+            this.source = source;
+            if (abandoned) source.cancel(true);
+        }
+
+        // Un llamador se ha ido; si era el último, la llamada ya no le interesa a nadie
+        void release(String key) {
+            boolean last;
+            synchronized (this) {
+                last = --subscribers == 0;
+                if (last) abandoned = true;
+            }
+            if (!last) return;
+            IN_FLIGHT.remove(key, this);
+            synchronized (this) {
+                if (source != null) source.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * postChat pasando antes por la caché persistente. Solo las respuestas correctas se guardan;
+     * cancelar el futuro devuelto también cancela la petición de red si ya había empezado.
+     */
+    CompletableFuture<String> cachedChat(String prompt) {
+        if (cache == null) return postChat(prompt);
+        String key = AIResponseCache.keyFor(MODEL, SYSTEM_PROMPT, prompt);
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        cache.get(key).whenComplete((cached, cacheError) -> {
+            if (result.isDone()) return; // cancelada mientras se leía la caché
+            if (cached != null) {
+                result.complete(cached);
+                return;
+            }
+            CompletableFuture<String> network = postChat(prompt);
+            result.whenComplete((text, error) -> {
+                if (result.isCancelled()) network.cancel(true);
+            });
+            network.whenComplete((text, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    cache.put(key, text);
+                    result.complete(text);
+                }
+            });
+        });
+        return result;
+    }
+
+    CompletableFuture<String> postChat(String prompt, long deadlineMs) {
+        return enqueue(prompt, false, false, deadlineMs, (response, future) -> {
+            try (ResponseBody body = response.body()) {
+                future.complete(parseContent(body == null ? "" : body.string()));
+            }
+        });
+    }
+
+    /**
+     * Igual que postChat pero pidiendo la respuesta en streaming (server-sent events): cada
+     * fragmento de texto se entrega a listener en cuanto llega, en un hilo de OkHttp, y el futuro
+     * se completa con el texto completo al recibir "[DONE]".
+     */
+    CompletableFuture<String> streamChat(String prompt, long deadlineMs, StreamListener listener) {
+        return enqueue(prompt, true, false, deadlineMs, (response, future) -> {
+            StringBuilder text = new StringBuilder();
+            try (ResponseBody body = response.body()) {
+                if (body == null) throw new AIException("No se obtuvo una respuesta válida.");
+                BufferedSource source = body.source();
+                String line;
+                // Cada evento llega como una o varias líneas "data: {...}" separadas por una línea vacía
+                while (!future.isDone() && (line = source.readUtf8Line()) != null) {
+                    if (!line.startsWith("data:")) continue;
+                    String data = line.substring(5).trim();
+                    if (data.equals("[DONE]")) break;
+                    String delta = parseStreamDelta(data);
+                    if (!delta.isEmpty()) {
+                        text.append(delta);
+                        listener.onDelta(delta);
+                    }
+                }
+            }
+            future.complete(text.toString().trim());
+        });
+    }
+
+    /** postChat pidiendo al modelo un objeto JSON como respuesta (sin recortar ni cachear). */
+    CompletableFuture<String> postChatJson(String prompt, long deadlineMs) {
+        return enqueue(prompt, false, true, deadlineMs, (response, future) -> {
+            try (ResponseBody body = response.body()) {
+                future.complete(parseContent(body == null ? "" : body.string()));
+            }
+        });
+    }
+
+    private interface ResponseHandler {
+        void handle(Response response, CompletableFuture<String> future) throws IOException, JSONException, AIException;
+    }
+
+    private CompletableFuture<String> enqueue(String prompt, boolean stream, boolean jsonResponse, long deadlineMs,
+                                              ResponseHandler handler) {
         if (TextUtils.isEmpty(apiKey) || apiKey.equals("null")) {
-            return "No hay una clave de OpenAI configurada en la app.";
+            return failed("No hay una clave de OpenAI configurada en la app.");
         }
 
-        URL url = new URL(API_URL);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(15000);
-        conn.setReadTimeout(20000);
-        conn.setRequestMethod("POST");
-        conn.setDoInput(true);
-        conn.setDoOutput(true);
-        conn.setRequestProperty("Authorization", "Bearer " + apiKey);
-        conn.setRequestProperty("Content-Type", "application/json");
+        Request request;
+        try {
+            request = new Request.Builder()
+                    .url(apiUrl)
+                    .header("Authorization", "Bearer " + apiKey)
+                    .post(RequestBody.create(buildBody(prompt, stream, jsonResponse).toString(), JSON))
+                    .build();
+        } catch (JSONException e) {
+            return failed("No se pudo preparar la consulta.");
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Call call = http.newCall(request);
+        call.timeout().timeout(deadlineMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                future.completeExceptionally(new AIException(failureMessage(call, future), e));
+            }
 
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                try {
+                    if (!response.isSuccessful()) {
+                        try (ResponseBody body = response.body()) {
+                            String text = body == null ? "" : body.string();
+                            future.completeExceptionally(new AIException(parseError(text, response.code())));
+                        }
+                    } else {
+                        handler.handle(response, future);
+                    }
+                } catch (IOException e) {
+                    // Un stream cortado por el plazo o por cancelación llega aquí
+                    future.completeExceptionally(new AIException(call.isCanceled()
+                            ? failureMessage(call, future) : "No se obtuvo una respuesta válida.", e));
+                } catch (JSONException e) {
+                    future.completeExceptionally(new AIException("No se obtuvo una respuesta válida.", e));
+                } catch (AIException e) {
+                    future.completeExceptionally(e);
+                } catch (RuntimeException e) {
+                    // p. ej. un StreamListener que falla: el futuro no puede quedarse sin completar
+                    future.completeExceptionally(new AIException("No se obtuvo una respuesta válida.", e));
+                }
+            }
+        });
+        return future;
+    }
+
+    private static String failureMessage(Call call, CompletableFuture<?> future) {
+        return call.isCanceled() && !future.isCancelled()
+                ? "La respuesta está tardando demasiado. Inténtalo de nuevo más tarde."
+                : "No se pudo conectar con el servicio de IA. Revisa tu conexión.";
+    }
+
+    private static JSONObject buildBody(String prompt, boolean stream, boolean jsonResponse) throws JSONException {
         JSONObject body = new JSONObject();
-        body.put("model", "gpt-3.5-turbo");
+        body.put("model", MODEL);
+        if (stream) body.put("stream", true);
+        // Modo JSON: el modelo solo puede devolver un objeto JSON válido
+        if (jsonResponse) body.put("response_format", new JSONObject().put("type", "json_object"));
         JSONArray messages = new JSONArray();
 
         JSONObject systemMsg = new JSONObject();
         systemMsg.put("role", "system");
-        systemMsg.put("content", "Eres Cardio-IA, un asistente de salud virtual especializado en cardiología. Eres amable, empático y te comunicas en español usando un lenguaje claro y sencillo. Nunca mencionas que eres una IA. Tu objetivo es proporcionar consejos prácticos y tranquilizadores basados en el perfil y las mediciones del usuario.");
+        systemMsg.put("content", SYSTEM_PROMPT);
         messages.put(systemMsg);
 
         JSONObject userMsg = new JSONObject();
@@ -65,33 +432,20 @@ public class OpenAIClient {
         messages.put(userMsg);
 
         body.put("messages", messages);
+        return body;
+    }
 
-        OutputStream os = conn.getOutputStream();
-        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
-        writer.write(body.toString());
-        writer.flush();
-        writer.close();
-        os.close();
-
-        int code = conn.getResponseCode();
-        InputStream is = code >= 200 && code < 300 ? conn.getInputStream() : conn.getErrorStream();
-        BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = br.readLine()) != null) sb.append(line);
-        br.close();
-        conn.disconnect();
-
-        if (code >= 400) {
-            try {
-                JSONObject errorJson = new JSONObject(sb.toString()).getJSONObject("error");
-                return "Error de OpenAI: " + errorJson.getString("message");
-            } catch (Exception e) {
-                return "No se pudo obtener respuesta de OpenAI. Código de error: " + code;
-            }
+    private static String parseError(String body, int code) {
+        try {
+            JSONObject errorJson = new JSONObject(body).getJSONObject("error");
+            return "Error de OpenAI: " + errorJson.getString("message");
+        } catch (Exception e) {
+            return "No se pudo obtener respuesta de OpenAI. Código de error: " + code;
         }
+    }
 
-        JSONObject json = new JSONObject(sb.toString());
+    private static String parseContent(String body) throws JSONException, AIException {
+        JSONObject json = new JSONObject(body);
         JSONArray choices = json.optJSONArray("choices");
         if (choices != null && choices.length() > 0) {
             JSONObject msg = choices.getJSONObject(0).optJSONObject("message");
@@ -99,100 +453,182 @@ public class OpenAIClient {
                 return msg.optString("content", "").trim();
             }
         }
-        return "No se obtuvo una respuesta válida.";
+        throw new AIException("No se obtuvo una respuesta válida.");
     }
 
-    // (El resto de los métodos de la clase no necesitan cambios)
-
-    public String getAdviceForSelected(List<BloodPressureReading> readings, User user) {
-        try {
-            if (readings == null || readings.isEmpty()) {
-                return "Selecciona al menos una medición para analizar.";
-            }
-            if (user == null) {
-                return "No se pudo cargar el perfil del usuario para el análisis.";
-            }
-
-            StringBuilder userProfile = new StringBuilder();
-            userProfile.append("Analiza el caso del siguiente paciente:");
-            userProfile.append("- Nombre: ").append(user.getFullName()).append(" ");
-            if (user.getAge() > 0) userProfile.append("- Edad: ").append(user.getAge()).append(" años ");
-            if (!TextUtils.isEmpty(user.getGender())) userProfile.append("- Género: ").append(user.getGender()).append(" ");
-            if (user.getWeight() > 0) userProfile.append("- Peso: ").append(String.format(Locale.US, "%.1f", user.getWeight())).append(" kg ");
-            if (user.getHeight() > 0) userProfile.append("- Altura: ").append(String.format(Locale.US, "%.1f", user.getHeight())).append(" cm ");
-            if (!TextUtils.isEmpty(user.getMedicalConditions())) userProfile.append("- Condiciones Médicas Declaradas: ").append(user.getMedicalConditions()).append(" ");
-            if (!TextUtils.isEmpty(user.getMedications())) userProfile.append("- Medicación Actual: ").append(user.getMedications()).append(" ");
-
-            StringBuilder readingsData = new StringBuilder();
-            readingsData.append("Estas son las mediciones de presión arterial que ha seleccionado para el análisis:");
-            for (BloodPressureReading r : readings) {
-                readingsData.append(String.format(Locale.US, "- Sistólica %d, Diastólica %d, Pulso %d. (Registrado el %s) ",
-                        r.getSystolic(), r.getDiastolic(), r.getPulse(), r.getTimestamp()));
-            }
+    // Fragmento de texto de un evento de streaming: choices[0].delta.content, o "" si no trae texto
+    static String parseStreamDelta(String data) throws JSONException {
+        JSONArray choices = new JSONObject(data).optJSONArray("choices");
+        if (choices == null || choices.length() == 0) return "";
+        JSONObject delta = choices.getJSONObject(0).optJSONObject("delta");
+        return delta == null ? "" : delta.optString("content", "");
+    }
 
-            String instructions = " Basado en todo este contexto (perfil y mediciones), actúa como su asistente de salud personal. Por favor, proporciónale un consejo claro, accionable y empático. Dirígete a él por su nombre. Tu respuesta debe ser concisa (máximo 3-4 frases).";
-            String finalPrompt = userProfile.toString() + readingsData.toString() + instructions;
+    private static <T> CompletableFuture<T> failed(String userMessage) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new AIException(userMessage));
+        return future;
+    }
 
-            return postChat(finalPrompt);
+    // === CONSULTAS ===
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "No se pudo obtener el consejo en este momento. Error: " + e.getMessage();
+    public CompletableFuture<String> getAdviceForSelected(List<BloodPressureReading> readings, User user) {
+        if (readings == null || readings.isEmpty()) {
+            return failed("Selecciona al menos una medición para analizar.");
         }
+        if (user == null) {
+            return failed("No se pudo cargar el perfil del usuario para el análisis.");
+        }
+
+        StringBuilder userProfile = new StringBuilder();
+        userProfile.append("Analiza el caso del siguiente paciente:");
+        userProfile.append("- Nombre: ").append(user.getFullName()).append(" ");
+        if (user.getAge() > 0) userProfile.append("- Edad: ").append(user.getAge()).append(" años ");
+        if (!TextUtils.isEmpty(user.getGender())) userProfile.append("- Género: ").append(user.getGender()).append(" ");
+        if (user.getWeight() > 0) userProfile.append("- Peso: ").append(String.format(Locale.US, "%.1f", user.getWeight())).append(" kg ");
+        if (user.getHeight() > 0) userProfile.append("- Altura: ").append(String.format(Locale.US, "%.1f", user.getHeight())).append(" cm ");
+        if (!TextUtils.isEmpty(user.getMedicalConditions())) userProfile.append("- Condiciones Médicas Declaradas: ").append(user.getMedicalConditions()).append(" ");
+        if (!TextUtils.isEmpty(user.getMedications())) userProfile.append("- Medicación Actual: ").append(user.getMedications()).append(" ");
+
+        // Las lecturas recientes van tal cual y las antiguas resumidas por día, sin pasar del presupuesto
+        // (el builder las ordena por fecha: la misma selección da el mismo prompt y la misma clave de caché)
+        ReadingPromptBuilder.Result readingsData = ReadingPromptBuilder.build(readings, ReadingPromptBuilder.DEFAULT_TOKEN_BUDGET);
+
+        String instructions = " Basado en todo este contexto (perfil y mediciones), actúa como su asistente de salud personal. Por favor, proporciónale un consejo claro, accionable y empático. Dirígete a él por su nombre. Tu respuesta debe ser concisa (máximo 3-4 frases).";
+        String finalPrompt = userProfile.toString() +
+                " Estas son las mediciones de presión arterial que ha seleccionado para el análisis:\n" +
+                readingsData.text + instructions;
+        Log.d(TAG, "Prompt de " + readings.size() + " mediciones: ~" +
+                ReadingPromptBuilder.estimateTokens(SYSTEM_PROMPT + finalPrompt) + " tokens (" +
+                readingsData.verbatimReadings + " literales, " + readingsData.summarizedDays + " días resumidos, " +
+                readingsData.groupedDays + " días agrupados)");
+
+        return singleFlight(finalPrompt, () -> cachedChat(finalPrompt));
     }
 
-    public String getAdviceForSingleReading(BloodPressureReading reading, User user) {
-        try {
-            if (reading == null || user == null) {
-                return "Faltan datos para el análisis (usuario o medición).";
-            }
+    public CompletableFuture<String> getAdviceForSingleReading(BloodPressureReading reading, User user) {
+        if (reading == null || user == null) {
+            return failed("Faltan datos para el análisis (usuario o medición).");
+        }
 
-            StringBuilder userProfile = new StringBuilder();
-            userProfile.append("Analiza el caso del siguiente paciente: ");
-            userProfile.append("- Nombre: ").append(user.getFullName()).append(" ");
-            if (user.getAge() > 0) userProfile.append("- Edad: ").append(user.getAge()).append(" años ");
-            if (!TextUtils.isEmpty(user.getMedicalConditions())) userProfile.append("- Condiciones Médicas: ").append(user.getMedicalConditions()).append(" ");
+        StringBuilder userProfile = new StringBuilder();
+        userProfile.append("Analiza el caso del siguiente paciente: ");
+        userProfile.append("- Nombre: ").append(user.getFullName()).append(" ");
+        if (user.getAge() > 0) userProfile.append("- Edad: ").append(user.getAge()).append(" años ");
+        if (!TextUtils.isEmpty(user.getMedicalConditions())) userProfile.append("- Condiciones Médicas: ").append(user.getMedicalConditions()).append(" ");
 
-            String readingData = String.format(Locale.US, " El paciente acaba de registrar la siguiente medición: Sistólica %d, Diastólica %d, Pulso %d. ", reading.getSystolic(), reading.getDiastolic(), reading.getPulse());
-            String instructions = " Basado en su perfil y esta nueva lectura, dale un consejo inmediato, breve (2-3 frases), y accionable. Dirígete a él por su nombre.";
-            String finalPrompt = userProfile.toString() + readingData + instructions;
+        String readingData = String.format(Locale.US, " El paciente acaba de registrar la siguiente medición: Sistólica %d, Diastólica %d, Pulso %d. ", reading.getSystolic(), reading.getDiastolic(), reading.getPulse());
+        String instructions = " Basado en su perfil y esta nueva lectura, dale un consejo inmediato, breve (2-3 frases), y accionable. Dirígete a él por su nombre.";
+        String finalPrompt = userProfile.toString() + readingData + instructions;
 
-            return postChat(finalPrompt);
+        return singleFlight(finalPrompt, () -> cachedChat(finalPrompt));
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "No se pudo obtener el consejo en este momento. Error: " + e.getMessage();
+    /**
+     * Analiza varias lecturas de un mismo usuario con una sola petición por cada MAX_BATCH_READINGS
+     * lecturas. El modelo responde en JSON con un consejo por id de lectura; el mapa resultante solo
+     * contiene las lecturas para las que llegó un consejo válido (las demás se pueden reintentar).
+     */
+    public CompletableFuture<Map<Long, String>> getAdviceForBatch(List<BloodPressureReading> readings, User user) {
+        if (readings == null || readings.isEmpty() || user == null) {
+            return failed("Faltan datos para el análisis (usuario o medición).");
         }
-    }
 
-    public String getAnalysisRecommendation(List<BloodPressureReading> lastReadings) {
-        try {
-            if (lastReadings == null || lastReadings.isEmpty()) {
-                return "Aún no hay lecturas suficientes para analizar.";
+        List<CompletableFuture<Map<Long, String>>> parts = new ArrayList<>();
+        for (int from = 0; from < readings.size(); from += MAX_BATCH_READINGS) {
+            List<BloodPressureReading> chunk = readings.subList(from, Math.min(readings.size(), from + MAX_BATCH_READINGS));
+            Set<Long> ids = new HashSet<>();
+            for (BloodPressureReading r : chunk) ids.add(r.getId());
+            String prompt;
+            try {
+                prompt = batchPrompt(chunk, user);
+            } catch (JSONException e) {
+                return failed("No se pudo preparar la consulta.");
             }
-            int n = Math.min(3, lastReadings.size());
-            StringBuilder b = new StringBuilder();
-            for (int i = 0; i < n; i++) {
-                BloodPressureReading r = lastReadings.get(i);
-                b.append(String.format(Locale.US, "- Sistólica %d, Diastólica %d, Pulso %d. ", r.getSystolic(), r.getDiastolic(), r.getPulse()));
+            parts.add(track(postChatJson(prompt, BATCH_DEADLINE_MS)).thenApply(content -> {
+                try {
+                    return parseBatchAdvice(content, ids);
+                } catch (JSONException e) {
+                    throw new CompletionException(new AIException("No se obtuvo una respuesta válida.", e));
+                }
+            }));
+        }
+
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).handle((ignored, error) -> {
+            // Un bloque fallido no invalida los demás: se devuelve lo que haya llegado
+            Map<Long, String> merged = new HashMap<>();
+            for (CompletableFuture<Map<Long, String>> part : parts) {
+                if (!part.isCompletedExceptionally()) merged.putAll(part.join());
             }
+            if (merged.isEmpty() && error != null) throw new CompletionException(unwrap(error));
+            return merged;
+        });
+    }
 
-            String prompt = "Analiza estas últimas mediciones de un paciente: " + b.toString() +
-                    " Proporciona un análisis muy breve (1 o 2 frases), empático y una recomendación práctica. Usa un lenguaje sencillo.";
+    private static String batchPrompt(List<BloodPressureReading> readings, User user) throws JSONException {
+        JSONArray items = new JSONArray();
+        for (BloodPressureReading r : readings) {
+            items.put(new JSONObject()
+                    .put("id", r.getId())
+                    .put("sistolica", r.getSystolic())
+                    .put("diastolica", r.getDiastolic())
+                    .put("pulso", r.getPulse()));
+        }
+        StringBuilder profile = new StringBuilder();
+        profile.append("Paciente: ").append(user.getFullName());
+        if (user.getAge() > 0) profile.append(", ").append(user.getAge()).append(" años");
+        if (!TextUtils.isEmpty(user.getMedicalConditions())) profile.append(", condiciones médicas: ").append(user.getMedicalConditions());
+
+        return profile + ". Estas son varias mediciones de presión arterial pendientes de revisar: " + items +
+                " Para cada medición, dale un consejo breve (1-2 frases), empático y accionable, dirigiéndote a él por su nombre." +
+                " Responde solo con un objeto JSON con la forma {\"recomendaciones\":[{\"id\":<id>,\"consejo\":\"...\"}]}" +
+                " con exactamente un elemento por cada id recibido.";
+    }
 
-            return postChat(prompt);
-        } catch (Exception e) {
-            return "No se pudo obtener el análisis en este momento.";
+    /** Consejos por id de lectura; ignora ids que no se pidieron y consejos vacíos. */
+    static Map<Long, String> parseBatchAdvice(String content, Set<Long> expectedIds) throws JSONException {
+        Map<Long, String> result = new HashMap<>();
+        JSONArray items = new JSONObject(content).optJSONArray("recomendaciones");
+        if (items == null) return result;
+        for (int i = 0; i < items.length(); i++) {
+            JSONObject item = items.optJSONObject(i);
+            if (item == null || !item.has("id")) continue;
+            long id = item.optLong("id", -1);
+            String advice = item.optString("consejo", "").trim();
+            if (expectedIds.contains(id) && !advice.isEmpty()) result.put(id, advice);
         }
+        return result;
     }
 
-    public String getChatResponse(String userQuestion) {
-        try {
-            String prompt = "El usuario tiene la siguiente duda de salud: '" + userQuestion +
-                    "'. Responde como un asistente de salud amable, dando información general y recomendando siempre consultar a un médico para casos específicos. Tu respuesta debe ser breve y en español.";
-            return postChat(prompt);
-        } catch (Exception e) {
-            return "Estoy teniendo dificultades para responder ahora mismo. Inténtalo de nuevo más tarde.";
+    public CompletableFuture<String> getAnalysisRecommendation(List<BloodPressureReading> lastReadings) {
+        if (lastReadings == null || lastReadings.isEmpty()) {
+            return failed("Aún no hay lecturas suficientes para analizar.");
+        }
+        int n = Math.min(3, lastReadings.size());
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            BloodPressureReading r = lastReadings.get(i);
+            b.append(String.format(Locale.US, "- Sistólica %d, Diastólica %d, Pulso %d. ", r.getSystolic(), r.getDiastolic(), r.getPulse()));
         }
+
+        String prompt = "Analiza estas últimas mediciones de un paciente: " + b.toString() +
+                " Proporciona un análisis muy breve (1 o 2 frases), empático y una recomendación práctica. Usa un lenguaje sencillo.";
+
+        return singleFlight(prompt, () -> cachedChat(prompt));
+    }
+
+    public CompletableFuture<String> getChatResponse(String userQuestion) {
+        String prompt = chatPrompt(userQuestion);
+        return singleFlight(prompt, () -> postChat(prompt));
+    }
+
+    /** Como getChatResponse, pero entregando el texto a listener a medida que se genera. */
+    public CompletableFuture<String> streamChatResponse(String userQuestion, StreamListener listener) {
+        return track(streamChat(chatPrompt(userQuestion), STREAM_DEADLINE_MS, listener));
+    }
+
+    private static String chatPrompt(String userQuestion) {
+        return "El usuario tiene la siguiente duda de salud: '" + userQuestion +
+                "'. Responde como un asistente de salud amable, dando información general y recomendando siempre consultar a un médico para casos específicos. Tu respuesta debe ser breve y en español.";
     }
-}
\ No newline at end of file
+}
@@ -11,7 +11,9 @@ import android.graphics.pdf.PdfDocument;
 import android.os.Environment;
 
 import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.ReadingStats;
 import com.example.cardiocheck.models.User;
+import com.example.cardiocheck.utils.DateLabelCache;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.utils.ViewPortHandler;
 
@@ -29,7 +31,6 @@ import java.util.Locale;
 public class PDFGenerator {
 
     private final Context context;
-    private final OpenAIClient aiClient;
     private final DatabaseHelper db;
 
     // Colores profesionales
@@ -42,14 +43,15 @@ public class PDFGenerator {
 
     public PDFGenerator(Context context) {
         this.context = context.getApplicationContext();
-        this.aiClient = new OpenAIClient(this.context);
-        this.db = new DatabaseHelper(this.context);
+        this.db = DatabaseHelper.getInstance(this.context);
     }
 
     public File generateAdvancedPDF(List<BloodPressureReading> selectedReadings, String userEmail) {
         try {
             // Obtener datos del usuario
             User user = db.getUserByEmail(userEmail);
+            // Las lecturas ya están en memoria: una pasada sobre la lista, sin volver a SQLite
+            ReadingStats stats = ReadingStats.of(selectedReadings);
 
             PdfDocument doc = new PdfDocument();
             int width = 595; // A4 width in points
@@ -60,13 +62,13 @@ public class PDFGenerator {
             // Página 1: Portada y resumen
             PdfDocument.Page page1 = createPage(doc, width, height, currentPage++);
             Canvas canvas1 = page1.getCanvas();
-            drawCoverPage(canvas1, width, height, margin, user, selectedReadings);
+            drawCoverPage(canvas1, width, height, margin, user, selectedReadings, stats);
             doc.finishPage(page1);
 
             // Página 2: Perfil médico y estadísticas
             PdfDocument.Page page2 = createPage(doc, width, height, currentPage++);
             Canvas canvas2 = page2.getCanvas();
-            drawProfileAndStats(canvas2, width, height, margin, user, selectedReadings);
+            drawProfileAndStats(canvas2, width, height, margin, user, selectedReadings, stats);
             doc.finishPage(page2);
 
             // Página 3: Gráficas y tendencias
@@ -78,7 +80,7 @@ public class PDFGenerator {
             // Página 4: Tabla detallada y recomendaciones
             PdfDocument.Page page4 = createPage(doc, width, height, currentPage++);
             Canvas canvas4 = page4.getCanvas();
-            drawDetailedData(canvas4, width, height, margin, selectedReadings, user);
+            drawDetailedData(canvas4, width, height, margin, selectedReadings, user, stats);
             doc.finishPage(page4);
 
             // Guardar archivo
@@ -106,7 +108,7 @@ public class PDFGenerator {
         return doc.startPage(pageInfo);
     }
 
-    private void drawCoverPage(Canvas canvas, int width, int height, int margin, User user, List<BloodPressureReading> readings) {
+    private void drawCoverPage(Canvas canvas, int width, int height, int margin, User user, List<BloodPressureReading> readings, ReadingStats stats) {
         Paint titlePaint = createPaint(28, COLOR_PRIMARY, true);
         Paint subtitlePaint = createPaint(18, COLOR_TEXT, false);
         Paint bodyPaint = createPaint(14, COLOR_TEXT, false);
@@ -152,9 +154,8 @@ public class PDFGenerator {
         y += 40;
 
         if (!readings.isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            String startDate = dateFormat.format(new Date(readings.get(readings.size() - 1).getTimestamp()));
-            String endDate = dateFormat.format(new Date(readings.get(0).getTimestamp()));
+            String startDate = DateLabelCache.FULL_DATE.format(readings.get(readings.size() - 1).getTimestamp());
+            String endDate = DateLabelCache.FULL_DATE.format(readings.get(0).getTimestamp());
 
             canvas.drawText("Desde: " + startDate, margin, y, bodyPaint);
             y += 25;
@@ -171,8 +172,8 @@ public class PDFGenerator {
 
         if (!readings.isEmpty()) {
             BloodPressureReading latest = readings.get(0);
-            int avgSystolic = (int) readings.stream().mapToInt(BloodPressureReading::getSystolic).average().orElse(0);
-            int avgDiastolic = (int) readings.stream().mapToInt(BloodPressureReading::getDiastolic).average().orElse(0);
+            int avgSystolic = (int) stats.getSystolic().getAvg();
+            int avgDiastolic = (int) stats.getDiastolic().getAvg();
 
             canvas.drawText("• Última medición: " + latest.getSystolic() + "/" + latest.getDiastolic() + " mmHg", margin, y, bodyPaint);
             y += 25;
@@ -186,7 +187,7 @@ public class PDFGenerator {
         canvas.drawText("Generado: " + currentDate, margin, height - margin - 20, datePaint);
     }
 
-    private void drawProfileAndStats(Canvas canvas, int width, int height, int margin, User user, List<BloodPressureReading> readings) {
+    private void drawProfileAndStats(Canvas canvas, int width, int height, int margin, User user, List<BloodPressureReading> readings, ReadingStats stats) {
         Paint titlePaint = createPaint(20, COLOR_PRIMARY, true);
         Paint subtitlePaint = createPaint(16, COLOR_TEXT, true);
         Paint bodyPaint = createPaint(12, COLOR_TEXT, false);
@@ -238,14 +239,13 @@ public class PDFGenerator {
             canvas.drawText("ESTADÍSTICAS DE PRESIÓN ARTERIAL", margin, y, subtitlePaint);
             y += 30;
 
-            // Calcular estadísticas
-            int minSystolic = readings.stream().mapToInt(BloodPressureReading::getSystolic).min().orElse(0);
-            int maxSystolic = readings.stream().mapToInt(BloodPressureReading::getSystolic).max().orElse(0);
-            int avgSystolic = (int) readings.stream().mapToInt(BloodPressureReading::getSystolic).average().orElse(0);
+            int minSystolic = stats.getSystolic().getMin();
+            int maxSystolic = stats.getSystolic().getMax();
+            int avgSystolic = (int) stats.getSystolic().getAvg();
 
-            int minDiastolic = readings.stream().mapToInt(BloodPressureReading::getDiastolic).min().orElse(0);
-            int maxDiastolic = readings.stream().mapToInt(BloodPressureReading::getDiastolic).max().orElse(0);
-            int avgDiastolic = (int) readings.stream().mapToInt(BloodPressureReading::getDiastolic).average().orElse(0);
+            int minDiastolic = stats.getDiastolic().getMin();
+            int maxDiastolic = stats.getDiastolic().getMax();
+            int avgDiastolic = (int) stats.getDiastolic().getAvg();
 
             canvas.drawText("Sistólica - Mín: " + minSystolic + " | Máx: " + maxSystolic + " | Promedio: " + avgSystolic, margin, y, bodyPaint);
             y += 20;
@@ -322,7 +322,7 @@ public class PDFGenerator {
         }
     }
 
-    private void drawDetailedData(Canvas canvas, int width, int height, int margin, List<BloodPressureReading> readings, User user) {
+    private void drawDetailedData(Canvas canvas, int width, int height, int margin, List<BloodPressureReading> readings, User user, ReadingStats stats) {
         Paint titlePaint = createPaint(20, COLOR_PRIMARY, true);
         Paint headerPaint = createPaint(10, COLOR_TEXT, true);
         Paint dataPaint = createPaint(9, COLOR_TEXT, false);
@@ -351,17 +351,13 @@ public class PDFGenerator {
         y += 20;
 
         // Datos de la tabla
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yy", Locale.getDefault());
-        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
-
         int maxRows = Math.min(25, readings.size()); // Máximo 25 filas por página
 
         for (int i = 0; i < maxRows; i++) {
             BloodPressureReading reading = readings.get(i);
-            Date date = new Date(reading.getTimestamp());
 
-            canvas.drawText(dateFormat.format(date), col1, y, dataPaint);
-            canvas.drawText(timeFormat.format(date), col2, y, dataPaint);
+            canvas.drawText(DateLabelCache.DAY_MONTH_YEAR.format(reading.getTimestamp()), col1, y, dataPaint);
+            canvas.drawText(DateLabelCache.time(reading.getTimestamp()), col2, y, dataPaint);
             canvas.drawText(String.valueOf(reading.getSystolic()), col3, y, dataPaint);
             canvas.drawText(String.valueOf(reading.getDiastolic()), col4, y, dataPaint);
             canvas.drawText(String.valueOf(reading.getPulse()), col5, y, dataPaint);
@@ -377,7 +373,7 @@ public class PDFGenerator {
             canvas.drawText("RECOMENDACIONES MÉDICAS", margin, y, titlePaint);
             y += 30;
 
-            String recommendations = generateRecommendations(readings, user);
+            String recommendations = generateRecommendations(stats, user);
             drawWrappedText(canvas, recommendations, margin, y, width - 2 * margin, dataPaint);
         }
     }
@@ -465,31 +461,8 @@ public class PDFGenerator {
         return "Hipertensión Grado II";
     }
 
-    private String generateRecommendations(List<BloodPressureReading> readings, User user) {
-        StringBuilder recommendations = new StringBuilder();
-
-        if (!readings.isEmpty()) {
-            int avgSystolic = (int) readings.stream().mapToInt(BloodPressureReading::getSystolic).average().orElse(0);
-            int avgDiastolic = (int) readings.stream().mapToInt(BloodPressureReading::getDiastolic).average().orElse(0);
-
-            recommendations.append("Basado en sus mediciones:\n\n");
-
-            if (avgSystolic < 120 && avgDiastolic < 80) {
-                recommendations.append("• Mantener hábitos saludables actuales\n");
-                recommendations.append("• Continuar con ejercicio regular\n");
-            } else if (avgSystolic >= 140 || avgDiastolic >= 90) {
-                recommendations.append("• Consultar con médico especialista\n");
-                recommendations.append("• Considerar evaluación cardiovascular\n");
-                recommendations.append("• Monitorear diariamente\n");
-            } else {
-                recommendations.append("• Mantener control regular\n");
-                recommendations.append("• Revisar hábitos alimenticios\n");
-            }
-
-            recommendations.append("\nEste reporte no reemplaza la consulta médica profesional.");
-        }
-
-        return recommendations.toString();
+    private String generateRecommendations(ReadingStats stats, User user) {
+        return LocalAdviceEngine.recommendations(stats);
     }
 
     // Método público original mejorado
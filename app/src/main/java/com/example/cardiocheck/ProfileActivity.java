@@ -23,7 +23,7 @@ import java.util.Locale;
 public class ProfileActivity extends AppCompatActivity {
 
     // --- Helpers ---
-    private DatabaseHelper db;
+    private CardioRepository repository;
     private User currentUser;
 
     // --- Vistas de la UI ---
@@ -39,7 +39,7 @@ public class ProfileActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_profile);
 
-        db = new DatabaseHelper(this);
+        repository = CardioRepository.getInstance(this);
 
         initializeViews();
         setupEventListeners();
@@ -88,7 +88,12 @@ public class ProfileActivity extends AppCompatActivity {
             return;
         }
 
-        currentUser = db.getUserByEmail(userEmail);
+        repository.getUserByEmail(userEmail, this::showUserProfile);
+    }
+
+    private void showUserProfile(User user) {
+        if (isDestroyed()) return;
+        currentUser = user;
         if (currentUser == null) {
             Toast.makeText(this, "Error: No se encontraron los datos del perfil.", Toast.LENGTH_SHORT).show();
             finish();
@@ -127,6 +132,7 @@ public class ProfileActivity extends AppCompatActivity {
     }
 
     private void saveProfile() {
+        if (currentUser == null) return; // el perfil aún se está cargando
         String fullName = etFullName.getText().toString().trim();
         if (TextUtils.isEmpty(fullName)) {
             etFullName.setError("El nombre no puede estar vacío.");
@@ -153,15 +159,15 @@ public class ProfileActivity extends AppCompatActivity {
         currentUser.setDoctorName(etDoctorName.getText().toString().trim());
         currentUser.setEmergencyContact(etEmergencyContact.getText().toString().trim());
 
-        boolean isUpdated = db.updateUserProfile(currentUser);
-
-        if (isUpdated) {
-            SharedPreferencesHelper.setUserFullName(this, fullName);
-            Toast.makeText(this, "Perfil guardado con éxito.", Toast.LENGTH_SHORT).show();
-            finish();
-        } else {
-            Toast.makeText(this, "Error: No se pudo guardar el perfil.", Toast.LENGTH_SHORT).show();
-        }
+        repository.updateUserProfile(currentUser, isUpdated -> {
+            if (Boolean.TRUE.equals(isUpdated)) {
+                SharedPreferencesHelper.setUserFullName(this, fullName);
+                Toast.makeText(this, "Perfil guardado con éxito.", Toast.LENGTH_SHORT).show();
+                finish();
+            } else {
+                Toast.makeText(this, "Error: No se pudo guardar el perfil.", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void calculateAndShowBMI() {
@@ -10,31 +10,59 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.utils.DateLabelCache;
 
-import java.text.DateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Adaptador del historial con carga por páginas: cuando el usuario se acerca al final de lo cargado
+ * se pide la siguiente página al PageLoader. La selección se guarda por id de lectura, no por
+ * posición, para que siga siendo válida al añadir páginas.
+ */
 public class ReadingAdapter extends RecyclerView.Adapter<ReadingAdapter.VH> {
 
     public interface OnSelectionChangedListener { void onSelectionChanged(int count); }
 
-    private final List<BloodPressureReading> data;
-    private final Set<Integer> selectedPositions = new HashSet<>();
+    /** Solicita la página que sigue a la última lectura cargada (null para la primera). */
+    public interface PageLoader { void loadPage(BloodPressureReading after); }
+
+    // Cuántas filas antes del final se dispara la carga de la siguiente página
+    private static final int PREFETCH_DISTANCE = 10;
+
+    private final List<BloodPressureReading> data = new ArrayList<>();
+    private final Set<Long> selectedIds = new HashSet<>();
     private final OnSelectionChangedListener listener;
+    private final PageLoader pageLoader;
+    private boolean hasMore = true;
+    private boolean loading = false;
 
-    public ReadingAdapter(List<BloodPressureReading> data, OnSelectionChangedListener l) {
-        this.data = data != null ? data : new ArrayList<BloodPressureReading>();
+    public ReadingAdapter(PageLoader pageLoader, OnSelectionChangedListener l) {
+        this.pageLoader = pageLoader;
         this.listener = l;
     }
 
+    /** Carga la primera página. */
+    public void start() {
+        requestNextPage();
+    }
+
+    /** Añade una página recibida; una página más corta que pageSize indica el final del historial. */
+    public void appendPage(List<BloodPressureReading> page, int pageSize) {
+        loading = false;
+        if (page == null) return; // error de lectura: se reintentará al volver a hacer scroll
+        hasMore = page.size() >= pageSize;
+        int start = data.size();
+        data.addAll(page);
+        notifyItemRangeInserted(start, page.size());
+    }
+
     public List<BloodPressureReading> getSelected() {
         List<BloodPressureReading> res = new ArrayList<>();
-        for (Integer pos : selectedPositions) {
-            if (pos >= 0 && pos < data.size()) res.add(data.get(pos));
+        for (BloodPressureReading r : data) {
+            if (selectedIds.contains(r.getId())) res.add(r);
         }
         return res;
     }
@@ -49,24 +77,38 @@ public class ReadingAdapter extends RecyclerView.Adapter<ReadingAdapter.VH> {
     @Override
     public void onBindViewHolder(@NonNull VH h, int position) {
         BloodPressureReading r = data.get(position);
-        DateFormat df = DateFormat.getDateTimeInstance();
-        h.tvDate.setText(df.format(new Date(r.getTimestamp())));
+        h.tvDate.setText(DateLabelCache.FULL_DATE.format(r.getTimestamp()) + " " + DateLabelCache.time(r.getTimestamp()));
         h.tvValues.setText(r.getSystolic() + "/" + r.getDiastolic() + " mmHg — " + r.getPulse() + " bpm");
         h.tvAI.setText(r.getAiRecommendation() == null ? "" : r.getAiRecommendation());
-        h.cb.setChecked(selectedPositions.contains(position));
-        h.itemView.setOnClickListener(v -> toggle(position));
+        h.cb.setOnCheckedChangeListener(null); // evita que una vista reciclada cambie otra selección
+        h.cb.setChecked(selectedIds.contains(r.getId()));
+        h.itemView.setOnClickListener(v -> toggle(h.getAdapterPosition()));
         h.cb.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            if (isChecked) selectedPositions.add(h.getAdapterPosition());
-            else selectedPositions.remove(h.getAdapterPosition());
-            if (listener != null) listener.onSelectionChanged(selectedPositions.size());
+            int pos = h.getAdapterPosition();
+            if (pos == RecyclerView.NO_POSITION) return;
+            long id = data.get(pos).getId();
+            if (isChecked) selectedIds.add(id);
+            else selectedIds.remove(id);
+            if (listener != null) listener.onSelectionChanged(selectedIds.size());
         });
+
+        if (position >= data.size() - PREFETCH_DISTANCE) {
+            requestNextPage();
+        }
+    }
+
+    private void requestNextPage() {
+        if (loading || !hasMore || pageLoader == null) return;
+        loading = true;
+        pageLoader.loadPage(data.isEmpty() ? null : data.get(data.size() - 1));
     }
 
     private void toggle(int position) {
-        if (selectedPositions.contains(position)) selectedPositions.remove(position);
-        else selectedPositions.add(position);
+        if (position == RecyclerView.NO_POSITION) return;
+        long id = data.get(position).getId();
+        if (!selectedIds.remove(id)) selectedIds.add(id);
         notifyItemChanged(position);
-        if (listener != null) listener.onSelectionChanged(selectedPositions.size());
+        if (listener != null) listener.onSelectionChanged(selectedIds.size());
     }
 
     @Override
@@ -83,4 +125,3 @@ public class ReadingAdapter extends RecyclerView.Adapter<ReadingAdapter.VH> {
         }
     }
 }
-
@@ -0,0 +1,259 @@
+package com.example.cardiocheck;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Importación masiva de historiales (CSV o JSON) exportados de otros tensiómetros o apps.
+ *
+ * El fichero se lee en streaming, nunca entero en memoria. Las filas válidas se insertan en lotes
+ * de BATCH_SIZE, cada uno en una única transacción que también guarda el punto de control; si la
+ * importación se interrumpe, al repetirla con el mismo fichero se saltan las filas ya procesadas.
+ * Las filas de un instante que el usuario ya tiene guardado se omiten, de modo que volver a importar
+ * un fichero completo no duplica mediciones. Debe ejecutarse fuera del hilo principal.
+ *
+ * CSV: primera fila de cabecera con las columnas systolic, diastolic, pulse y timestamp (en
+ * cualquier orden, separadas por coma o punto y coma).
+ * JSON: array de objetos con esos mismos campos.
+ * El timestamp puede ser epoch en milisegundos o en segundos, o una fecha "yyyy-MM-dd HH:mm[:ss]";
+ * las fechas anteriores a MIN_TIMESTAMP se rechazan.
+ */
+public class ReadingImporter {
+
+    public static final int BATCH_SIZE = 500;
+    // Un epoch menor no puede estar en milisegundos (sería de 1973): se interpreta en segundos
+    static final long MIN_EPOCH_MILLIS = 100_000_000_000L;
+    // 2000-01-01 UTC: nada anterior es una medición real
+    static final long MIN_TIMESTAMP = 946_684_800_000L;
+
+    public interface ProgressListener {
+        /** Se invoca tras cada lote confirmado, en el hilo de la importación. */
+        void onProgress(long rowsProcessed, int imported, int rejected);
+    }
+
+    public static class Result {
+        public final int imported;
+        public final int rejected;
+        public final int duplicates; // filas omitidas porque la lectura ya estaba guardada
+        public final long resumedFrom; // filas que ya se habían importado en un intento anterior
+
+        Result(int imported, int rejected, int duplicates, long resumedFrom) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.duplicates = duplicates;
+            this.resumedFrom = resumedFrom;
+        }
+    }
+
+    private final DatabaseHelper db;
+    private final SimpleDateFormat dateTimeFormat = strictFormat("yyyy-MM-dd HH:mm:ss");
+    private final SimpleDateFormat dateMinuteFormat = strictFormat("yyyy-MM-dd HH:mm");
+
+    public ReadingImporter(DatabaseHelper db) {
+        this.db = db;
+    }
+
+    public Result importCsv(InputStream in, String email, String checkpointKey, ProgressListener listener) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) return new Result(0, 0, 0, 0);
+
+        String separator = header.indexOf(';') >= 0 ? ";" : ",";
+        int[] columns = mapHeader(header.split(separator));
+        Batch batch = new Batch(checkpointKey, listener);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) continue;
+            if (batch.skipAlreadyImported()) continue;
+            String[] fields = line.split(separator);
+            BloodPressureReading r = null;
+            try {
+                r = new BloodPressureReading(0, email,
+                        Integer.parseInt(field(fields, columns[0])),
+                        Integer.parseInt(field(fields, columns[1])),
+                        Integer.parseInt(field(fields, columns[2])),
+                        parseTimestamp(field(fields, columns[3])), null);
+            } catch (NumberFormatException | ParseException | ArrayIndexOutOfBoundsException ignored) {
+                // fila mal formada: se cuenta como rechazada
+            }
+            batch.add(r);
+        }
+        return batch.finish();
+    }
+
+    public Result importJson(InputStream in, String email, String checkpointKey, ProgressListener listener) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            Batch batch = new Batch(checkpointKey, listener);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (batch.skipAlreadyImported()) {
+                    reader.skipValue();
+                    continue;
+                }
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue(); // elemento que no es un objeto: fila rechazada
+                    batch.add(null);
+                    continue;
+                }
+                batch.add(readJsonReading(reader, email));
+            }
+            reader.endArray();
+            return batch.finish();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private BloodPressureReading readJsonReading(JsonReader reader, String email) throws IOException {
+        int systolic = -1, diastolic = -1, pulse = -1;
+        long timestamp = -1;
+        boolean malformed = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName().toLowerCase(Locale.ROOT);
+            if (!isReadingField(name)) {
+                reader.skipValue();
+                continue;
+            }
+            // El valor se consume siempre antes de interpretarlo: un valor erróneo rechaza la fila
+            // sin dejar el lector a mitad de un token
+            String value = nextScalar(reader);
+            if (value == null) {
+                malformed = true;
+                continue;
+            }
+            try {
+                switch (name) {
+                    case "systolic": systolic = Integer.parseInt(value.trim()); break;
+                    case "diastolic": diastolic = Integer.parseInt(value.trim()); break;
+                    case "pulse": pulse = Integer.parseInt(value.trim()); break;
+                    default: timestamp = parseTimestamp(value);
+                }
+            } catch (NumberFormatException | ParseException e) {
+                malformed = true;
+            }
+        }
+        reader.endObject();
+        if (malformed || timestamp < 0) return null;
+        return new BloodPressureReading(0, email, systolic, diastolic, pulse, timestamp, null);
+    }
+
+    private static boolean isReadingField(String name) {
+        return name.equals("systolic") || name.equals("diastolic") || name.equals("pulse") || name.equals("timestamp");
+    }
+
+    /** Número o cadena como texto; null (ya consumido) si es null, booleano, objeto o array. */
+    private static String nextScalar(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) return reader.nextString();
+        reader.skipValue();
+        return null;
+    }
+
+    /** Devuelve la posición de systolic, diastolic, pulse y timestamp en la cabecera. */
+    private static int[] mapHeader(String[] header) throws IOException {
+        String[] expected = {"systolic", "diastolic", "pulse", "timestamp"};
+        int[] columns = {-1, -1, -1, -1};
+        for (int i = 0; i < header.length; i++) {
+            String name = header[i].trim().toLowerCase(Locale.ROOT);
+            for (int j = 0; j < expected.length; j++) {
+                if (expected[j].equals(name)) columns[j] = i;
+            }
+        }
+        for (int j = 0; j < expected.length; j++) {
+            if (columns[j] < 0) throw new IOException("Falta la columna '" + expected[j] + "' en la cabecera");
+        }
+        return columns;
+    }
+
+    private static String field(String[] fields, int index) {
+        return fields[index].trim();
+    }
+
+    private long parseTimestamp(String value) throws ParseException {
+        value = value.trim();
+        long timestamp;
+        if (!value.isEmpty() && Character.isDigit(value.charAt(0)) && value.indexOf('-') < 0) {
+            timestamp = Long.parseLong(value);
+            if (timestamp < MIN_EPOCH_MILLIS) timestamp *= 1000;
+        } else {
+            timestamp = (value.length() > 16 ? dateTimeFormat : dateMinuteFormat).parse(value).getTime();
+        }
+        if (timestamp < MIN_TIMESTAMP) throw new ParseException("Fecha fuera de rango: " + value, 0);
+        return timestamp;
+    }
+
+    private static SimpleDateFormat strictFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setLenient(false);
+        return format;
+    }
+
+    /** Acumula filas válidas y confirma un lote (con su punto de control) cada BATCH_SIZE filas. */
+    private class Batch {
+        private final String checkpointKey;
+        private final ProgressListener listener;
+        private final List<BloodPressureReading> pending = new ArrayList<>(BATCH_SIZE);
+        private final long resumedFrom;
+        private long rowsSeen;      // filas del origen recorridas, incluidas las saltadas
+        private long rowsProcessed; // filas del origen ya reflejadas en el punto de control
+        private int imported;
+        private int rejected;
+        private int duplicates;
+
+        Batch(String checkpointKey, ProgressListener listener) {
+            this.checkpointKey = checkpointKey;
+            this.listener = listener;
+            this.resumedFrom = checkpointKey == null ? 0 : db.getImportCheckpoint(checkpointKey);
+            this.rowsProcessed = resumedFrom;
+        }
+
+        boolean skipAlreadyImported() {
+            if (rowsSeen < resumedFrom) {
+                rowsSeen++;
+                return true;
+            }
+            return false;
+        }
+
+        void add(BloodPressureReading r) {
+            rowsSeen++;
+            if (r == null || !BloodPressureClassifier.isValidReading(r.getSystolic(), r.getDiastolic(), r.getPulse())) {
+                rejected++;
+            } else {
+                pending.add(r);
+            }
+            if (rowsSeen - rowsProcessed >= BATCH_SIZE) flush();
+        }
+
+        private void flush() {
+            int inserted = db.insertReadingsBatch(pending, checkpointKey, rowsSeen);
+            imported += inserted;
+            duplicates += pending.size() - inserted;
+            pending.clear();
+            rowsProcessed = rowsSeen;
+            if (listener != null) listener.onProgress(rowsProcessed, imported, rejected);
+        }
+
+        Result finish() {
+            if (rowsSeen > rowsProcessed) flush();
+            if (checkpointKey != null) db.clearImportCheckpoint(checkpointKey);
+            return new Result(imported, rejected, duplicates, resumedFrom);
+        }
+    }
+}
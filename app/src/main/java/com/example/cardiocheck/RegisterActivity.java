@@ -23,13 +23,13 @@ public class RegisterActivity extends AppCompatActivity {
     private AutoCompleteTextView spinnerGender;
     private CheckBox cbDiabetes, cbHypertension;
 
-    private DatabaseHelper db;
+    private CardioRepository repository;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_register);
-        db = new DatabaseHelper(this);
+        repository = CardioRepository.getInstance(this);
 
         // Inicializar todas las vistas
         etFullName = findViewById(R.id.etFullName);
@@ -124,14 +124,13 @@ public class RegisterActivity extends AppCompatActivity {
         newUser.setEmergencyContact("");
 
         // --- 4. Intentar registrar en la BD ---
-        boolean isRegistered = db.registerUser(newUser);
-
-        if (isRegistered) {
-            Toast.makeText(this, "¡Cuenta creada con éxito! Ahora inicia sesión.", Toast.LENGTH_LONG).show();
-            finish(); // Cierra la actividad de registro y vuelve al login
-        } else {
-            Toast.makeText(this, "No se pudo registrar. Es posible que el email ya exista.", Toast.LENGTH_LONG).show();
-
-        }
+        repository.registerUser(newUser, isRegistered -> {
+            if (Boolean.TRUE.equals(isRegistered)) {
+                Toast.makeText(this, "¡Cuenta creada con éxito! Ahora inicia sesión.", Toast.LENGTH_LONG).show();
+                finish(); // Cierra la actividad de registro y vuelve al login
+            } else {
+                Toast.makeText(this, "No se pudo registrar. Es posible que el email ya exista.", Toast.LENGTH_LONG).show();
+            }
+        });
     }
 }
@@ -2,24 +2,28 @@ package com.example.cardiocheck;
 
 import android.app.AlertDialog;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.text.InputType;
 import android.text.TextUtils;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
 import androidx.cardview.widget.CardView;
 import androidx.core.content.ContextCompat;
 
-import com.example.cardiocheck.models.BloodPressureReading;
 import com.example.cardiocheck.models.User;
 import com.example.cardiocheck.utils.SharedPreferencesHelper;
 import com.example.cardiocheck.utils.SmartNotificationManager;
@@ -27,7 +31,7 @@ import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.io.File;
-import java.util.List;
+import java.io.InputStream;
 import java.util.Locale;
 
 /**
@@ -36,7 +40,7 @@ import java.util.Locale;
 public class SettingsActivity extends AppCompatActivity {
 
     // --- Helpers ---
-    private DatabaseHelper db;
+    private CardioRepository repository;
     private User currentUser;
 
     // --- Vistas de la UI (Sección Perfil) ---
@@ -50,18 +54,21 @@ public class SettingsActivity extends AppCompatActivity {
 
     // --- Vistas de la UI (Sección Ajustes) ---
     private SwitchMaterial switchDarkMode, switchSmartAnalysis;
-    private LinearLayout layoutReminders, layoutExport, layoutClearData;
-    private TextView tvReminderStatus;
+    private LinearLayout layoutReminders, layoutExport, layoutImport, layoutN8nWebhook, layoutClearData;
+    private TextView tvReminderStatus, tvImportStatus;
     private Button btnLogout;
     private ImageButton btnBack, btnSave;
 
+    private final ActivityResultLauncher<String[]> importPicker =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::importReadings);
+    private boolean importRunning;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_settings);
 
-        db = new DatabaseHelper(this);
+        repository = CardioRepository.getInstance(this);
 
         initializeViews();
         setupEventListeners();
@@ -99,6 +106,9 @@ public class SettingsActivity extends AppCompatActivity {
         layoutReminders = findViewById(R.id.layoutReminders);
         tvReminderStatus = findViewById(R.id.tvReminderStatus);
         layoutExport = findViewById(R.id.layoutExport);
+        layoutImport = findViewById(R.id.layoutImport);
+        tvImportStatus = findViewById(R.id.tvImportStatus);
+        layoutN8nWebhook = findViewById(R.id.layoutN8nWebhook);
         layoutClearData = findViewById(R.id.layoutClearData);
         btnLogout = findViewById(R.id.btnLogout);
 
@@ -125,12 +135,17 @@ public class SettingsActivity extends AppCompatActivity {
             SharedPreferencesHelper.setSmartAnalysisEnabled(this, isChecked);
             Toast.makeText(this, isChecked ? "Análisis inteligente activado" : "Análisis inteligente desactivado", Toast.LENGTH_SHORT).show();
             if (isChecked) {
-                new SmartNotificationManager(this).setupIntelligentReminders(currentUser.getEmail());
+                String email = SharedPreferencesHelper.getUserEmail(this);
+                repository.runInBackground(() -> new SmartNotificationManager(this).setupIntelligentReminders(email));
             }
         });
 
         layoutReminders.setOnClickListener(v -> startActivity(new Intent(this, RemindersActivity.class)));
         layoutExport.setOnClickListener(v -> exportData());
+        layoutImport.setOnClickListener(v -> {
+            if (!importRunning) importPicker.launch(new String[]{"text/*", "application/json"});
+        });
+        layoutN8nWebhook.setOnClickListener(v -> showN8nWebhookDialog());
         layoutClearData.setOnClickListener(v -> showClearDataDialog());
         btnLogout.setOnClickListener(v -> showLogoutDialog());
     }
@@ -150,7 +165,17 @@ public class SettingsActivity extends AppCompatActivity {
             return;
         }
 
-        currentUser = db.getUserByEmail(userEmail);
+        // --- Cargar Ajustes (lógica de SettingsActivity) ---
+        switchDarkMode.setChecked(SharedPreferencesHelper.isDarkModeEnabled(this));
+        switchSmartAnalysis.setChecked(SharedPreferencesHelper.isSmartAnalysisEnabled(this));
+        updateReminderStatus();
+
+        repository.getUserByEmail(userEmail, user -> showUserProfile(userEmail, user));
+    }
+
+    private void showUserProfile(String userEmail, User user) {
+        if (isDestroyed()) return;
+        currentUser = user;
         if (currentUser == null) {
             Toast.makeText(this, "Error: No se encontraron datos del perfil.", Toast.LENGTH_SHORT).show();
             // Crear un usuario vacío para evitar crashes
@@ -169,17 +194,13 @@ public class SettingsActivity extends AppCompatActivity {
         etDoctorName.setText(currentUser.getDoctorName());
         etEmergencyContact.setText(currentUser.getEmergencyContact());
 
-        // --- Cargar Ajustes (lógica de SettingsActivity) ---
-        switchDarkMode.setChecked(SharedPreferencesHelper.isDarkModeEnabled(this));
-        switchSmartAnalysis.setChecked(SharedPreferencesHelper.isSmartAnalysisEnabled(this));
-
         // Actualizar estados visuales
         updateProfileStatus();
-        updateReminderStatus();
         calculateAndShowBMI();
     }
 
     private void saveProfile() {
+        if (currentUser == null) return; // el perfil aún se está cargando
         String fullName = etFullName.getText().toString().trim();
         if (TextUtils.isEmpty(fullName)) {
             etFullName.setError("El nombre no puede estar vacío.");
@@ -206,17 +227,17 @@ public class SettingsActivity extends AppCompatActivity {
         currentUser.setDoctorName(etDoctorName.getText().toString().trim());
         currentUser.setEmergencyContact(etEmergencyContact.getText().toString().trim());
 
-        boolean isUpdated = db.updateUserProfile(currentUser);
-
-        if (isUpdated) {
-            SharedPreferencesHelper.setUserFullName(this, fullName); // Actualizar el nombre en sesión
-            Toast.makeText(this, "Perfil guardado con éxito.", Toast.LENGTH_SHORT).show();
-            // Recargar los estados visuales que dependen del perfil
-            updateProfileStatus();
-            calculateAndShowBMI();
-        } else {
-            Toast.makeText(this, "Error: No se pudo guardar el perfil.", Toast.LENGTH_SHORT).show();
-        }
+        repository.updateUserProfile(currentUser, isUpdated -> {
+            if (Boolean.TRUE.equals(isUpdated)) {
+                SharedPreferencesHelper.setUserFullName(this, fullName); // Actualizar el nombre en sesión
+                Toast.makeText(this, "Perfil guardado con éxito.", Toast.LENGTH_SHORT).show();
+                // Recargar los estados visuales que dependen del perfil
+                updateProfileStatus();
+                calculateAndShowBMI();
+            } else {
+                Toast.makeText(this, "Error: No se pudo guardar el perfil.", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     // --- Métodos de UI y Lógica Auxiliar (Movidos de ambas clases) ---
@@ -278,22 +299,92 @@ public class SettingsActivity extends AppCompatActivity {
 
     private void exportData() {
         // ... (lógica idéntica a la de SettingsActivity original)
-        List<BloodPressureReading> readings = db.getAllReadings(currentUser.getEmail());
-        if (readings.isEmpty()) {
-            Toast.makeText(this, "No hay datos para exportar.", Toast.LENGTH_SHORT).show();
-            return;
-        }
-        new Thread(() -> {
-            File pdfFile = new PDFGenerator(this).generateAdvancedPDF(readings, currentUser.getEmail());
-            runOnUiThread(() -> {
-                if (pdfFile != null) {
-                    // Lógica para compartir el archivo...
-                    Toast.makeText(this, "Reporte generado: " + pdfFile.getName(), Toast.LENGTH_LONG).show();
-                } else {
-                    Toast.makeText(this, "Error al generar el reporte.", Toast.LENGTH_SHORT).show();
-                }
-            });
-        }).start();
+        String email = SharedPreferencesHelper.getUserEmail(this);
+        repository.getAllNumericReadings(email, readings -> { // el PDF no usa el texto de IA
+            if (readings == null || readings.isEmpty()) {
+                Toast.makeText(this, "No hay datos para exportar.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            new Thread(() -> {
+                File pdfFile = new PDFGenerator(this).generateAdvancedPDF(readings, email);
+                runOnUiThread(() -> {
+                    if (pdfFile != null) {
+                        // Lógica para compartir el archivo...
+                        Toast.makeText(this, "Reporte generado: " + pdfFile.getName(), Toast.LENGTH_LONG).show();
+                    } else {
+                        Toast.makeText(this, "Error al generar el reporte.", Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }).start();
+        });
+    }
+
+    private void importReadings(Uri uri) {
+        if (uri == null) return;
+        String email = SharedPreferencesHelper.getUserEmail(this);
+        String name = uri.getLastPathSegment() == null ? "" : uri.getLastPathSegment().toLowerCase(Locale.ROOT);
+        boolean json = name.endsWith(".json") || "application/json".equals(getContentResolver().getType(uri));
+        // La misma URI y usuario reanudan una importación interrumpida
+        String checkpointKey = email + "|" + uri;
+        ReadingImporter importer = new ReadingImporter(repository.getDatabase());
+        ReadingImporter.ProgressListener progress = (rows, imported, rejected) -> runOnUiThread(() ->
+                tvImportStatus.setText(String.format(Locale.getDefault(), "📥 Importando... %d filas (%d rechazadas)", rows, rejected)));
+
+        importRunning = true;
+        tvImportStatus.setText("📥 Importando...");
+        // En el hilo de escritura para no intercalarse con otras escrituras de la app
+        repository.write(() -> {
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) return null;
+                return json ? importer.importJson(in, email, checkpointKey, progress)
+                        : importer.importCsv(in, email, checkpointKey, progress);
+            } finally {
+                // Las lecturas importadas (también las de un intento interrumpido) esperan su análisis
+                AIAnalysisWorker.schedule(getApplicationContext());
+            }
+        }, result -> {
+            importRunning = false;
+            if (isDestroyed()) return;
+            tvImportStatus.setText("📥 Importar Historial (CSV/JSON)");
+            if (result == null) {
+                Toast.makeText(this, "Error al importar el archivo. Vuelve a intentarlo para continuar.", Toast.LENGTH_LONG).show();
+            } else {
+                Toast.makeText(this, String.format(Locale.getDefault(),
+                        "Importadas %d mediciones, %d ya existían, %d filas rechazadas.",
+                        result.imported, result.duplicates, result.rejected), Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void showN8nWebhookDialog() {
+        EditText etUrl = new EditText(this);
+        etUrl.setHint("URL del webhook");
+        etUrl.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_URI);
+        etUrl.setText(SharedPreferencesHelper.getN8nWebhookUrl(this));
+        EditText etSecret = new EditText(this);
+        etSecret.setHint("Secreto de firma");
+        etSecret.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD);
+        etSecret.setText(SharedPreferencesHelper.getN8nWebhookSecret(this));
+
+        LinearLayout form = new LinearLayout(this);
+        form.setOrientation(LinearLayout.VERTICAL);
+        int padding = Math.round(20 * getResources().getDisplayMetrics().density);
+        form.setPadding(padding, padding / 2, padding, 0);
+        form.addView(etUrl);
+        form.addView(etSecret);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Webhook de n8n")
+                .setMessage("Vacíos se usan los valores de la compilación. El secreto debe coincidir con CARDIOCHECK_WEBHOOK_SECRET en n8n.")
+                .setView(form)
+                .setPositiveButton("Guardar", (dialog, which) -> {
+                    SharedPreferencesHelper.setN8nWebhook(this, etUrl.getText().toString().trim(),
+                            etSecret.getText().toString());
+                    N8nSyncClient.reloadConfig(this);
+                    Toast.makeText(this, "Webhook guardado.", Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
     }
 
     private void showClearDataDialog() {
@@ -302,8 +393,8 @@ public class SettingsActivity extends AppCompatActivity {
                 .setTitle("⚠️ Eliminar Datos")
                 .setMessage("Esta acción eliminará permanentemente todas tus mediciones. ¿Estás seguro?")
                 .setPositiveButton("Eliminar", (dialog, which) -> {
-                    int deletedCount = db.clearAllReadings(currentUser.getEmail());
-                    Toast.makeText(this, "Se eliminaron " + deletedCount + " mediciones.", Toast.LENGTH_SHORT).show();
+                    repository.clearAllReadings(SharedPreferencesHelper.getUserEmail(this), deletedCount ->
+                            Toast.makeText(this, "Se eliminaron " + (deletedCount == null ? 0 : deletedCount) + " mediciones.", Toast.LENGTH_SHORT).show());
                 })
                 .setNegativeButton("Cancelar", null)
                 .show();
@@ -0,0 +1,87 @@
+package com.example.cardiocheck;
+
+import android.content.Context;
+
+import androidx.annotation.WorkerThread;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cuándo sustituir la ejecución programada de un worker que se reprograma a sí mismo al terminar
+ * (AIAnalysisWorker, N8nOutboxWorker). Sustituir una ejecución en curso la detiene y su onStopped
+ * corta las peticiones en vuelo, así que solo se adelanta la que aún no ha empezado.
+ */
+final class UniqueWorkPolicy {
+
+    // Etiqueta con la hora prevista de la ejecución encolada, para saber si conviene adelantarla
+    static final String TAG_RUN_AT = "run-at:";
+
+    private UniqueWorkPolicy() {
+    }
+
+    static String runAtTag(long runAt) {
+        return TAG_RUN_AT + runAt;
+    }
+
+    /**
+     * Política para encolar en uniqueWork una ejecución prevista en runAt. KEEP si no hay que
+     * encolar nada (también si se interrumpe la consulta).
+     */
+    @WorkerThread
+    static ExistingWorkPolicy forSchedule(Context context, String uniqueWork, long runAt) {
+        try {
+            return policyFor(WorkManager.getInstance(context).getWorkInfosForUniqueWork(uniqueWork).get(), runAt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ExistingWorkPolicy.KEEP;
+        } catch (ExecutionException e) {
+            return ExistingWorkPolicy.APPEND_OR_REPLACE; // sin estado: encadenar nunca cancela nada
+        }
+    }
+
+    /**
+     * Política dado el estado actual del trabajo único. Una ejecución en curso sin otra encadenada
+     * detrás se mantiene: aún puede tener peticiones en vuelo y al terminar se reprograma leyendo la
+     * base de datos. Una pendiente (encolada, o encadenada tras la que termina, que ya no tiene nada
+     * en vuelo) solo se sustituye si la nueva es anterior.
+     */
+    static ExistingWorkPolicy policyFor(List<WorkInfo> current, long runAt) {
+        boolean running = false;
+        long pendingAt = Long.MAX_VALUE;
+        boolean pending = false;
+        for (WorkInfo info : current) {
+            switch (info.getState()) {
+                case RUNNING:
+                    running = true;
+                    break;
+                case ENQUEUED:
+                case BLOCKED:
+                    pending = true;
+                    pendingAt = Math.min(pendingAt, runAt(info));
+                    break;
+                default:
+                    break; // terminada: no cuenta
+            }
+        }
+        if (!pending) return running ? ExistingWorkPolicy.KEEP : ExistingWorkPolicy.REPLACE;
+        return runAt < pendingAt ? ExistingWorkPolicy.REPLACE : ExistingWorkPolicy.KEEP;
+    }
+
+    /** Hora prevista según la etiqueta TAG_RUN_AT; sin ella se considera que conviene adelantarla. */
+    private static long runAt(WorkInfo info) {
+        for (String tag : info.getTags()) {
+            if (tag.startsWith(TAG_RUN_AT)) {
+                try {
+                    return Long.parseLong(tag.substring(TAG_RUN_AT.length()));
+                } catch (NumberFormatException ignored) {
+                    // etiqueta ajena: se sigue buscando
+                }
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.cardiocheck;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Firma HMAC-SHA256 de las peticiones al webhook de n8n (nodo "x-signature").
+ *
+ * Se firma "timestamp.nonce." seguido del cuerpo tal como va por la red (comprimido o no), y la
+ * firma viaja en X-Signature como "v1=<hex>". El nodo "Verify signature" del flujo rechaza firmas
+ * que no cuadran, marcas de tiempo fuera de MAX_SKEW_MS y nonces ya vistos (reenvíos).
+ *
+ * La clave se prepara una sola vez: cada hilo guarda su propio Mac ya inicializado (Mac no es
+ * seguro entre hilos) y doFinal lo deja listo para la siguiente petición.
+ */
+public final class WebhookSigner {
+
+    static final String ALGORITHM = "HmacSHA256";
+    static final String HEADER_SIGNATURE = "X-Signature";
+    static final String HEADER_TIMESTAMP = "X-CardioCheck-Timestamp";
+    static final String HEADER_NONCE = "X-CardioCheck-Nonce";
+    static final String SIGNATURE_VERSION = "v1=";
+
+    /** Diferencia máxima de reloj que acepta el flujo; fuera de ella la petición se rechaza. */
+    static final long MAX_SKEW_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int NONCE_BYTES = 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec key;
+    // ThreadLocal.withInitial necesita API 26
+    private final ThreadLocal<Mac> mac = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            return newMac(key);
+        }
+    };
+
+    private WebhookSigner(SecretKeySpec key) {
+        this.key = key;
+    }
+
+    /** Firmante para el secreto compartido con n8n, o null si no hay secreto (peticiones sin firmar). */
+    public static WebhookSigner of(String secret) {
+        if (secret == null || secret.isEmpty()) return null;
+        WebhookSigner signer = new WebhookSigner(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        signer.mac.get(); // un secreto o algoritmo inválido falla aquí y no en el primer envío
+        return signer;
+    }
+
+    /** Añade a headers la marca de tiempo, un nonce nuevo y la firma de body. */
+    public void sign(byte[] body, Map<String, String> headers) {
+        long timestamp = System.currentTimeMillis();
+        String nonce = newNonce();
+        headers.put(HEADER_TIMESTAMP, Long.toString(timestamp));
+        headers.put(HEADER_NONCE, nonce);
+        headers.put(HEADER_SIGNATURE, SIGNATURE_VERSION + signature(timestamp, nonce, body));
+    }
+
+    /** HMAC en hexadecimal de "timestamp.nonce.body", sin copiar el cuerpo. */
+    String signature(long timestamp, String nonce, byte[] body) {
+        Mac m = mac.get();
+        m.update((timestamp + "." + nonce + ".").getBytes(StandardCharsets.UTF_8));
+        m.update(body);
+        return hex(m.doFinal());
+    }
+
+    static String newNonce() {
+        byte[] bytes = new byte[NONCE_BYTES];
+        RANDOM.nextBytes(bytes);
+        return hex(bytes);
+    }
+
+    static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo preparar " + ALGORITHM, e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            out[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.cardiocheck.models;
+
+/**
+ * Análisis de IA pendiente de una lectura (cola persistente ai_jobs).
+ */
+public class AIJob {
+    private final long readingId;
+    private final String email;
+    private final int attempts;
+
+    public AIJob(long readingId, String email, int attempts) {
+        this.readingId = readingId;
+        this.email = email;
+        this.attempts = attempts;
+    }
+
+    public long getReadingId() { return readingId; }
+    public String getEmail() { return email; }
+    /** Intentos fallidos hasta ahora. */
+    public int getAttempts() { return attempts; }
+}
@@ -0,0 +1,37 @@
+package com.example.cardiocheck.models;
+
+/**
+ * Entrega pendiente (o fallida definitivamente) de una lectura al webhook de n8n (tabla n8n_outbox).
+ */
+public class OutboxEntry {
+    private final long id;
+    private final long readingId;
+    private final String email;
+    private final String idempotencyKey;
+    private final int attempts;
+    private final long nextAttemptAt;
+    private final long createdAt;
+    private final String lastError;
+
+    public OutboxEntry(long id, long readingId, String email, String idempotencyKey, int attempts,
+                       long nextAttemptAt, long createdAt, String lastError) {
+        this.id = id;
+        this.readingId = readingId;
+        this.email = email;
+        this.idempotencyKey = idempotencyKey;
+        this.attempts = attempts;
+        this.nextAttemptAt = nextAttemptAt;
+        this.createdAt = createdAt;
+        this.lastError = lastError;
+    }
+
+    public long getId() { return id; }
+    public long getReadingId() { return readingId; }
+    public String getEmail() { return email; }
+    public String getIdempotencyKey() { return idempotencyKey; }
+    /** Intentos fallidos hasta ahora. */
+    public int getAttempts() { return attempts; }
+    public long getNextAttemptAt() { return nextAttemptAt; }
+    public long getCreatedAt() { return createdAt; }
+    public String getLastError() { return lastError; }
+}
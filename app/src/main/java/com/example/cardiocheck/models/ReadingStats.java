@@ -0,0 +1,81 @@
+package com.example.cardiocheck.models;
+
+import java.util.List;
+
+/**
+ * Estadísticas agregadas (conteo, promedio, mínimo, máximo y desviación estándar)
+ * de sistólica, diastólica y pulso en una ventana de tiempo.
+ */
+public class ReadingStats {
+    private final int count;
+    private final Metric systolic;
+    private final Metric diastolic;
+    private final Metric pulse;
+
+    /** Valores agregados de una sola magnitud. */
+    public static class Metric {
+        private final double avg;
+        private final int min;
+        private final int max;
+        private final double stdDev;
+
+        public Metric(double avg, int min, int max, double stdDev) {
+            this.avg = avg;
+            this.min = min;
+            this.max = max;
+            this.stdDev = stdDev;
+        }
+
+        /** Construye la métrica a partir de suma y suma de cuadrados (desviación poblacional). */
+        public static Metric fromSums(int count, double sum, double sumSquares, int min, int max) {
+            if (count <= 0) return new Metric(0, 0, 0, 0);
+            double avg = sum / count;
+            double variance = Math.max(0, sumSquares / count - avg * avg);
+            return new Metric(avg, min, max, Math.sqrt(variance));
+        }
+
+        public double getAvg() { return avg; }
+        public int getAvgRounded() { return (int) Math.round(avg); }
+        public int getMin() { return min; }
+        public int getMax() { return max; }
+        public double getStdDev() { return stdDev; }
+    }
+
+    public ReadingStats(int count, Metric systolic, Metric diastolic, Metric pulse) {
+        this.count = count;
+        this.systolic = systolic;
+        this.diastolic = diastolic;
+        this.pulse = pulse;
+    }
+
+    public static ReadingStats empty() {
+        Metric zero = new Metric(0, 0, 0, 0);
+        return new ReadingStats(0, zero, zero, zero);
+    }
+
+    /** Calcula las estadísticas en una sola pasada sobre lecturas ya cargadas en memoria. */
+    public static ReadingStats of(List<BloodPressureReading> readings) {
+        if (readings == null || readings.isEmpty()) return empty();
+        int n = readings.size();
+        double sSum = 0, sSq = 0, dSum = 0, dSq = 0, pSum = 0, pSq = 0;
+        int sMin = Integer.MAX_VALUE, sMax = Integer.MIN_VALUE;
+        int dMin = Integer.MAX_VALUE, dMax = Integer.MIN_VALUE;
+        int pMin = Integer.MAX_VALUE, pMax = Integer.MIN_VALUE;
+        for (BloodPressureReading r : readings) {
+            int s = r.getSystolic(), d = r.getDiastolic(), p = r.getPulse();
+            sSum += s; sSq += (double) s * s; sMin = Math.min(sMin, s); sMax = Math.max(sMax, s);
+            dSum += d; dSq += (double) d * d; dMin = Math.min(dMin, d); dMax = Math.max(dMax, d);
+            pSum += p; pSq += (double) p * p; pMin = Math.min(pMin, p); pMax = Math.max(pMax, p);
+        }
+        return new ReadingStats(n,
+                Metric.fromSums(n, sSum, sSq, sMin, sMax),
+                Metric.fromSums(n, dSum, dSq, dMin, dMax),
+                Metric.fromSums(n, pSum, pSq, pMin, pMax));
+    }
+
+    public int getCount() { return count; }
+    public boolean isEmpty() { return count == 0; }
+    public Metric getSystolic() { return systolic; }
+    public Metric getDiastolic() { return diastolic; }
+    public Metric getPulse() { return pulse; }
+}
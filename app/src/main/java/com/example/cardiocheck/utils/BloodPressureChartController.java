@@ -0,0 +1,191 @@
+package com.example.cardiocheck.utils;
+
+import android.content.Context;
+
+import com.example.cardiocheck.R;
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.github.mikephil.charting.charts.LineChart;
+import com.github.mikephil.charting.components.Description;
+import com.github.mikephil.charting.components.XAxis;
+import com.github.mikephil.charting.components.YAxis;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Controla la gráfica de presión arterial del dashboard durante toda la vida de la pantalla.
+ *
+ * Los estilos, el eje Y y las líneas de referencia se configuran una sola vez al crearlo. Cambiar
+ * de periodo (setReadings) reemplaza la serie; guardar una medición (append) solo añade una
+ * entrada a cada LineDataSet y vuelve a calcular los ejes si la lectura amplía el rango de X.
+ * append solo vale para series de lecturas sueltas; si la serie son medias por intervalo
+ * (getReadingsInRange) hay que usar replaceNewestBucket con la media ya recalculada.
+ */
+public class BloodPressureChartController {
+
+    private final LineChart chart;
+    private final LineDataSet systolicDataSet;
+    private final LineDataSet diastolicDataSet;
+    private final Context context;
+    private ChartHelper.TimeSeries series;
+    private ChartHelper.ViewportDownsampler sampler;
+
+    public BloodPressureChartController(Context context, LineChart chart) {
+        this.context = context;
+        this.chart = chart;
+
+        // Configurar descripción
+        Description description = new Description();
+        description.setText("");
+        chart.setDescription(description);
+
+        // Configurar interacción
+        chart.setTouchEnabled(true);
+        chart.setDragEnabled(true);
+        chart.setScaleEnabled(true);
+        chart.setPinchZoom(true);
+
+        systolicDataSet = createDataSet("Sistólica", R.color.bp_stage1);
+        diastolicDataSet = createDataSet("Diastólica", R.color.primary_blue);
+
+        // Configurar eje Y izquierdo
+        YAxis leftAxis = chart.getAxisLeft();
+        leftAxis.setDrawGridLines(true);
+        leftAxis.setGridColor(context.getResources().getColor(R.color.divider, null));
+        leftAxis.setTextColor(context.getResources().getColor(R.color.text_secondary, null));
+        leftAxis.setAxisMinimum(50f);
+        leftAxis.setAxisMaximum(200f);
+
+        // Agregar líneas de referencia para límites normales (una sola vez)
+        leftAxis.removeAllLimitLines();
+        leftAxis.addLimitLine(ChartHelper.createLimitLine(context, 120f, "Normal Sistólica", R.color.bp_normal));
+        leftAxis.addLimitLine(ChartHelper.createLimitLine(context, 80f, "Normal Diastólica", R.color.bp_optimal));
+        leftAxis.addLimitLine(ChartHelper.createLimitLine(context, 140f, "Hipertensión", R.color.bp_stage2));
+
+        // Deshabilitar eje Y derecho
+        chart.getAxisRight().setEnabled(false);
+
+        // Configurar leyenda
+        chart.getLegend().setEnabled(true);
+        chart.getLegend().setTextColor(context.getResources().getColor(R.color.text_primary, null));
+    }
+
+    private LineDataSet createDataSet(String label, int colorRes) {
+        LineDataSet dataSet = new LineDataSet(new ArrayList<>(), label);
+        dataSet.setColor(context.getResources().getColor(colorRes, null));
+        dataSet.setCircleColor(context.getResources().getColor(colorRes, null));
+        dataSet.setLineWidth(3f);
+        dataSet.setCircleRadius(4f);
+        dataSet.setDrawCircleHole(false);
+        dataSet.setValueTextSize(0f); // Ocultar valores en puntos
+        dataSet.setDrawFilled(false);
+        return dataSet;
+    }
+
+    /** Reemplaza la serie completa (primera carga o cambio de periodo). readings en orden descendente. */
+    public void setReadings(List<BloodPressureReading> readings) {
+        if (readings == null || readings.isEmpty()) {
+            series = null;
+            chart.clear();
+            chart.invalidate();
+            return;
+        }
+
+        // Series completas en orden cronológico; las entradas dibujadas las genera el reductor
+        series = new ChartHelper.TimeSeries(readings, 2);
+        for (int i = 0; i < series.size(); i++) {
+            BloodPressureReading reading = readings.get(readings.size() - 1 - i);
+            series.values[0][i] = reading.getSystolic();
+            series.values[1][i] = reading.getDiastolic();
+        }
+
+        sampler = new ChartHelper.ViewportDownsampler(chart, series, systolicDataSet, diastolicDataSet);
+        sampler.resample(series.minX(), series.maxX());
+        if (chart.getData() == null) {
+            chart.setData(new LineData(systolicDataSet, diastolicDataSet));
+        } else {
+            chart.getData().notifyDataChanged();
+        }
+        chart.setOnChartGestureListener(sampler);
+
+        // Configurar eje X (fechas)
+        ChartHelper.configureTimeAxis(context, chart, series);
+        chart.notifyDataSetChanged();
+        chart.invalidate();
+    }
+
+    /**
+     * Añade una lectura recién guardada sin reconstruir la gráfica: O(1) salvo que la lectura no sea
+     * la más reciente, en cuyo caso se vuelve a reducir el rango visible.
+     */
+    public void append(BloodPressureReading reading) {
+        if (series == null) {
+            setReadings(Collections.singletonList(reading));
+            return;
+        }
+
+        float previousMaxX = series.maxX();
+        boolean endVisible = chart.getHighestVisibleX() >= previousMaxX;
+        int index = series.insert(reading.getTimestamp());
+        series.values[0][index] = reading.getSystolic();
+        series.values[1][index] = reading.getDiastolic();
+        float x = series.x[index];
+
+        if (index < series.size() - 1) {
+            sampler.resampleVisibleRange(); // lectura intermedia: caso raro
+            return;
+        }
+
+        if (endVisible) {
+            systolicDataSet.addEntry(new Entry(x, reading.getSystolic()));
+            diastolicDataSet.addEntry(new Entry(x, reading.getDiastolic()));
+            chart.getData().notifyDataChanged();
+        }
+
+        extendXAxis(x);
+    }
+
+    /**
+     * Actualiza el intervalo más reciente con su media recalculada (bucket, que empieza en
+     * bucketStart). Si la serie aún no tiene ese intervalo lo añade con append. O(1): la serie no
+     * gana puntos por cada medición guardada.
+     */
+    public void replaceNewestBucket(BloodPressureReading bucket, long bucketStart) {
+        if (series == null || series.maxX() < series.toX(bucketStart)) {
+            append(bucket);
+            return;
+        }
+
+        boolean endVisible = chart.getHighestVisibleX() >= series.maxX();
+        int index = series.size() - 1;
+        // La media solo puede avanzar dentro de su intervalo: el orden por x se mantiene
+        float x = series.toX(bucket.getTimestamp());
+        series.x[index] = x;
+        series.values[0][index] = bucket.getSystolic();
+        series.values[1][index] = bucket.getDiastolic();
+
+        if (endVisible) {
+            // Con el final visible, la última entrada dibujada es la de este intervalo
+            systolicDataSet.removeLast();
+            diastolicDataSet.removeLast();
+            systolicDataSet.addEntry(new Entry(x, bucket.getSystolic()));
+            diastolicDataSet.addEntry(new Entry(x, bucket.getDiastolic()));
+            chart.getData().notifyDataChanged();
+        }
+        extendXAxis(x);
+    }
+
+    private void extendXAxis(float x) {
+        XAxis xAxis = chart.getXAxis();
+        if (x > xAxis.getAxisMaximum()) {
+            // El rango de X cambia: solo entonces se recalculan ejes y leyenda
+            xAxis.setAxisMaximum(x);
+            chart.notifyDataSetChanged();
+        }
+        chart.invalidate();
+    }
+}
@@ -2,6 +2,7 @@ package com.example.cardiocheck.utils;
 
 import android.content.Context;
 import android.graphics.Color;
+import android.view.MotionEvent;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.components.Description;
 import com.github.mikephil.charting.components.XAxis;
@@ -10,121 +11,42 @@ import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
 import com.example.cardiocheck.R;
 import com.example.cardiocheck.models.BloodPressureReading;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
 
 /**
- * Clase helper para configurar y generar gráficas de presión arterial
+ * Clase helper para configurar y generar gráficas de presión arterial.
+ *
+ * El eje X es tiempo real (minutos desde la lectura más antigua). Cada serie guarda todos sus
+ * puntos pero solo dibuja como mucho MAX_VISIBLE_POINTS, elegidos con LTTB dentro del rango
+ * visible; al hacer zoom o desplazar la gráfica se vuelve a reducir el nuevo rango.
  */
 public class ChartHelper {
 
+    // Puntos dibujados por serie; por encima de esto el dibujado y el hit-testing se degradan
+    static final int MAX_VISIBLE_POINTS = 150;
+    // Los círculos de cada medición solo se dibujan cuando hay pocos puntos visibles
+    private static final int CIRCLES_THRESHOLD = 60;
+    private static final float MILLIS_PER_X = 60_000f;
+    private static final float MINUTES_PER_DAY = 24 * 60f;
+    // Espera tras el último evento de zoom/desplazamiento antes de volver a reducir
+    private static final long RESAMPLE_DELAY_MS = 60;
+
+    /**
+     * Configura la gráfica y dibuja las lecturas de una vez. Para una gráfica que se actualiza con
+     * lecturas nuevas es mejor conservar el BloodPressureChartController y usar append().
+     */
     public static void setupBloodPressureChart(Context context, LineChart chart, List<BloodPressureReading> readings) {
-        if (readings == null || readings.isEmpty()) {
-            chart.clear();
-            chart.invalidate();
-            return;
-        }
-
-        // Configurar descripción
-        Description description = new Description();
-        description.setText("");
-        chart.setDescription(description);
-
-        // Configurar interacción
-        chart.setTouchEnabled(true);
-        chart.setDragEnabled(true);
-        chart.setScaleEnabled(true);
-        chart.setPinchZoom(true);
-
-        // Crear entradas de datos
-        ArrayList<Entry> systolicEntries = new ArrayList<>();
-        ArrayList<Entry> diastolicEntries = new ArrayList<>();
-
-        // Invertir la lista para mostrar fechas más recientes a la derecha
-        List<BloodPressureReading> reversedReadings = new ArrayList<>(readings);
-        java.util.Collections.reverse(reversedReadings);
-
-        for (int i = 0; i < reversedReadings.size(); i++) {
-            BloodPressureReading reading = reversedReadings.get(i);
-            systolicEntries.add(new Entry(i, reading.getSystolic()));
-            diastolicEntries.add(new Entry(i, reading.getDiastolic()));
-        }
-
-        // Configurar dataset sistólica
-        LineDataSet systolicDataSet = new LineDataSet(systolicEntries, "Sistólica");
-        systolicDataSet.setColor(context.getResources().getColor(R.color.bp_stage1, null));
-        systolicDataSet.setCircleColor(context.getResources().getColor(R.color.bp_stage1, null));
-        systolicDataSet.setLineWidth(3f);
-        systolicDataSet.setCircleRadius(4f);
-        systolicDataSet.setDrawCircleHole(false);
-        systolicDataSet.setValueTextSize(0f); // Ocultar valores en puntos
-        systolicDataSet.setDrawFilled(false);
-
-        // Configurar dataset diastólica
-        LineDataSet diastolicDataSet = new LineDataSet(diastolicEntries, "Diastólica");
-        diastolicDataSet.setColor(context.getResources().getColor(R.color.primary_blue, null));
-        diastolicDataSet.setCircleColor(context.getResources().getColor(R.color.primary_blue, null));
-        diastolicDataSet.setLineWidth(3f);
-        diastolicDataSet.setCircleRadius(4f);
-        diastolicDataSet.setDrawCircleHole(false);
-        diastolicDataSet.setValueTextSize(0f); // Ocultar valores en puntos
-        diastolicDataSet.setDrawFilled(false);
-
-        // Crear LineData
-        LineData lineData = new LineData(systolicDataSet, diastolicDataSet);
-        chart.setData(lineData);
-
-        // Configurar eje X (fechas)
-        XAxis xAxis = chart.getXAxis();
-        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
-        xAxis.setDrawGridLines(false);
-        xAxis.setGranularity(1f);
-        xAxis.setLabelCount(Math.min(5, readings.size()));
-        xAxis.setTextColor(context.getResources().getColor(R.color.text_secondary, null));
-        xAxis.setValueFormatter(new ValueFormatter() {
-            @Override
-            public String getFormattedValue(float value) {
-                int index = (int) value;
-                if (index >= 0 && index < reversedReadings.size()) {
-                    BloodPressureReading reading = reversedReadings.get(index);
-                    SimpleDateFormat sdf = new SimpleDateFormat("dd/MM", Locale.getDefault());
-                    return sdf.format(new Date(reading.getTimestamp()));
-                }
-                return "";
-            }
-        });
-
-        // Configurar eje Y izquierdo
-        YAxis leftAxis = chart.getAxisLeft();
-        leftAxis.setDrawGridLines(true);
-        leftAxis.setGridColor(context.getResources().getColor(R.color.divider, null));
-        leftAxis.setTextColor(context.getResources().getColor(R.color.text_secondary, null));
-        leftAxis.setAxisMinimum(50f);
-        leftAxis.setAxisMaximum(200f);
-
-        // Agregar líneas de referencia para límites normales
-        leftAxis.addLimitLine(createLimitLine(context, 120f, "Normal Sistólica", R.color.bp_normal));
-        leftAxis.addLimitLine(createLimitLine(context, 80f, "Normal Diastólica", R.color.bp_optimal));
-        leftAxis.addLimitLine(createLimitLine(context, 140f, "Hipertensión", R.color.bp_stage2));
-
-        // Deshabilitar eje Y derecho
-        chart.getAxisRight().setEnabled(false);
-
-        // Configurar leyenda
-        chart.getLegend().setEnabled(true);
-        chart.getLegend().setTextColor(context.getResources().getColor(R.color.text_primary, null));
-
-        // Refrescar gráfica
-        chart.invalidate();
+        new BloodPressureChartController(context, chart).setReadings(readings);
     }
 
-    private static com.github.mikephil.charting.components.LimitLine createLimitLine(Context context, float value, String label, int colorRes) {
+    static com.github.mikephil.charting.components.LimitLine createLimitLine(Context context, float value, String label, int colorRes) {
         com.github.mikephil.charting.components.LimitLine limitLine =
             new com.github.mikephil.charting.components.LimitLine(value, label);
         limitLine.setLineColor(context.getResources().getColor(colorRes, null));
@@ -153,19 +75,13 @@ public class ChartHelper {
         chart.setScaleEnabled(true);
         chart.setPinchZoom(true);
 
-        // Crear entradas de datos para pulso
-        ArrayList<Entry> pulseEntries = new ArrayList<>();
-
-        List<BloodPressureReading> reversedReadings = new ArrayList<>(readings);
-        java.util.Collections.reverse(reversedReadings);
-
-        for (int i = 0; i < reversedReadings.size(); i++) {
-            BloodPressureReading reading = reversedReadings.get(i);
-            pulseEntries.add(new Entry(i, reading.getPulse()));
+        TimeSeries series = new TimeSeries(readings, 1);
+        for (int i = 0; i < series.size(); i++) {
+            series.values[0][i] = readings.get(readings.size() - 1 - i).getPulse();
         }
 
         // Configurar dataset pulso
-        LineDataSet pulseDataSet = new LineDataSet(pulseEntries, "Pulso (BPM)");
+        LineDataSet pulseDataSet = new LineDataSet(new ArrayList<>(), "Pulso (BPM)");
         pulseDataSet.setColor(context.getResources().getColor(R.color.accent_teal, null));
         pulseDataSet.setCircleColor(context.getResources().getColor(R.color.accent_teal, null));
         pulseDataSet.setLineWidth(3f);
@@ -177,28 +93,14 @@ public class ChartHelper {
         pulseDataSet.setFillAlpha(30);
 
         // Crear LineData
+        ViewportDownsampler sampler = new ViewportDownsampler(chart, series, pulseDataSet);
+        sampler.resample(series.minX(), series.maxX());
         LineData lineData = new LineData(pulseDataSet);
         chart.setData(lineData);
+        chart.setOnChartGestureListener(sampler);
 
         // Configurar ejes similar al anterior pero con rangos para pulso
-        XAxis xAxis = chart.getXAxis();
-        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
-        xAxis.setDrawGridLines(false);
-        xAxis.setGranularity(1f);
-        xAxis.setLabelCount(Math.min(5, readings.size()));
-        xAxis.setTextColor(context.getResources().getColor(R.color.text_secondary, null));
-        xAxis.setValueFormatter(new ValueFormatter() {
-            @Override
-            public String getFormattedValue(float value) {
-                int index = (int) value;
-                if (index >= 0 && index < reversedReadings.size()) {
-                    BloodPressureReading reading = reversedReadings.get(index);
-                    SimpleDateFormat sdf = new SimpleDateFormat("dd/MM", Locale.getDefault());
-                    return sdf.format(new Date(reading.getTimestamp()));
-                }
-                return "";
-            }
-        });
+        configureTimeAxis(context, chart, series);
 
         YAxis leftAxis = chart.getAxisLeft();
         leftAxis.setDrawGridLines(true);
@@ -217,4 +119,145 @@ public class ChartHelper {
 
         chart.invalidate();
     }
+
+    /**
+     * Eje X temporal con el rango fijado a la serie completa: así reemplazar las entradas visibles
+     * no cambia la escala ni la posición del zoom.
+     */
+    static void configureTimeAxis(Context context, LineChart chart, TimeSeries series) {
+        XAxis xAxis = chart.getXAxis();
+        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+        xAxis.setDrawGridLines(false);
+        xAxis.setAxisMinimum(series.minX());
+        xAxis.setAxisMaximum(Math.max(series.maxX(), series.minX() + 1f));
+        // Una etiqueta por día como mucho cuando el rango lo permite
+        xAxis.setGranularity(series.maxX() - series.minX() > 2 * MINUTES_PER_DAY ? MINUTES_PER_DAY : 60f);
+        xAxis.setLabelCount(Math.min(5, series.size()));
+        xAxis.setTextColor(context.getResources().getColor(R.color.text_secondary, null));
+        long base = series.baseTimestamp;
+        xAxis.setValueFormatter(new ValueFormatter() {
+            @Override
+            public String getFormattedValue(float value) {
+                // Sin reservas por etiqueta: se llama en cada redibujado al hacer zoom o desplazar
+                return DateLabelCache.DAY_MONTH.format(base + (long) (value * MILLIS_PER_X));
+            }
+        });
+    }
+
+    /**
+     * Todos los puntos de una o varias magnitudes, con x en minutos desde la lectura más antigua.
+     * Admite añadir lecturas nuevas sin reconstruirla (los arrays crecen al doble).
+     */
+    static final class TimeSeries {
+        final long baseTimestamp;
+        float[] x;
+        float[][] values;
+        private int size;
+
+        /** readings en orden descendente (como las devuelve DatabaseHelper). */
+        TimeSeries(List<BloodPressureReading> readings, int metrics) {
+            int n = readings.size();
+            baseTimestamp = readings.get(n - 1).getTimestamp();
+            x = new float[n];
+            values = new float[metrics][n];
+            size = n;
+            for (int i = 0; i < n; i++) {
+                x[i] = toX(readings.get(n - 1 - i).getTimestamp());
+            }
+        }
+
+        float toX(long timestamp) {
+            return (timestamp - baseTimestamp) / MILLIS_PER_X;
+        }
+
+        /**
+         * Reserva el hueco de una lectura nueva manteniendo el orden por x y devuelve su índice.
+         * Lo normal es que sea la más reciente (O(1) amortizado); si no, se desplaza el resto.
+         */
+        int insert(long timestamp) {
+            if (size == x.length) {
+                int capacity = Math.max(8, size * 2);
+                x = Arrays.copyOf(x, capacity);
+                for (int m = 0; m < values.length; m++) values[m] = Arrays.copyOf(values[m], capacity);
+            }
+            float newX = toX(timestamp);
+            int index = size;
+            while (index > 0 && x[index - 1] > newX) index--;
+            if (index < size) {
+                System.arraycopy(x, index, x, index + 1, size - index);
+                for (float[] v : values) System.arraycopy(v, index, v, index + 1, size - index);
+            }
+            x[index] = newX;
+            size++;
+            return index;
+        }
+
+        int size() { return size; }
+        float minX() { return x[0]; }
+        float maxX() { return x[size - 1]; }
+    }
+
+    /**
+     * Sustituye las entradas de cada LineDataSet por la reducción LTTB del rango visible. Escucha
+     * los gestos de la gráfica y vuelve a reducir cuando el zoom o el desplazamiento se detienen.
+     */
+    static final class ViewportDownsampler implements OnChartGestureListener {
+        private final LineChart chart;
+        private final TimeSeries series;
+        private final LineDataSet[] dataSets;
+        private final int[] indices = new int[MAX_VISIBLE_POINTS];
+        private final Runnable resampleVisible = this::resampleVisibleRange;
+
+        ViewportDownsampler(LineChart chart, TimeSeries series, LineDataSet... dataSets) {
+            this.chart = chart;
+            this.series = series;
+            this.dataSets = dataSets;
+        }
+
+        void resample(float lowX, float highX) {
+            // Un punto extra a cada lado para que la línea llegue hasta los bordes visibles
+            int from = Math.max(0, lowerBound(series, lowX) - 1);
+            int to = Math.min(series.size(), lowerBound(series, highX) + 2);
+            for (int m = 0; m < dataSets.length; m++) {
+                int count = Lttb.select(series.x, series.values[m], from, to, MAX_VISIBLE_POINTS, indices);
+                List<Entry> entries = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int idx = indices[i];
+                    entries.add(new Entry(series.x[idx], series.values[m][idx]));
+                }
+                dataSets[m].setValues(entries);
+                dataSets[m].setDrawCircles(count <= CIRCLES_THRESHOLD);
+            }
+        }
+
+        void resampleVisibleRange() {
+            if (chart.getData() == null) return;
+            resample(chart.getLowestVisibleX(), chart.getHighestVisibleX());
+            chart.getData().notifyDataChanged();
+            chart.notifyDataSetChanged();
+            chart.invalidate();
+        }
+
+        private void scheduleResample() {
+            chart.removeCallbacks(resampleVisible);
+            chart.postDelayed(resampleVisible, RESAMPLE_DELAY_MS);
+        }
+
+        private static int lowerBound(TimeSeries series, float value) {
+            float[] x = series.x;
+            int i = Arrays.binarySearch(x, 0, series.size(), value);
+            if (i < 0) return -i - 1;
+            while (i > 0 && x[i - 1] == value) i--; // varias lecturas en el mismo minuto
+            return i;
+        }
+
+        @Override public void onChartScale(MotionEvent me, float scaleX, float scaleY) { scheduleResample(); }
+        @Override public void onChartTranslate(MotionEvent me, float dX, float dY) { scheduleResample(); }
+        @Override public void onChartDoubleTapped(MotionEvent me) { scheduleResample(); }
+        @Override public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) { scheduleResample(); }
+        @Override public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {}
+        @Override public void onChartLongPressed(MotionEvent me) {}
+        @Override public void onChartSingleTapped(MotionEvent me) {}
+        @Override public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) {}
+    }
 }
@@ -0,0 +1,102 @@
+package com.example.cardiocheck.utils;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Etiquetas de fecha compartidas por gráficas, historial, dashboard y PDF.
+ *
+ * Cada patrón de fecha tiene una caché de acceso directo indexada por día local (epoch-day): el
+ * texto de un día se formatea una sola vez y después se devuelve la misma instancia, sin crear
+ * Date ni SimpleDateFormat. La hora del día sale de una tabla precalculada de 1440 minutos. En
+ * régimen estable ninguna llamada reserva memoria, así que puede usarse en cada redibujado.
+ *
+ * Es segura entre hilos: las entradas son inmutables y cada hilo usa su propio SimpleDateFormat
+ * en los fallos de caché (java.time no está disponible con minSdk 24 sin desugaring).
+ */
+public final class DateLabelCache {
+
+    /** Eje X de las gráficas y última medición del dashboard. */
+    public static final DateLabelCache DAY_MONTH = new DateLabelCache("dd/MM");
+    /** Tablas del PDF. */
+    public static final DateLabelCache DAY_MONTH_YEAR = new DateLabelCache("dd/MM/yy");
+    /** Historial de mediciones. */
+    public static final DateLabelCache FULL_DATE = new DateLabelCache("dd/MM/yyyy");
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long MILLIS_PER_MINUTE = TimeUnit.MINUTES.toMillis(1);
+    // Potencia de dos: casi tres años de días distintos sin colisiones
+    private static final int SLOTS = 1024;
+    // TimeZone.getDefault() devuelve una copia; se relee como mucho una vez por minuto
+    private static final long ZONE_REFRESH_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final String[] TIME_OF_DAY = new String[24 * 60];
+    static {
+        for (int m = 0; m < TIME_OF_DAY.length; m++) {
+            TIME_OF_DAY[m] = String.format(Locale.US, "%02d:%02d", m / 60, m % 60);
+        }
+    }
+
+    private static volatile TimeZone zone = TimeZone.getDefault();
+    private static volatile long zoneReadAt = System.nanoTime();
+
+    private final Label[] slots = new Label[SLOTS];
+    private final ThreadLocal<SimpleDateFormat> formatter;
+
+    private DateLabelCache(String pattern) {
+        formatter = new ThreadLocal<SimpleDateFormat>() {
+            @Override
+            protected SimpleDateFormat initialValue() {
+                // La clave ya es el día local: se formatea su medianoche en UTC
+                SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.getDefault());
+                format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                return format;
+            }
+        };
+    }
+
+    /** Fecha del instante según el patrón de esta caché, en la zona horaria del dispositivo. */
+    public String format(long timestamp) {
+        long day = localEpochDay(timestamp);
+        int slot = (int) (day & (SLOTS - 1));
+        Label label = slots[slot];
+        if (label == null || label.day != day) {
+            label = new Label(day, formatter.get().format(new Date(day * MILLIS_PER_DAY)));
+            slots[slot] = label;
+        }
+        return label.text;
+    }
+
+    /** Hora local "HH:mm" del instante, sin reservar memoria. */
+    public static String time(long timestamp) {
+        long minuteOfDay = Math.floorMod(toLocalMillis(timestamp), MILLIS_PER_DAY) / MILLIS_PER_MINUTE;
+        return TIME_OF_DAY[(int) minuteOfDay];
+    }
+
+    /** Día local (epoch-day) del instante; es la clave de las cachés. */
+    public static long localEpochDay(long timestamp) {
+        return Math.floorDiv(toLocalMillis(timestamp), MILLIS_PER_DAY);
+    }
+
+    private static long toLocalMillis(long timestamp) {
+        long now = System.nanoTime();
+        if (now - zoneReadAt > ZONE_REFRESH_NANOS) {
+            zone = TimeZone.getDefault();
+            zoneReadAt = now;
+        }
+        return timestamp + zone.getOffset(timestamp);
+    }
+
+    private static final class Label {
+        final long day;
+        final String text;
+
+        Label(long day, String text) {
+            this.day = day;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.cardiocheck.utils;
+
+/**
+ * Reducción de series con Largest-Triangle-Three-Buckets: elige, de cada intervalo, el punto que
+ * forma el triángulo de mayor área con el punto elegido antes y la media del intervalo siguiente.
+ * Conserva picos y valles que una media o un muestreo fijo borrarían.
+ *
+ * No depende de Android para poder probarse en la JVM.
+ */
+public final class Lttb {
+
+    private Lttb() {}
+
+    /**
+     * Elige como mucho threshold puntos de x[from..to) (x en orden creciente) y escribe sus índices,
+     * en orden, en out (de longitud mínima threshold). Devuelve cuántos índices se escribieron.
+     * Si el rango ya tiene threshold puntos o menos (o threshold &lt; 3) se devuelven todos.
+     */
+    public static int select(float[] x, float[] y, int from, int to, int threshold, int[] out) {
+        int n = to - from;
+        if (n <= 0) return 0;
+        if (threshold >= n || threshold < 3) {
+            int count = Math.min(n, out.length);
+            for (int i = 0; i < count; i++) out[i] = from + i;
+            return count;
+        }
+
+        // El primer y el último punto se conservan siempre; el resto se reparte en threshold-2 intervalos
+        double every = (double) (n - 2) / (threshold - 2);
+        int k = 0;
+        int a = from;
+        out[k++] = a;
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // Media del intervalo siguiente (el último punto hace de intervalo final)
+            int avgStart = from + (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min(from + (int) Math.floor((i + 2) * every) + 1, to);
+            double avgX = 0, avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int avgLen = avgEnd - avgStart;
+            if (avgLen > 0) {
+                avgX /= avgLen;
+                avgY /= avgLen;
+            } else {
+                avgX = x[to - 1];
+                avgY = y[to - 1];
+            }
+
+            // Punto del intervalo actual con el triángulo de mayor área
+            int rangeStart = from + (int) Math.floor(i * every) + 1;
+            int rangeEnd = Math.min(from + (int) Math.floor((i + 1) * every) + 1, to - 1);
+            double ax = x[a], ay = y[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            out[k++] = next;
+            a = next;
+        }
+
+        out[k++] = to - 1;
+        return k;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.cardiocheck.utils;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Construye la parte de mediciones de un prompt sin pasarse de un presupuesto de tokens.
+ *
+ * Las lecturas más recientes van tal cual ("12/03/2025 08:15 132/85 p72"); los días anteriores se
+ * resumen en una línea por día (media, extremos y número de mediciones). Si aun así no cabe, los
+ * días más antiguos se agrupan en una sola línea con el agregado del periodo. Los días recientes
+ * siempre tienen prioridad sobre los antiguos.
+ *
+ * La cuenta de tokens es una estimación conservadora (un token cada 3 caracteres), suficiente para
+ * no desbordar el contexto sin depender de un tokenizador.
+ */
+public final class ReadingPromptBuilder {
+
+    /** Presupuesto por defecto para la sección de mediciones. */
+    public static final int DEFAULT_TOKEN_BUDGET = 1200;
+    private static final double CHARS_PER_TOKEN = 3.0;
+
+    // Parte del presupuesto para lecturas literales cuando no cabe todo; el resto, para resúmenes
+    private static final double RECENT_SHARE = 0.5;
+
+    private static final String HEADER_RECENT = "Mediciones recientes (fecha hora sistólica/diastólica pulso):\n";
+    private static final String HEADER_DAILY = "Resumen diario anterior (fecha (nº mediciones): media sist/diast pulso, rango sistólica, rango diastólica):\n";
+
+    // Cota de la línea que agrupa los días más antiguos (cifras con el máximo de dígitos)
+    private static final int GROUP_LINE_TOKENS = estimateTokens(
+            "- Del 01/01/2000 al 31/12/2099 (9999999 mediciones en 99999 días): 999/999 p999, sist 999-999, diast 999-999\n");
+
+    /** Texto resultante y cómo se ha repartido. */
+    public static final class Result {
+        public final String text;
+        public final int estimatedTokens;
+        public final int verbatimReadings;
+        public final int summarizedDays;
+        public final int groupedDays;
+
+        Result(String text, int verbatimReadings, int summarizedDays, int groupedDays) {
+            this.text = text;
+            this.estimatedTokens = estimateTokens(text);
+            this.verbatimReadings = verbatimReadings;
+            this.summarizedDays = summarizedDays;
+            this.groupedDays = groupedDays;
+        }
+    }
+
+    private ReadingPromptBuilder() {}
+
+    /** Tokens aproximados de un texto (por exceso). */
+    public static int estimateTokens(CharSequence text) {
+        return (int) Math.ceil(text.length() / CHARS_PER_TOKEN);
+    }
+
+    public static Result build(List<BloodPressureReading> readings, int tokenBudget) {
+        List<Day> days = groupByDay(readings);
+        int n = days.size();
+
+        // Tokens de cada día literal y resumido (los días van del más reciente al más antiguo)
+        int[] verbatimTokens = new int[n];
+        int[] summaryTokens = new int[n];
+        int allVerbatim = estimateTokens(HEADER_RECENT);
+        for (int i = 0; i < n; i++) {
+            verbatimTokens[i] = estimateTokens(days.get(i).verbatim());
+            summaryTokens[i] = estimateTokens(days.get(i).summary());
+            allVerbatim += verbatimTokens[i];
+        }
+
+        int recent = 0;
+        int used = estimateTokens(HEADER_RECENT);
+        if (allVerbatim <= tokenBudget) {
+            recent = n; // cabe todo tal cual
+        } else {
+            // Días recientes literales hasta RECENT_SHARE del presupuesto, dejando sitio para el resto
+            int recentLimit = (int) (tokenBudget * RECENT_SHARE) - estimateTokens(HEADER_DAILY) - GROUP_LINE_TOKENS;
+            while (recent < n && used + verbatimTokens[recent] <= recentLimit) {
+                used += verbatimTokens[recent];
+                recent++;
+            }
+            used += estimateTokens(HEADER_DAILY);
+        }
+
+        // Después, días resumidos uno a uno; los más antiguos que no quepan van juntos en una línea
+        int daily = 0;
+        while (recent + daily < n) {
+            boolean last = recent + daily == n - 1;
+            int reserve = last ? 0 : GROUP_LINE_TOKENS;
+            if (used + summaryTokens[recent + daily] + reserve > tokenBudget) break;
+            used += summaryTokens[recent + daily];
+            daily++;
+        }
+
+        StringBuilder text = new StringBuilder();
+        int verbatimReadings = 0;
+        if (recent > 0) {
+            text.append(HEADER_RECENT);
+            for (int i = 0; i < recent; i++) {
+                text.append(days.get(i).verbatim());
+                verbatimReadings += days.get(i).readings.size();
+            }
+        }
+        if (recent < n) {
+            text.append(HEADER_DAILY);
+            for (int i = recent; i < recent + daily; i++) text.append(days.get(i).summary());
+            if (recent + daily < n) text.append(groupLine(days, recent + daily, n));
+        }
+        return new Result(text.toString(), verbatimReadings, daily, n - recent - daily);
+    }
+
+    private static List<Day> groupByDay(List<BloodPressureReading> readings) {
+        List<BloodPressureReading> sorted = new ArrayList<>(readings);
+        Collections.sort(sorted, (a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+        List<Day> days = new ArrayList<>();
+        Day current = null;
+        for (BloodPressureReading r : sorted) {
+            long day = DateLabelCache.localEpochDay(r.getTimestamp());
+            if (current == null || current.epochDay != day) {
+                current = new Day(day);
+                days.add(current);
+            }
+            current.readings.add(r);
+        }
+        return days;
+    }
+
+    // Agregado de los días [from, to) (más antiguos) en una sola línea
+    private static String groupLine(List<Day> days, int from, int to) {
+        Aggregate a = new Aggregate();
+        for (int i = from; i < to; i++) {
+            for (BloodPressureReading r : days.get(i).readings) a.add(r);
+        }
+        long newest = days.get(from).readings.get(0).getTimestamp();
+        List<BloodPressureReading> oldestDay = days.get(to - 1).readings;
+        long oldest = oldestDay.get(oldestDay.size() - 1).getTimestamp();
+        return String.format(Locale.US, "- Del %s al %s (%d mediciones en %d días): %s\n",
+                DateLabelCache.FULL_DATE.format(oldest), DateLabelCache.FULL_DATE.format(newest),
+                a.count, to - from, a.describe());
+    }
+
+    private static final class Day {
+        final long epochDay;
+        final List<BloodPressureReading> readings = new ArrayList<>(); // más reciente primero
+
+        Day(long epochDay) {
+            this.epochDay = epochDay;
+        }
+
+        String verbatim() {
+            StringBuilder sb = new StringBuilder();
+            for (BloodPressureReading r : readings) {
+                sb.append("- ").append(DateLabelCache.FULL_DATE.format(r.getTimestamp()))
+                        .append(' ').append(DateLabelCache.time(r.getTimestamp()))
+                        .append(' ').append(r.getSystolic()).append('/').append(r.getDiastolic())
+                        .append(" p").append(r.getPulse()).append('\n');
+            }
+            return sb.toString();
+        }
+
+        String summary() {
+            if (readings.size() == 1) return verbatim(); // una sola medición: el literal es más corto
+            Aggregate a = new Aggregate();
+            for (BloodPressureReading r : readings) a.add(r);
+            return "- " + DateLabelCache.FULL_DATE.format(readings.get(0).getTimestamp())
+                    + " (" + a.count + "): " + a.describe() + "\n";
+        }
+    }
+
+    private static final class Aggregate {
+        int count;
+        long sysSum, diaSum, pulseSum;
+        int sysMin = Integer.MAX_VALUE, sysMax = Integer.MIN_VALUE;
+        int diaMin = Integer.MAX_VALUE, diaMax = Integer.MIN_VALUE;
+
+        void add(BloodPressureReading r) {
+            count++;
+            sysSum += r.getSystolic();
+            diaSum += r.getDiastolic();
+            pulseSum += r.getPulse();
+            sysMin = Math.min(sysMin, r.getSystolic());
+            sysMax = Math.max(sysMax, r.getSystolic());
+            diaMin = Math.min(diaMin, r.getDiastolic());
+            diaMax = Math.max(diaMax, r.getDiastolic());
+        }
+
+        String describe() {
+            return Math.round((double) sysSum / count) + "/" + Math.round((double) diaSum / count)
+                    + " p" + Math.round((double) pulseSum / count)
+                    + ", sist " + sysMin + "-" + sysMax + ", diast " + diaMin + "-" + diaMax;
+        }
+    }
+}
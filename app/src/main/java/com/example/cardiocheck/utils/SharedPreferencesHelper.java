@@ -3,12 +3,17 @@ package com.example.cardiocheck.utils;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import com.example.cardiocheck.LocalAdviceEngine;
+
 /**
  * Helper para gestionar todos los datos de sesión y configuración en SharedPreferences.
  */
 public class SharedPreferencesHelper {
 
     private static final String PREF_NAME = "CardioCheckPrefs";
+    // Configuración del webhook aparte: logout() borra PREF_NAME entero y la app seguiría enviando
+    // a la URL por defecto sin firmar
+    private static final String N8N_PREF_NAME = "CardioCheckN8nPrefs";
 
     // --- Claves para los datos ---
     private static final String KEY_IS_LOGGED_IN = "isLoggedIn";
@@ -21,9 +26,14 @@ public class SharedPreferencesHelper {
 
     private static final String KEY_OPENAI_API_KEY = "openaiApiKey";
 
+    private static final String KEY_N8N_WEBHOOK_URL = "n8nWebhookUrl";
+    private static final String KEY_N8N_WEBHOOK_SECRET = "n8nWebhookSecret";
+
     // --- NUEVAS CLAVES PARA AJUSTES ---
     private static final String KEY_DARK_MODE_ENABLED = "darkModeEnabled";
     private static final String KEY_SMART_ANALYSIS_ENABLED = "smartAnalysisEnabled";
+    private static final String KEY_AI_FALLBACK_DEADLINE_MS = "aiFallbackDeadlineMs";
+    private static final String KEY_ROLLUP_VERIFIED_PREFIX = "dailyRollupVerified_";
 
 
     // === MÉTODOS DE SESIÓN ===
@@ -83,6 +93,34 @@ public class SharedPreferencesHelper {
     }
 
 
+    // === MÉTODOS DEL WEBHOOK DE N8N ===
+
+    /**
+     * Guarda la URL del webhook y el secreto con el que se firman las peticiones. Vacíos: se usan los
+     * de BuildConfig. Se conservan al cerrar sesión; quien los cambia debe llamar a
+     * N8nSyncClient.reloadConfig para que el cliente los tome.
+     */
+    public static void setN8nWebhook(Context context, String url, String secret) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(N8N_PREF_NAME, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.putString(KEY_N8N_WEBHOOK_URL, url);
+        editor.putString(KEY_N8N_WEBHOOK_SECRET, secret);
+        editor.apply();
+    }
+
+    /** URL guardada en Ajustes, o cadena vacía si no hay ninguna. */
+    public static String getN8nWebhookUrl(Context context) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(N8N_PREF_NAME, Context.MODE_PRIVATE);
+        return sharedPreferences.getString(KEY_N8N_WEBHOOK_URL, "").trim();
+    }
+
+    /** Secreto guardado en Ajustes, o cadena vacía si no hay ninguno. */
+    public static String getN8nWebhookSecret(Context context) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(N8N_PREF_NAME, Context.MODE_PRIVATE);
+        return sharedPreferences.getString(KEY_N8N_WEBHOOK_SECRET, "");
+    }
+
+
     // === MÉTODOS DE RECORDATORIOS ===
 
     public static void setReminderEnabled(Context context, boolean enabled) {
@@ -140,4 +178,30 @@ public class SharedPreferencesHelper {
         SharedPreferences sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
         return sharedPreferences.getBoolean(KEY_SMART_ANALYSIS_ENABLED, false);
     }
+
+    /** Milisegundos que se espera a la IA antes de mostrar el análisis local. */
+    public static void setAIFallbackDeadlineMs(Context context, long deadlineMs) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.putLong(KEY_AI_FALLBACK_DEADLINE_MS, deadlineMs);
+        editor.apply();
+    }
+
+    public static long getAIFallbackDeadlineMs(Context context) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        return sharedPreferences.getLong(KEY_AI_FALLBACK_DEADLINE_MS, LocalAdviceEngine.DEFAULT_DEADLINE_MS);
+    }
+
+    /** Versión de la base de datos en la que se comprobó el resumen diario del usuario (0: nunca). */
+    public static int getDailyRollupVerifiedVersion(Context context, String email) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        return sharedPreferences.getInt(KEY_ROLLUP_VERIFIED_PREFIX + email, 0);
+    }
+
+    public static void setDailyRollupVerifiedVersion(Context context, String email, int version) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.putInt(KEY_ROLLUP_VERIFIED_PREFIX + email, version);
+        editor.apply();
+    }
 }
@@ -4,6 +4,7 @@ import android.content.Context;
 import com.example.cardiocheck.DatabaseHelper;
 import com.example.cardiocheck.ReminderReceiver;
 import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.ReadingStats;
 import java.util.List;
 import java.util.Calendar;
 
@@ -17,14 +18,14 @@ public class SmartNotificationManager {
 
     public SmartNotificationManager(Context context) {
         this.context = context;
-        this.db = new DatabaseHelper(context);
+        this.db = DatabaseHelper.getInstance(context);
     }
 
     /**
      * Analiza patrones y envía notificaciones inteligentes si es necesario
      */
     public void analyzeAndNotify(String userEmail) {
-        List<BloodPressureReading> recentReadings = db.getLastReadings(userEmail, 10);
+        List<BloodPressureReading> recentReadings = db.getLastNumericReadings(userEmail, 10);
 
         if (recentReadings.size() < 3) return; // Necesitamos al menos 3 mediciones
 
@@ -41,6 +42,17 @@ public class SmartNotificationManager {
     }
 
     private PatternAnalysis analyzePatterns(List<BloodPressureReading> readings) {
+        if (readings.size() < 5) return new PatternAnalysis();
+        // Las 10 lecturas ya están en memoria: mín/máx sin otra consulta a la base de datos
+        return analyzePatterns(readings, ReadingStats.of(readings));
+    }
+
+    /**
+     * Detecta tendencia al alza, valores altos persistentes y variabilidad excesiva.
+     * @param readings Mediciones de la más reciente a la más antigua.
+     * @param windowStats Estadísticas de la ventana que cubren esas mediciones.
+     */
+    public static PatternAnalysis analyzePatterns(List<BloodPressureReading> readings, ReadingStats windowStats) {
         PatternAnalysis analysis = new PatternAnalysis();
 
         // Analizar tendencia de los últimos 5 días
@@ -73,10 +85,7 @@ public class SmartNotificationManager {
             }
 
             // Variabilidad excesiva
-            int maxSystolic = readings.stream().mapToInt(BloodPressureReading::getSystolic).max().orElse(0);
-            int minSystolic = readings.stream().mapToInt(BloodPressureReading::getSystolic).min().orElse(0);
-
-            if (maxSystolic - minSystolic > 30) {
+            if (windowStats.getSystolic().getMax() - windowStats.getSystolic().getMin() > 30) {
                 analysis.needsAttention = true;
                 analysis.alertType = AlertType.HIGH_VARIABILITY;
                 analysis.message = "Tus mediciones muestran gran variabilidad. Esto podría indicar estrés o necesidad de ajustar medicación.";
@@ -154,13 +163,13 @@ public class SmartNotificationManager {
     }
 
     // Clases internas para organizar datos
-    private static class PatternAnalysis {
-        boolean needsAttention = false;
-        AlertType alertType;
-        String message;
+    public static class PatternAnalysis {
+        public boolean needsAttention = false;
+        public AlertType alertType;
+        public String message;
     }
 
-    private enum AlertType {
+    public enum AlertType {
         RISING_TREND,
         CONSISTENTLY_HIGH,
         HIGH_VARIABILITY,
@@ -180,7 +189,7 @@ public class SmartNotificationManager {
      * Configura análisis automático basado en IA
      */
     public void setupIntelligentReminders(String userEmail) {
-        List<BloodPressureReading> readings = db.getLastReadings(userEmail, 30);
+        List<BloodPressureReading> readings = db.getLastNumericReadings(userEmail, 30);
 
         if (readings.size() < 5) return;
 
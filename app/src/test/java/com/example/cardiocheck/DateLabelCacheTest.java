@@ -0,0 +1,80 @@
+package com.example.cardiocheck;
+
+import com.example.cardiocheck.utils.DateLabelCache;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Pruebas locales de DateLabelCache: mismas etiquetas que SimpleDateFormat y ninguna reserva de
+ * memoria por redibujado una vez que los días visibles están en caché.
+ */
+public class DateLabelCacheTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int VISIBLE_DAYS = 90;
+    private static final int LABELS_PER_REDRAW = 2 * VISIBLE_DAYS; // eje X + tabla/lista
+
+    @Test
+    public void labels_matchSimpleDateFormat() {
+        SimpleDateFormat day = new SimpleDateFormat("dd/MM", Locale.getDefault());
+        SimpleDateFormat full = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm", Locale.getDefault());
+        long start = System.currentTimeMillis() - 400 * DAY;
+        for (long ts = start; ts < start + 400 * DAY; ts += TimeUnit.MINUTES.toMillis(397)) {
+            Date date = new Date(ts);
+            assertEquals(day.format(date), DateLabelCache.DAY_MONTH.format(ts));
+            assertEquals(full.format(date), DateLabelCache.FULL_DATE.format(ts));
+            assertEquals(time.format(date), DateLabelCache.time(ts));
+        }
+    }
+
+    @Test
+    public void sameDay_returnsSameInstance() {
+        long now = System.currentTimeMillis();
+        long midnight = now - Math.floorMod(now - DateLabelCache.localEpochDay(now) * DAY, DAY);
+        assertSame(DateLabelCache.DAY_MONTH.format(now), DateLabelCache.DAY_MONTH.format(midnight + 1));
+    }
+
+    @Test
+    public void steadyStateRedraw_allocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("la JVM no mide reservas por hilo", bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long threadId = Thread.currentThread().getId();
+
+        long end = System.currentTimeMillis();
+        long start = end - VISIBLE_DAYS * DAY;
+        // Primer dibujado: llena la caché; y calentamiento para que el JIT no cuente
+        for (int i = 0; i < 200; i++) redraw(start);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long checksum = 0;
+        for (int frame = 0; frame < 1000; frame++) {
+            checksum += redraw(start);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(checksum > 0);
+        assertEquals("bytes reservados en 1000 redibujados", 0, allocated);
+    }
+
+    // Simula las etiquetas de un frame: una por día visible en el eje y una fecha+hora por fila
+    private static long redraw(long start) {
+        long sum = 0;
+        for (int i = 0; i < LABELS_PER_REDRAW; i++) {
+            long ts = start + (i % VISIBLE_DAYS) * DAY + i * 60_000L;
+            sum += DateLabelCache.DAY_MONTH.format(ts).length();
+            sum += DateLabelCache.time(ts).length();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.cardiocheck;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.models.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del análisis sin red y de su carrera contra la respuesta de la IA.
+ */
+public class LocalAdviceEngineTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void crisisValues_areClassifiedAsCrisis() {
+        assertEquals(BloodPressureClassifier.CRISIS, BloodPressureClassifier.categoryOf(190, 100));
+        assertEquals(BloodPressureClassifier.STAGE_2, BloodPressureClassifier.categoryOf(150, 95));
+        assertEquals(BloodPressureClassifier.OPTIMAL, BloodPressureClassifier.categoryOf(115, 75));
+    }
+
+    @Test
+    public void adviceForReading_includesCategoryAndPatterns() {
+        BloodPressureReading latest = reading(6, 160, 100, 6 * HOUR);
+        List<BloodPressureReading> recent = new ArrayList<>();
+        recent.add(latest);
+        for (int i = 5; i >= 1; i--) recent.add(reading(i, 150, 95, i * HOUR));
+
+        String advice = LocalAdviceEngine.adviceForReading(latest, recent, user());
+
+        assertTrue(advice.startsWith(LocalAdviceEngine.LOCAL_HEADER));
+        assertTrue(advice.contains("Ana, "));
+        assertTrue(advice.contains(BloodPressureClassifier.STAGE_2));
+        assertTrue("debe avisar de valores altos persistentes", advice.contains("valores elevados de forma consistente"));
+    }
+
+    @Test
+    public void adviceForSelected_includesReportRecommendations() {
+        List<BloodPressureReading> readings = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) readings.add(reading(i, 112, 72, i * HOUR));
+
+        String advice = LocalAdviceEngine.adviceForSelected(readings, null);
+
+        assertTrue(advice.contains("112/72"));
+        assertTrue(advice.contains("• Mantener hábitos saludables actuales"));
+    }
+
+    @Test
+    public void slowAI_showsLocalFirstAndThenUpgrades() throws Exception {
+        CompletableFuture<String> ai = new CompletableFuture<>();
+        Recorder recorder = new Recorder(2);
+
+        LocalAdviceEngine.race(ai, () -> "local", 50, Runnable::run, recorder);
+        Thread.sleep(200);
+        ai.complete("ia");
+
+        assertTrue(recorder.latch.await(2, TimeUnit.SECONDS));
+        assertEquals("[local:false, ia:true]", recorder.events.toString());
+    }
+
+    @Test
+    public void fastAI_skipsLocalAdvice() throws Exception {
+        CompletableFuture<String> ai = new CompletableFuture<>();
+        Recorder recorder = new Recorder(1);
+
+        LocalAdviceEngine.race(ai, () -> "local", 500, Runnable::run, recorder);
+        ai.complete("ia");
+
+        assertTrue(recorder.latch.await(2, TimeUnit.SECONDS));
+        Thread.sleep(700); // pasado el plazo no debe llegar nada más
+        assertEquals("[ia:true]", recorder.events.toString());
+    }
+
+    @Test
+    public void failedAI_keepsLocalAdviceWithError() throws Exception {
+        CompletableFuture<String> ai = new CompletableFuture<>();
+        Recorder recorder = new Recorder(1);
+
+        LocalAdviceEngine.race(ai, () -> "local", 500, Runnable::run, recorder);
+        ai.completeExceptionally(new OpenAIClient.AIException("sin red"));
+
+        assertTrue(recorder.latch.await(2, TimeUnit.SECONDS));
+        assertEquals("[local:false]", recorder.events.toString());
+        assertNotNull(recorder.lastError);
+    }
+
+    private static final class Recorder implements LocalAdviceEngine.Listener {
+        final List<String> events = new ArrayList<>();
+        final CountDownLatch latch;
+        volatile Throwable lastError;
+
+        Recorder(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public synchronized void onAdvice(String advice, boolean fromAI, Throwable aiError) {
+            events.add(advice + ":" + fromAI);
+            lastError = aiError;
+            latch.countDown();
+        }
+    }
+
+    private static BloodPressureReading reading(long id, int systolic, int diastolic, long timestamp) {
+        return new BloodPressureReading(id, "ana@example.com", systolic, diastolic, 70, timestamp, null);
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setFullName("Ana López");
+        return user;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.cardiocheck;
+
+import com.example.cardiocheck.utils.Lttb;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de la reducción LTTB usada por ChartHelper.
+ */
+public class LttbTest {
+
+    @Test
+    public void smallSeries_isReturnedUnchanged() {
+        float[] x = {0, 1, 2, 3};
+        float[] y = {120, 130, 125, 118};
+        int[] out = new int[10];
+        assertEquals(4, Lttb.select(x, y, 0, 4, 10, out));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, java.util.Arrays.copyOf(out, 4));
+    }
+
+    @Test
+    public void largeSeries_respectsThresholdAndKeepsEndpoints() {
+        int n = 100_000;
+        float[] x = new float[n];
+        float[] y = new float[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = 120 + (float) Math.sin(i / 50.0) * 10;
+        }
+        int[] out = new int[150];
+        int count = Lttb.select(x, y, 0, n, 150, out);
+
+        assertEquals(150, count);
+        assertEquals(0, out[0]);
+        assertEquals(n - 1, out[count - 1]);
+        for (int i = 1; i < count; i++) {
+            assertTrue("índices no crecientes en " + i, out[i] > out[i - 1]);
+        }
+    }
+
+    @Test
+    public void isolatedPeak_isPreserved() {
+        int n = 10_000;
+        float[] x = new float[n];
+        float[] y = new float[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = 120;
+        }
+        y[4321] = 210; // crisis hipertensiva aislada
+
+        int[] out = new int[50];
+        int count = Lttb.select(x, y, 0, n, 50, out);
+
+        boolean found = false;
+        for (int i = 0; i < count; i++) {
+            if (out[i] == 4321) found = true;
+        }
+        assertTrue("el pico debe conservarse", found);
+    }
+
+    @Test
+    public void subRange_onlyReturnsIndicesInsideIt() {
+        int n = 5_000;
+        float[] x = new float[n];
+        float[] y = new float[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = i % 7;
+        }
+        int[] out = new int[100];
+        int count = Lttb.select(x, y, 1000, 3000, 100, out);
+
+        assertEquals(100, count);
+        assertEquals(1000, out[0]);
+        assertEquals(2999, out[count - 1]);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.cardiocheck;
+
+import com.example.cardiocheck.models.BloodPressureReading;
+import com.example.cardiocheck.utils.DateLabelCache;
+import com.example.cardiocheck.utils.ReadingPromptBuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales del presupuesto de tokens de ReadingPromptBuilder.
+ */
+public class ReadingPromptBuilderTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long NOW = 1_735_000_000_000L; // diciembre de 2024
+
+    @Test
+    public void smallSelection_isKeptVerbatimWithoutEpochTimestamps() {
+        List<BloodPressureReading> readings = readings(3, 1);
+        ReadingPromptBuilder.Result result = ReadingPromptBuilder.build(readings, ReadingPromptBuilder.DEFAULT_TOKEN_BUDGET);
+
+        assertEquals(3, result.verbatimReadings);
+        assertEquals(0, result.summarizedDays + result.groupedDays);
+        BloodPressureReading newest = readings.get(readings.size() - 1);
+        assertTrue(result.text.contains(DateLabelCache.FULL_DATE.format(newest.getTimestamp())
+                + " " + DateLabelCache.time(newest.getTimestamp())));
+        assertFalse("no debe incluir milisegundos epoch", result.text.contains(String.valueOf(newest.getTimestamp())));
+    }
+
+    @Test
+    public void yearOfReadings_staysWithinBudget() {
+        List<BloodPressureReading> readings = readings(365, 4);
+        int budget = ReadingPromptBuilder.DEFAULT_TOKEN_BUDGET;
+
+        String naive = naivePrompt(readings);
+        ReadingPromptBuilder.Result result = ReadingPromptBuilder.build(readings, budget);
+
+        assertTrue("estimados " + result.estimatedTokens, result.estimatedTokens <= budget);
+        assertEquals(ReadingPromptBuilder.estimateTokens(result.text), result.estimatedTokens);
+        assertTrue(result.estimatedTokens * 20 < ReadingPromptBuilder.estimateTokens(naive));
+        // Las más recientes van literales, hay días resumidos y el resto está agrupado
+        assertTrue(result.verbatimReadings >= 4);
+        assertTrue(result.summarizedDays > 0);
+        assertTrue(result.groupedDays > 0);
+        assertEquals(365, (result.verbatimReadings / 4) + result.summarizedDays + result.groupedDays);
+    }
+
+    @Test
+    public void outputGrowsWithBudget() {
+        List<BloodPressureReading> readings = readings(120, 3);
+        int previous = 0;
+        for (int budget = 200; budget <= 3200; budget *= 2) {
+            ReadingPromptBuilder.Result result = ReadingPromptBuilder.build(readings, budget);
+            assertTrue(result.estimatedTokens <= budget);
+            assertTrue(result.estimatedTokens >= previous);
+            previous = result.estimatedTokens;
+        }
+    }
+
+    @Test
+    public void estimateTokens_roundsUp() {
+        assertEquals(0, ReadingPromptBuilder.estimateTokens(""));
+        assertEquals(1, ReadingPromptBuilder.estimateTokens("a"));
+        assertEquals(2, ReadingPromptBuilder.estimateTokens("abcd"));
+    }
+
+    // perDay lecturas al día durante days días, acabando en NOW (orden cronológico)
+    private static List<BloodPressureReading> readings(int days, int perDay) {
+        List<BloodPressureReading> list = new ArrayList<>();
+        long start = NOW - days * DAY;
+        for (int d = 0; d < days; d++) {
+            for (int i = 0; i < perDay; i++) {
+                long ts = start + d * DAY + TimeUnit.HOURS.toMillis(7 + 4 * i);
+                list.add(new BloodPressureReading(list.size() + 1, "a@example.com",
+                        115 + (d * 7 + i * 5) % 40, 72 + (d * 3 + i) % 20, 60 + (d + i) % 30, ts, null));
+            }
+        }
+        return list;
+    }
+
+    // Formato anterior: una frase por lectura con el timestamp en milisegundos
+    private static String naivePrompt(List<BloodPressureReading> readings) {
+        StringBuilder sb = new StringBuilder();
+        for (BloodPressureReading r : readings) {
+            sb.append(String.format(java.util.Locale.US, "- Sistólica %d, Diastólica %d, Pulso %d. (Registrado el %s) ",
+                    r.getSystolic(), r.getDiastolic(), r.getPulse(), r.getTimestamp()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.cardiocheck;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas locales de la firma HMAC de las peticiones al webhook de n8n.
+ */
+public class WebhookSignerTest {
+
+    private static final byte[] BODY = "[{\"systolic\":120}]".getBytes(StandardCharsets.UTF_8);
+    // HMAC-SHA256("secreto", "1700000000000.abc." + BODY), calculado aparte
+    private static final String EXPECTED = "d0f00ce628016d527b27bfb36362f7576ca23aeffeb69b2b80fa12b8531e17bb";
+
+    @Test
+    public void emptySecret_meansUnsigned() {
+        assertNull(WebhookSigner.of(""));
+        assertNull(WebhookSigner.of(null));
+    }
+
+    @Test
+    public void signature_matchesReferenceAndIsRepeatable() {
+        WebhookSigner signer = WebhookSigner.of("secreto");
+
+        assertEquals(EXPECTED, signer.signature(1_700_000_000_000L, "abc", BODY));
+        assertEquals(EXPECTED, signer.signature(1_700_000_000_000L, "abc", BODY)); // el Mac se reutiliza
+    }
+
+    @Test
+    public void sign_addsTimestampNonceAndSignature() {
+        WebhookSigner signer = WebhookSigner.of("secreto");
+        Map<String, String> first = new HashMap<>();
+        Map<String, String> second = new HashMap<>();
+
+        signer.sign(BODY, first);
+        signer.sign(BODY, second);
+
+        long timestamp = Long.parseLong(first.get(WebhookSigner.HEADER_TIMESTAMP));
+        assertTrue(Math.abs(System.currentTimeMillis() - timestamp) < WebhookSigner.MAX_SKEW_MS);
+        assertEquals(32, first.get(WebhookSigner.HEADER_NONCE).length());
+        assertNotEquals(first.get(WebhookSigner.HEADER_NONCE), second.get(WebhookSigner.HEADER_NONCE));
+        assertEquals(WebhookSigner.SIGNATURE_VERSION
+                        + signer.signature(timestamp, first.get(WebhookSigner.HEADER_NONCE), BODY),
+                first.get(WebhookSigner.HEADER_SIGNATURE));
+    }
+
+    @Test
+    public void concurrentSigning_givesSameResultOnEveryThread() throws Exception {
+        WebhookSigner signer = WebhookSigner.of("secreto");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(pool.submit(() -> signer.signature(1_700_000_000_000L, "abc", BODY)));
+            }
+            Set<String> distinct = new HashSet<>();
+            for (Future<String> result : results) distinct.add(result.get(5, TimeUnit.SECONDS));
+            assertEquals(1, distinct.size());
+            assertTrue(distinct.contains(EXPECTED));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}